@@ -0,0 +1,36 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Cold-start budget check, run on a real device.
+ * Plugin load() must stay cheap; heavyweight setup belongs in the first method call.
+ * Plugins are loaded inside the bridge build, so their cost is part of "bridge:create".
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBudgetTest {
+
+    private static final long REGISTER_BUDGET_MS = 5;
+    // WebView creation plus every plugin's load()
+    private static final long BRIDGE_CREATE_BUDGET_MS = 250;
+
+    @Test
+    public void bridgeCreationStaysWithinBudget() throws Exception {
+        try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            StartupTrace trace = StartupTrace.get();
+
+            long register = trace.durationMillis("plugins:register");
+            long bridge = trace.durationMillis("bridge:create");
+            assertNotEquals("Bridge span missing", -1, bridge);
+            assertTrue(trace.dump(), register <= REGISTER_BUDGET_MS);
+            assertTrue(trace.dump(), bridge <= BRIDGE_CREATE_BUDGET_MS);
+        }
+    }
+}
@@ -1,121 +1,175 @@
 package com.theaark.wakt;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
-import android.media.AudioManager;
+import android.graphics.Color;
+import android.graphics.Typeface;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.Button;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 
 /**
  * Full-screen Activity for displaying Adhan
  * Shown on lock screen and wakes device
  * User can dismiss or snooze the Adhan
+ *
+ * Everything before the first frame comes from the intent extras: the view
+ * tree is built in code (no inflation), and nothing reads storage or starts
+ * services. AdhanService (audio, volume, settings) is started after the first
+ * frame, and the measured time to first frame goes to AlarmTelemetry.
  */
 public class AdhanActivity extends Activity {
 
     private static final String TAG = "AdhanActivity";
+    static final String HISTOGRAM_FIRST_FRAME = "adhanActivity.first_frame_ms";
+    // A process younger than this was started for this activity (cold start)
+    private static final long COLD_START_WINDOW_MS = 5_000;
+
     private String prayerName = "Prayer";
-    private AudioManager audioManager;
+    private String eventKey;
+    private long createdAt;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        createdAt = SystemClock.uptimeMillis();
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_adhan);
-
-        Log.d(TAG, "AdhanActivity created");
 
         // Get prayer name from intent
         if (getIntent().hasExtra("prayerName")) {
             prayerName = getIntent().getStringExtra("prayerName");
         }
+        eventKey = getIntent().getStringExtra(AdhanNotificationFactory.EXTRA_EVENT_KEY);
 
         // Setup window flags for full-screen and wake device
         Window window = getWindow();
         window.addFlags(
                 WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON |
-                        WindowManager.LayoutParams.FLAG_DISMISS_KEYGUARD |
-                        WindowManager.LayoutParams.FLAG_SHOW_WHEN_LOCKED |
-                        WindowManager.LayoutParams.FLAG_TURN_SCREEN_ON |
                         WindowManager.LayoutParams.FLAG_FULLSCREEN
         );
-
-        // Android 5.0+ specific
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
             setShowWhenLocked(true);
             setTurnScreenOn(true);
+        } else {
+            window.addFlags(
+                    WindowManager.LayoutParams.FLAG_DISMISS_KEYGUARD |
+                            WindowManager.LayoutParams.FLAG_SHOW_WHEN_LOCKED |
+                            WindowManager.LayoutParams.FLAG_TURN_SCREEN_ON
+            );
         }
 
+        View content = buildContent();
+        setContentView(content);
+
         // Hide status bar and navigation
         hideSystemUI();
 
-        // Setup UI
-        setupUI();
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                onFirstFrame();
+                return true;
+            }
+        });
+    }
 
-        // Audio manager for volume control
-        audioManager = (AudioManager) getSystemService(AUDIO_SERVICE);
+    /**
+     * Equivalent of the old activity_adhan layout, built directly
+     */
+    private View buildContent() {
+        float density = getResources().getDisplayMetrics().density;
+
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+        root.setGravity(Gravity.CENTER);
+        root.setBackgroundColor(Color.parseColor("#0A6B5D"));
+        int padding = Math.round(20 * density);
+        root.setPadding(padding, padding, padding, padding);
+
+        TextView prayerTextView = new TextView(this);
+        prayerTextView.setText(prayerName + " - Adhan");
+        prayerTextView.setTextSize(TypedValue.COMPLEX_UNIT_SP, 48);
+        prayerTextView.setTextColor(Color.WHITE);
+        prayerTextView.setTypeface(Typeface.DEFAULT_BOLD);
+        prayerTextView.setGravity(Gravity.CENTER);
+        LinearLayout.LayoutParams titleParams = new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        titleParams.bottomMargin = Math.round(40 * density);
+        root.addView(prayerTextView, titleParams);
 
-        // If alarm is muted, lift to 1 step; otherwise respect user volume
-        try {
-            if (audioManager != null) {
-                int current = audioManager.getStreamVolume(AudioManager.STREAM_ALARM);
-                int max = audioManager.getStreamMaxVolume(AudioManager.STREAM_ALARM);
-                if (current == 0 && max > 0) {
-                    audioManager.setStreamVolume(AudioManager.STREAM_ALARM, 1, 0);
-                }
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Unable to adjust alarm volume", e);
-        }
+        // Dismiss button
+        Button dismissButton = new Button(this);
+        dismissButton.setText("Dismiss");
+        dismissButton.setTextSize(TypedValue.COMPLEX_UNIT_SP, 18);
+        dismissButton.setTextColor(Color.WHITE);
+        dismissButton.setBackgroundColor(Color.parseColor("#1ABC9C"));
+        int buttonPadding = Math.round(15 * density);
+        dismissButton.setPadding(buttonPadding, buttonPadding, buttonPadding, buttonPadding);
+        dismissButton.setOnClickListener(v -> {
+            Log.d(TAG, "Dismiss clicked");
+            stopAdhan();
+            finish();
+        });
+        root.addView(dismissButton, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return root;
+    }
 
-        // Start foreground service to play Adhan audio with selected sound
+    /**
+     * Runs once the first frame is about to draw: measure, then hand the
+     * remaining work to a background thread.
+     */
+    private void onFirstFrame() {
+        long now = SystemClock.uptimeMillis();
+        long processStart = Process.getStartUptimeMillis();
+        boolean cold = createdAt - processStart < COLD_START_WINDOW_MS;
+        long firstFrameMs = now - (cold ? processStart : createdAt);
+        Log.d(TAG, "First frame after " + firstFrameMs + "ms (" + (cold ? "cold" : "warm") + ")");
+
+        final String name = prayerName;
+        final String key = eventKey;
+        final Context app = getApplicationContext();
+        new Thread(() -> {
+            startAdhanService(app, name, key);
+            AlarmTelemetry telemetry = AlarmTelemetry.get(app);
+            telemetry.record(HISTOGRAM_FIRST_FRAME, firstFrameMs);
+            telemetry.count(cold ? "adhanActivity.cold" : "adhanActivity.warm");
+        }, "adhan-handoff").start();
+    }
+
+    /**
+     * Make sure audio is running. When the activity came from AdhanService's own
+     * notification this is a duplicate start that the service ignores; when it
+     * is recreated after the process died, the service resumes or finishes the
+     * saved firing (AdhanPlayback). The event key from the notification
+     * identifies that firing even when the date has changed since.
+     */
+    private static void startAdhanService(Context context, String prayerName, String eventKey) {
         try {
-            String soundName = "";
-            try {
-                android.content.SharedPreferences prefs = getApplicationContext().getSharedPreferences(
-                        "CapacitorStorage", MODE_PRIVATE);
-                soundName = prefs.getString("adhanSound", "athan_makkah");
-            } catch (Exception ignored) {}
-
-            Intent svc = new Intent(this, AdhanService.class);
+            Intent svc = new Intent(context, AdhanService.class);
             svc.putExtra("prayerName", prayerName);
-            svc.putExtra("soundName", soundName);
+            if (eventKey != null) svc.putExtra(AdhanNotificationFactory.EXTRA_EVENT_KEY, eventKey);
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                startForegroundService(svc);
+                context.startForegroundService(svc);
             } else {
-                startService(svc);
+                context.startService(svc);
             }
-            Log.d(TAG, "AdhanService started with sound: " + soundName);
         } catch (Exception e) {
             Log.e(TAG, "Failed to start AdhanService", e);
         }
-
-        Log.d(TAG, "AdhanActivity setup complete");
-    }
-
-    /**
-     * Setup UI elements
-     */
-    private void setupUI() {
-        // Prayer name display
-        TextView prayerTextView = findViewById(R.id.prayer_name);
-        if (prayerTextView != null) {
-            prayerTextView.setText(prayerName + " - Adhan");
-        }
-
-        // Dismiss button
-        Button dismissButton = findViewById(R.id.dismiss_button);
-        if (dismissButton != null) {
-            dismissButton.setOnClickListener(v -> {
-                Log.d(TAG, "Dismiss clicked");
-                stopAdhan();
-                finish();
-            });
-        }
     }
 
     /**
@@ -123,39 +177,30 @@ public class AdhanActivity extends Activity {
      */
     private void stopAdhan() {
         try {
-            stopService(new android.content.Intent(this, AdhanService.class));
+            stopService(new Intent(this, AdhanService.class));
             Log.d(TAG, "Adhan service stopped");
         } catch (Exception e) {
             Log.e(TAG, "Error stopping Adhan service", e);
         }
     }
 
-    
-
     /**
      * Hide system UI (status bar and navigation bar)
      */
     private void hideSystemUI() {
-        int flags = android.view.View.SYSTEM_UI_FLAG_LAYOUT_STABLE
-                | android.view.View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION
-                | android.view.View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN
-                | android.view.View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
-                | android.view.View.SYSTEM_UI_FLAG_FULLSCREEN
-                | android.view.View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
+        int flags = View.SYSTEM_UI_FLAG_LAYOUT_STABLE
+                | View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION
+                | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN
+                | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
+                | View.SYSTEM_UI_FLAG_FULLSCREEN
+                | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
 
         getWindow().getDecorView().setSystemUiVisibility(flags);
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        Log.d(TAG, "Activity paused");
-    }
-
     @Override
     protected void onResume() {
         super.onResume();
-        Log.d(TAG, "Activity resumed");
         hideSystemUI();
     }
 
@@ -1,101 +1,104 @@
 package com.theaark.wakt;
 
+import android.app.AlarmManager;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.PowerManager;
 import android.util.Log;
 
+import java.util.TimeZone;
+
 /**
  * BroadcastReceiver that handles:
- * 1. ADHAN_ALARM - Wakes at prayer time to send notification
+ * 1. ADHAN_ALARM - Wakes for the next AlarmTimeline events (prayers and reminders)
  * 2. DISMISS_ADHAN - User dismisses the notification
- * 3. BOOT_COMPLETED - Restore alarms after device restart
+ * 3. BOOT_COMPLETED / MY_PACKAGE_REPLACED - Restore alarms and travel mode after restart or update
+ * 4. TIMEZONE_CHANGED / TIME_SET / DATE_CHANGED - Re-arm for the new clock
+ * 5. GLANCE_REFRESH - Boundary alarm armed by earlier versions; now handled by PrayerWidgetProvider
+ * 6. SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED - Exact alarms granted; re-arm with them
+ *
+ * It is exported for the system broadcasts; re-arms forwarded from other
+ * processes go to AlarmRearmReceiver, which is not.
  */
 public class AdhanBroadcastReceiver extends BroadcastReceiver {
 
     private static final String TAG = "AdhanReceiver";
     private static final String CHANNEL_ID = "adhan_notifications";
-    private static final int NOTIFICATION_ID = 2000;
     private static final boolean DEBUG = false;
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        // Acquire wake lock to ensure device wakes up
-        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-        PowerManager.WakeLock wakeLock = powerManager.newWakeLock(
-                PowerManager.PARTIAL_WAKE_LOCK,
-                "wakt::AdhanAlarmWakeLock"
-        );
-        wakeLock.acquire(60000); // 1 minute timeout
-        
-        try {
-            String action = intent.getAction();
-            if (DEBUG) {
-                Log.d(TAG, "======================================");
-                Log.d(TAG, "onReceive called with action: " + action);
-                Log.d(TAG, "Time: " + new java.util.Date().toString());
-                Log.d(TAG, "======================================");
-            }
+        // The system keeps the device awake for onReceive itself; only the alarm
+        // path, which continues asynchronously in the services, takes a wake lock.
+        String action = intent.getAction();
+        if (DEBUG) {
+            Log.d(TAG, "======================================");
+            Log.d(TAG, "onReceive called with action: " + action);
+            Log.d(TAG, "Time: " + new java.util.Date().toString());
+            Log.d(TAG, "======================================");
+        }
 
-            if (action == null) {
-                Log.w(TAG, "Received null action");
-                return;
-            }
+        if (action == null) {
+            Log.w(TAG, "Received null action");
+            return;
+        }
 
-            switch (action) {
-                case "com.theaark.wakt.ADHAN_ALARM":
-                    // Wake up and send notification at prayer time
-                    String prayerName = intent.getStringExtra("prayerName");
-                    String prayerTimeWindow = intent.getStringExtra("prayerTimeWindow");
-                    int requestCode = intent.getIntExtra("requestCode", 100);
-                    if (DEBUG) Log.d(TAG, "⏰ Adhan alarm triggered for: " + prayerName);
-                    
-                    // Start service to handle the alarm
-                    Intent serviceIntent = new Intent(context, AdhanAlarmService.class);
-                    serviceIntent.putExtra("prayerName", prayerName);
-                    serviceIntent.putExtra("prayerTimeWindow", prayerTimeWindow);
-                    serviceIntent.putExtra("requestCode", requestCode);
-                    context.startService(serviceIntent);
-                    break;
-
-                case "com.theaark.wakt.DISMISS_ADHAN":
-                    // User tapped dismiss button - stop audio and clear notification
-                    if (DEBUG) Log.d(TAG, "Dismiss action received");
-                    dismissAdhanNotification(context);
-                    stopAdhanService(context);
-                    break;
-
-                case Intent.ACTION_BOOT_COMPLETED:
-                case Intent.ACTION_LOCKED_BOOT_COMPLETED:
-                    // Device rebooted - need to restore alarms
-                    if (DEBUG) Log.d(TAG, "Boot completed - alarms need to be rescheduled");
-                    handleBootCompleted(context);
-                    break;
-
-                default:
-                    Log.w(TAG, "Unknown action: " + action);
-            }
-        } finally {
-            // Always release wake lock
-            if (wakeLock.isHeld()) {
-                wakeLock.release();
-            }
+        switch (action) {
+            case AlarmScheduler.ACTION_ADHAN_ALARM:
+                // Deliver the timeline wakeup (prayers and reminders) and arm the next one
+                if (DEBUG) Log.d(TAG, "⏰ Alarm timeline wakeup");
+                AlarmScheduler.onAlarm(context, intent);
+                break;
+
+            case AlarmScheduler.ACTION_GLANCE_REFRESH:
+                // Armed before the glance moved to PrayerWidgetProvider; re-arms it there
+                AlarmScheduler.refreshGlance(context);
+                break;
+
+            case AlarmManager.ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED:
+                // Only sent on grant; a revoke kills the app, so SchedulingHealth
+                // also notices the change on the next refresh
+                SchedulingHealth.refresh(context, "broadcast");
+                break;
+
+            case "com.theaark.wakt.DISMISS_ADHAN":
+                // User tapped dismiss button - stop audio and clear notification
+                if (DEBUG) Log.d(TAG, "Dismiss action received");
+                dismissAdhanNotification(context, intent.getIntExtra(
+                        AdhanNotificationFactory.EXTRA_NOTIFICATION_ID, AdhanNotificationFactory.DEFAULT_NOTIFICATION_ID));
+                stopAdhanService(context);
+                break;
+
+            case Intent.ACTION_BOOT_COMPLETED:
+            case Intent.ACTION_LOCKED_BOOT_COMPLETED:
+            case Intent.ACTION_MY_PACKAGE_REPLACED:
+                // Device rebooted or app updated - need to restore alarms
+                if (DEBUG) Log.d(TAG, "Boot completed - alarms need to be rescheduled");
+                handleBootCompleted(context);
+                break;
+
+            case Intent.ACTION_TIMEZONE_CHANGED:
+            case Intent.ACTION_TIME_CHANGED:
+            case Intent.ACTION_DATE_CHANGED:
+                handleClockChanged(context, action);
+                break;
+
+            default:
+                Log.w(TAG, "Unknown action: " + action);
         }
     }
 
     /**
      * Dismiss the Adhan notification
      */
-    private void dismissAdhanNotification(Context context) {
+    private void dismissAdhanNotification(Context context, int notificationId) {
         try {
             NotificationManager notificationManager =
                     (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
             
             if (notificationManager != null) {
-                notificationManager.cancel(NOTIFICATION_ID);
+                notificationManager.cancel(notificationId);
                 if (DEBUG) Log.d(TAG, "Adhan notification dismissed");
             }
         } catch (Exception e) {
@@ -117,85 +120,40 @@ public class AdhanBroadcastReceiver extends BroadcastReceiver {
     }
 
     /**
-     * Reschedule alarm for tomorrow (24 hours from now)
-     * This ensures daily prayer alarms keep working
+     * Handle device boot - need to reschedule all prayer alarms
+     * This is critical: without this, alarms disappear after phone restart
      */
-    private void rescheduleAlarmForTomorrow(Context context, String prayerName) {
+    private void handleBootCompleted(Context context) {
+        Log.d(TAG, "Device booted - restoring prayer alarms from AlarmStore");
+
+        // AlarmStore lives in device-protected storage, so this also works on
+        // LOCKED_BOOT_COMPLETED before the user unlocks.
+        AlarmScheduler.rearm(context, "boot");
+
+        // Location requests do not survive a reboot or update either. Play
+        // services may not be reachable before unlock; BOOT_COMPLETED follows.
         try {
-            // Get request code for this prayer
-            int requestCode = getRequestCodeForPrayer(prayerName);
-            
-            // Calculate time 24 hours from now
-            long tomorrowTime = System.currentTimeMillis() + (24 * 60 * 60 * 1000);
-            
-            Intent intent = new Intent(context, AdhanBroadcastReceiver.class);
-            intent.setAction("com.theaark.wakt.ADHAN_ALARM");
-            intent.putExtra("prayerName", prayerName);
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            android.app.AlarmManager alarmManager = 
-                    (android.app.AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-            
-            if (alarmManager != null) {
-                if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.S) {
-                    if (alarmManager.canScheduleExactAlarms()) {
-                        alarmManager.setExactAndAllowWhileIdle(
-                                android.app.AlarmManager.RTC_WAKEUP,
-                                tomorrowTime,
-                                pendingIntent
-                        );
-                        Log.d(TAG, "✅ Rescheduled " + prayerName + " for tomorrow");
-                    } else {
-                        Log.w(TAG, "Cannot schedule exact alarms - permission missing");
-                    }
-                } else {
-                    alarmManager.setExactAndAllowWhileIdle(
-                            android.app.AlarmManager.RTC_WAKEUP,
-                            tomorrowTime,
-                            pendingIntent
-                    );
-                    Log.d(TAG, "✅ Rescheduled " + prayerName + " for tomorrow");
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Error rescheduling alarm for " + prayerName, e);
-        }
-    }
-    
-    /**
-     * Get request code for a prayer name
-     */
-    private int getRequestCodeForPrayer(String prayerName) {
-        if (prayerName == null) return 100;
-        switch (prayerName.toLowerCase()) {
-            case "fajr": return 100;
-            case "dhuhr": return 101;
-            case "asr": return 102;
-            case "maghrib": return 103;
-            case "isha": return 104;
-            default: return 100;
+            TravelMode.restore(context);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to restore travel mode", e);
         }
     }
 
     /**
-     * Handle device boot - need to reschedule all prayer alarms
-     * This is critical: without this, alarms disappear after phone restart
+     * Travel, DST or a manual clock change. Prayer windows pushed from JS are
+     * absolute and stay put, but the local days they belong to, the slot times
+     * armed from JS (local "HH:mm") and the displayed windows follow the zone.
+     * The timeline is rebuilt natively in one pass, without starting the
+     * WebView, and AlarmManager is only touched if the next wakeup moved.
      */
-    private void handleBootCompleted(Context context) {
-        Log.d(TAG, "Device booted - prayer alarms need to be rescheduled");
-        Log.d(TAG, "App should reschedule alarms when opened");
-        
-        // The actual rescheduling should happen when the app is opened
-        // because we need to recalculate today's prayer times
-        // This just logs that boot was detected
-        
-        // You could send a notification reminding user to open the app
-        // or trigger a background service to recalculate and reschedule
+    private void handleClockChanged(Context context, String action) {
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            // Drop the cached default so Calendar sees the new zone
+            TimeZone.setDefault(null);
+        }
+        String reason = Intent.ACTION_TIMEZONE_CHANGED.equals(action) ? "timezone"
+                : Intent.ACTION_TIME_CHANGED.equals(action) ? "time" : "date";
+        if (DEBUG) Log.d(TAG, "Clock changed (" + reason + ") - re-arming");
+        AlarmScheduler.rearm(context, reason);
     }
 }
@@ -0,0 +1,221 @@
+package com.theaark.wakt;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.SparseArray;
+
+import androidx.core.app.NotificationCompat;
+
+import java.util.Calendar;
+
+/**
+ * The one place prayer notifications are built, shared by AdhanService and
+ * AdhanNotificationPlugin.
+ *
+ * The builder template and the PendingIntents are created once per process
+ * and reused; each notification only swaps in the prayer's text and intents.
+ * Every prayer posts under its own id so overlapping prayers do not replace
+ * each other, and an event key (prayer + local day) lets AdhanService ignore
+ * a second start for the same firing.
+ *
+ * Reminders from AlarmTimeline go on their own, quieter channel, one id per
+ * prayer and reminder type; so does TravelMode's notice after a move.
+ */
+public final class AdhanNotificationFactory {
+
+    static final String CHANNEL_ID = "adhan_notifications";
+    static final String ACTION_DISMISS = "com.theaark.wakt.DISMISS_ADHAN";
+    static final String EXTRA_NOTIFICATION_ID = "notificationId";
+    static final String EXTRA_EVENT_KEY = "eventKey";
+    // Kept for notifications not tied to a known prayer (e.g. test triggers)
+    static final int DEFAULT_NOTIFICATION_ID = 2000;
+    static final String REMINDER_CHANNEL_ID = "prayer_reminders";
+    private static final int REMINDER_BASE_ID = 2100;
+    static final int TRAVEL_NOTICE_ID = 2200;
+    private static final long[] VIBRATION = {0, 500, 250, 500};
+
+    private static AdhanNotificationFactory instance;
+
+    private final Context context;
+    private final NotificationCompat.Builder template;
+    private NotificationCompat.Builder reminderTemplate;
+    private final SparseArray<PendingIntent> dismissIntents = new SparseArray<>();
+    private final SparseArray<PendingIntent> fullScreenIntents = new SparseArray<>();
+    // Event key each cached full-screen intent carries
+    private final SparseArray<String> fullScreenKeys = new SparseArray<>();
+
+    private AdhanNotificationFactory(Context context) {
+        this.context = context;
+        template = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setAutoCancel(true)
+                .setOngoing(false)
+                .setVibrate(VIBRATION)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+    }
+
+    public static synchronized AdhanNotificationFactory get(Context context) {
+        if (instance == null) {
+            instance = new AdhanNotificationFactory(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Notification id for a prayer: one per prayer, the default id otherwise
+     */
+    public static int notificationId(String prayerName) {
+        int index = AlarmSettings.prayerIndex(prayerName);
+        return index < 0 ? DEFAULT_NOTIFICATION_ID : DEFAULT_NOTIFICATION_ID + 1 + index;
+    }
+
+    /**
+     * Identifies one firing of a prayer: the prayer name and the local day
+     * its window starts on. AlarmScheduler derives it from the alarm and it
+     * is passed along with the firing, so a restart of AdhanService or
+     * AdhanActivity after midnight still matches it.
+     */
+    public static String eventKey(String prayerName, long startMillis) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(startMillis);
+        long epochDay = CivilDate.epochDayOf(
+                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+        return prayerName + "@" + epochDay;
+    }
+
+    /**
+     * Key for a firing that did not come with one (alarms armed by earlier
+     * versions, test triggers): today's date
+     */
+    public static String eventKey(String prayerName) {
+        return eventKey(prayerName, System.currentTimeMillis());
+    }
+
+    public Notification build(String prayerName, String text, boolean fullScreen) {
+        return build(prayerName, text, fullScreen, null);
+    }
+
+    /**
+     * Build the notification for one prayer firing.
+     *
+     * @param text        body text (e.g. the prayer's time window)
+     * @param fullScreen  attach the lock-screen AdhanActivity as full-screen intent
+     * @param eventKey    the firing's key, handed to AdhanActivity; may be null
+     */
+    public synchronized Notification build(String prayerName, String text, boolean fullScreen, String eventKey) {
+        int id = notificationId(prayerName);
+        PendingIntent dismiss = dismissIntent(id);
+        PendingIntent open = fullScreen ? fullScreenIntent(id, prayerName, eventKey) : dismiss;
+
+        template.setContentTitle("🕌 Time for " + prayerName)
+                .setContentText(text != null ? text : "")
+                .setContentIntent(open)
+                .setDeleteIntent(dismiss)
+                .setFullScreenIntent(fullScreen ? open : null, fullScreen)
+                .clearActions()
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "Dismiss", dismiss);
+        return template.build();
+    }
+
+    /**
+     * Notification id for a reminder: one per prayer and reminder type
+     */
+    public static int reminderId(int prayer, int type) {
+        return REMINDER_BASE_ID + prayer * 2 + (type == AlarmTimeline.TYPE_TRAIL ? 1 : 0);
+    }
+
+    /**
+     * Build a reminder, e.g. "Fajr in 15 minutes" or "Asr ends in 10 minutes"
+     *
+     * @param beforeEnd reminder before the prayer's window ends rather than starts
+     */
+    public synchronized Notification buildReminder(String prayerName, boolean beforeEnd, int minutes) {
+        String text = beforeEnd
+                ? prayerName + " ends in " + minutes + " minutes"
+                : prayerName + " in " + minutes + " minutes";
+        reminderTemplate().setContentTitle(text).setContentText(null).setWhen(System.currentTimeMillis());
+        return reminderTemplate.build();
+    }
+
+    /**
+     * Build the notice TravelMode posts after a move while the app is closed:
+     * the alarms keep the old location's windows until JS pushes new ones
+     */
+    public synchronized Notification buildTravelNotice(double distanceKm) {
+        // 0 km: the first fix, with no stored location to compare against
+        String title = distanceKm > 0 ? "Moved " + Math.round(distanceKm) + " km" : "Location updated";
+        reminderTemplate().setContentTitle(title)
+                .setContentText("Open Wakt to update prayer times for your new location")
+                .setWhen(System.currentTimeMillis());
+        return reminderTemplate.build();
+    }
+
+    private NotificationCompat.Builder reminderTemplate() {
+        if (reminderTemplate == null) {
+            ensureReminderChannel();
+            Intent launch = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+            reminderTemplate = new NotificationCompat.Builder(context, REMINDER_CHANNEL_ID)
+                    .setSmallIcon(R.mipmap.ic_launcher)
+                    .setPriority(NotificationCompat.PRIORITY_DEFAULT)
+                    .setCategory(NotificationCompat.CATEGORY_REMINDER)
+                    .setAutoCancel(true)
+                    .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+            if (launch != null) {
+                reminderTemplate.setContentIntent(PendingIntent.getActivity(context, REMINDER_BASE_ID, launch,
+                        PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE));
+            }
+        }
+        return reminderTemplate;
+    }
+
+    private void ensureReminderChannel() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationManager nm = context.getSystemService(NotificationManager.class);
+        if (nm == null || nm.getNotificationChannel(REMINDER_CHANNEL_ID) != null) return;
+        NotificationChannel channel = new NotificationChannel(
+                REMINDER_CHANNEL_ID, "Prayer Reminders", NotificationManager.IMPORTANCE_DEFAULT);
+        channel.setDescription("Reminders before a prayer starts or its time ends");
+        nm.createNotificationChannel(channel);
+    }
+
+    private PendingIntent dismissIntent(int id) {
+        PendingIntent pi = dismissIntents.get(id);
+        if (pi == null) {
+            Intent intent = new Intent(context, AdhanBroadcastReceiver.class);
+            intent.setAction(ACTION_DISMISS);
+            intent.putExtra(EXTRA_NOTIFICATION_ID, id);
+            pi = PendingIntent.getBroadcast(context, id, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            dismissIntents.put(id, pi);
+        }
+        return pi;
+    }
+
+    private PendingIntent fullScreenIntent(int id, String prayerName, String eventKey) {
+        // The shared default id may carry different names, so it is not cached.
+        // Otherwise it is rebuilt once per firing, when the key changes
+        // (FLAG_UPDATE_CURRENT replaces the extras).
+        PendingIntent pi = fullScreenIntents.get(id);
+        if (pi == null || !TextUtils.equals(eventKey, fullScreenKeys.get(id))) {
+            Intent intent = new Intent(context, AdhanActivity.class);
+            intent.putExtra("prayerName", prayerName);
+            intent.putExtra(EXTRA_EVENT_KEY, eventKey);
+            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            pi = PendingIntent.getActivity(context, id, intent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+            if (id != DEFAULT_NOTIFICATION_ID) {
+                fullScreenIntents.put(id, pi);
+                fullScreenKeys.put(id, eventKey);
+            }
+        }
+        return pi;
+    }
+}
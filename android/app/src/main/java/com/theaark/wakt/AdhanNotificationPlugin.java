@@ -1,9 +1,7 @@
 package com.theaark.wakt;
 
-import android.app.AlarmManager;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
 import android.media.MediaPlayer;
@@ -13,13 +11,14 @@ import android.os.PowerManager;
 import android.provider.Settings;
 import android.util.Log;
 
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
-import java.util.Calendar;
+import org.json.JSONObject;
 
 @CapacitorPlugin(name = "AdhanNotificationPlugin")
 public class AdhanNotificationPlugin extends Plugin {
@@ -27,26 +26,55 @@ public class AdhanNotificationPlugin extends Plugin {
     private static final String TAG = "AdhanNotificationPlugin";
     private static final String CHANNEL_ID = "adhan_notifications";
     private static final boolean DEBUG = true;
-    private AlarmManager alarmManager;
     private Context context;
     private MediaPlayer mediaPlayer;
+    private boolean channelReady = false;
 
     @Override
     public void load() {
         super.load();
+        // Keep load() cheap: the notification channel and scheduling health
+        // are resolved on the first method call that actually needs them.
         context = getContext();
-        alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-        createNotificationChannel();
+        SchedulingHealth.setListener(snapshot -> notifyListeners("schedulingHealthChanged", toJS(snapshot)));
         if (DEBUG) Log.d(TAG, "AdhanNotificationPlugin loaded successfully");
     }
 
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        // The user may be back from Settings; changes are emitted as schedulingHealthChanged
+        getBridge().execute(() -> SchedulingHealth.refresh(context, "resume"));
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        SchedulingHealth.setListener(null);
+        super.handleOnDestroy();
+    }
+
     /**
-     * Get selected Adhan sound from SharedPreferences
+     * Create the notification channel once, on first use.
+     * Skips the delete/recreate cycle when the channel already exists;
+     * updateNotificationSound() still forces a rebuild.
+     */
+    private void ensureNotificationChannel() {
+        if (channelReady) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager notificationManager =
+                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            if (notificationManager.getNotificationChannel(CHANNEL_ID) == null) {
+                createNotificationChannel();
+            }
+        }
+        channelReady = true;
+    }
+
+    /**
+     * Get selected Adhan sound from the native alarm store
      */
     private String getSelectedAdhanSound() {
-        android.content.SharedPreferences prefs = context.getSharedPreferences(
-                "CapacitorStorage", Context.MODE_PRIVATE);
-        return prefs.getString("adhanSound", "athan_makkah");
+        return AlarmStore.read(context).soundName;
     }
 
     /**
@@ -125,6 +153,7 @@ public class AdhanNotificationPlugin extends Plugin {
         }
 
         try {
+            ensureNotificationChannel();
             if (DEBUG) Log.d(TAG, "About to show notification...");
             showAdhanNotification(prayerName);
             if (DEBUG) Log.d(TAG, "Notification shown successfully");
@@ -136,72 +165,16 @@ public class AdhanNotificationPlugin extends Plugin {
     }
 
     /**
-     * Show high-priority Adhan notification
+     * Show high-priority Adhan notification (built by AdhanNotificationFactory,
+     * the same pipeline AdhanService uses)
      */
     private void showAdhanNotification(String prayerName) {
-        if (DEBUG) {
-            Log.d(TAG, "=== showAdhanNotification START ===");
-            Log.d(TAG, "Prayer: " + prayerName);
-        }
-        
-        try {
-            // Get notification manager
-            NotificationManager notificationManager =
-                    (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-            if (DEBUG) Log.d(TAG, "Got NotificationManager");
-
-            // Intent to open activity when notification is tapped
-            Intent fullScreenIntent = new Intent(context, AdhanActivity.class);
-            fullScreenIntent.putExtra("prayerName", prayerName);
-            fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-
-            PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
-                    context,
-                    0,
-                    fullScreenIntent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-            if (DEBUG) Log.d(TAG, "Created PendingIntent");
-
-            // Sound URI
-            android.net.Uri soundUri = android.net.Uri.parse(
-                    "android.resource://" + context.getPackageName() + "/" + R.raw.adhan);
-            if (DEBUG) Log.d(TAG, "Sound URI: " + soundUri);
-
-                // Build notification
-            androidx.core.app.NotificationCompat.Builder builder =
-                    new androidx.core.app.NotificationCompat.Builder(context, CHANNEL_ID)
-                            .setSmallIcon(R.mipmap.ic_launcher)
-                            .setContentTitle("🕌 Time for " + prayerName)
-                            .setContentText("The Adhan is playing... Tap to view")
-                        .setContentIntent(fullScreenPendingIntent)
-                        .setFullScreenIntent(fullScreenPendingIntent, true)
-                            .setPriority(androidx.core.app.NotificationCompat.PRIORITY_MAX)
-                            .setCategory(androidx.core.app.NotificationCompat.CATEGORY_ALARM)
-                            .setAutoCancel(true)
-                            .setVibrate(new long[]{0, 500, 250, 500})
-                            .setVisibility(androidx.core.app.NotificationCompat.VISIBILITY_PUBLIC);
-
-            if (DEBUG) Log.d(TAG, "Builder created");
-
-            // Set sound for pre-Android 8 devices
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
-                builder.setSound(soundUri);
-                if (DEBUG) Log.d(TAG, "Set sound for pre-Android 8");
-            } else {
-                if (DEBUG) Log.d(TAG, "Using channel sound (Android 8+)");
-            }
-
-            // Show notification
-            int notificationId = 2000;
-            notificationManager.notify(notificationId, builder.build());
-            if (DEBUG) Log.d(TAG, "=== Notification posted with ID: " + notificationId + " ===");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "=== ERROR in showAdhanNotification ===");
-            Log.e(TAG, "Error: " + e.getMessage(), e);
-            throw e;
-        }
+        NotificationManager notificationManager =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        int notificationId = AdhanNotificationFactory.notificationId(prayerName);
+        notificationManager.notify(notificationId, AdhanNotificationFactory.get(context)
+                .build(prayerName, "The Adhan is playing... Tap to view", true));
+        if (DEBUG) Log.d(TAG, "Notification posted with ID: " + notificationId);
     }
 
     /**
@@ -220,67 +193,14 @@ public class AdhanNotificationPlugin extends Plugin {
         }
 
         try {
+            ensureNotificationChannel();
+
             // Parse time
             String[] timeParts = prayerTime.split(":");
-            int hour = Integer.parseInt(timeParts[0]);
-            int minute = Integer.parseInt(timeParts[1]);
-
-            Calendar calendar = Calendar.getInstance();
-            calendar.set(Calendar.HOUR_OF_DAY, hour);
-            calendar.set(Calendar.MINUTE, minute);
-            calendar.set(Calendar.SECOND, 0);
+            int minuteOfDay = Integer.parseInt(timeParts[0]) * 60 + Integer.parseInt(timeParts[1]);
 
-            if (calendar.getTimeInMillis() < System.currentTimeMillis()) {
-                calendar.add(Calendar.DAY_OF_MONTH, 1);
-            }
-
-            Intent intent = new Intent(context, AdhanBroadcastReceiver.class);
-            intent.setAction("com.theaark.wakt.ADHAN_ALARM");
-            intent.putExtra("prayerName", prayerName);
-            intent.putExtra("prayerTimeWindow", prayerTimeWindow);
-            // Explicitly set the component to ensure it works when app is closed
-            intent.setComponent(new android.content.ComponentName(
-                    context.getPackageName(),
-                    "com.theaark.wakt.AdhanBroadcastReceiver"
-            ));
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_CANCEL_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            Log.d(TAG, "Scheduling alarm for " + prayerName + " at " + prayerTime + " (request code: " + requestCode + ")");
-            Log.d(TAG, "Calendar time: " + calendar.getTime());
-            Log.d(TAG, "Current time: " + new java.util.Date());
-
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                if (alarmManager.canScheduleExactAlarms()) {
-                    alarmManager.setExactAndAllowWhileIdle(
-                            AlarmManager.RTC_WAKEUP,
-                            calendar.getTimeInMillis(),
-                            pendingIntent
-                    );
-                    Log.d(TAG, "✅ Scheduled EXACT alarm for " + prayerName + " at " + calendar.getTime());
-                } else {
-                    Log.w(TAG, "⚠️ Cannot schedule exact alarms - falling back to inexact");
-                    alarmManager.setAndAllowWhileIdle(
-                            AlarmManager.RTC_WAKEUP,
-                            calendar.getTimeInMillis(),
-                            pendingIntent
-                    );
-                    Log.d(TAG, "⚠️ Scheduled INEXACT alarm for " + prayerName);
-                }
-            } else {
-                Log.d(TAG, "Android < 12, using setExactAndAllowWhileIdle");
-                alarmManager.setExactAndAllowWhileIdle(
-                        AlarmManager.RTC_WAKEUP,
-                        calendar.getTimeInMillis(),
-                        pendingIntent
-                );
-                Log.d(TAG, "✅ Scheduled alarm for " + prayerName + " at " + calendar.getTime());
-            }
+            recordSlot(prayerName, minuteOfDay, prayerTimeWindow);
+            AlarmScheduler.rearm(context);
 
             call.resolve();
         } catch (Exception e) {
@@ -303,19 +223,8 @@ public class AdhanNotificationPlugin extends Plugin {
         }
 
         try {
-            Intent intent = new Intent(context, AdhanBroadcastReceiver.class);
-            intent.setAction("com.theaark.wakt.ADHAN_ALARM");
-            intent.putExtra("prayerName", prayerName);
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                    context,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            alarmManager.cancel(pendingIntent);
-            Log.d(TAG, "Cancelled alarm for " + prayerName);
+            recordSlot(prayerName, -1, "");
+            AlarmScheduler.rearm(context);
             call.resolve();
         } catch (Exception e) {
             Log.e(TAG, "Error cancelling alarm", e);
@@ -323,6 +232,120 @@ public class AdhanNotificationPlugin extends Plugin {
         }
     }
 
+    /**
+     * Remember an armed (or cancelled) slot; the timeline uses the slots when
+     * no location has been saved
+     */
+    private void recordSlot(String prayerName, int minuteOfDay, String prayerTimeWindow) {
+        int index = AlarmSettings.prayerIndex(prayerName);
+        if (index < 0) return;
+        AlarmSettings settings = AlarmStore.read(context);
+        if (settings.slotMinute[index] == minuteOfDay
+                && settings.slotWindow[index].equals(prayerTimeWindow)) {
+            return;
+        }
+        settings.slotMinute[index] = minuteOfDay;
+        settings.slotWindow[index] = prayerTimeWindow;
+        AlarmStore.write(context, settings);
+    }
+
+    /**
+     * Save alarm-path settings into the native AlarmStore.
+     * All fields are optional; only the ones provided are updated:
+     * notifications / adhan ({fajr: bool, ...}), adhanSound,
+     * latitude + longitude, method (display name), madhab,
+     * reminders ({fajr: {before: minutes, beforeEnd: minutes}, ...}; 0 turns one off),
+     * windows (epoch minutes, start and end per prayer for consecutive days from yesterday).
+     */
+    @PluginMethod
+    public void saveAlarmSettings(PluginCall call) {
+        try {
+            AlarmSettings settings = AlarmStore.read(context);
+
+            JSObject notifications = call.getObject("notifications");
+            if (notifications != null) {
+                settings.notificationMask = toMask(notifications, settings.notificationMask);
+            }
+            JSObject adhan = call.getObject("adhan");
+            if (adhan != null) {
+                settings.adhanMask = toMask(adhan, settings.adhanMask);
+            }
+            String sound = call.getString("adhanSound");
+            if (sound != null && !sound.isEmpty()) {
+                settings.soundName = sound;
+            }
+            Double latitude = call.getDouble("latitude");
+            Double longitude = call.getDouble("longitude");
+            if (latitude != null && longitude != null) {
+                settings.hasLocation = true;
+                settings.latitude = latitude;
+                settings.longitude = longitude;
+            }
+            String method = call.getString("method");
+            if (method != null) {
+                settings.method = AlarmSettings.methodIndex(method);
+            }
+            String madhab = call.getString("madhab");
+            if (madhab != null) {
+                settings.madhab = madhab.toLowerCase().contains("hanafi")
+                        ? AlarmSettings.MADHAB_HANAFI
+                        : AlarmSettings.MADHAB_SHAFI;
+            }
+            JSObject reminders = call.getObject("reminders");
+            if (reminders != null) {
+                applyReminders(reminders, settings);
+            }
+            JSArray windows = call.getArray("windows");
+            if (windows != null) {
+                int[] packed = new int[windows.length()];
+                for (int i = 0; i < packed.length; i++) packed[i] = windows.optInt(i, -1);
+                settings.setSchedule(packed);
+            }
+
+            if (AlarmStore.write(context, settings)) {
+                // Any of these can move, add or drop timeline events
+                AlarmScheduler.rearm(context);
+                call.resolve();
+            } else {
+                call.reject("Failed to write alarm settings");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving alarm settings", e);
+            call.reject("Failed to save alarm settings: " + e.getMessage());
+        }
+    }
+
+    private static int toMask(JSObject toggles, int current) {
+        int mask = current;
+        for (int i = 0; i < AlarmSettings.PRAYER_COUNT; i++) {
+            String key = AlarmSettings.PRAYER_KEYS[i];
+            if (!toggles.has(key)) continue;
+            if (toggles.optBoolean(key)) {
+                mask |= 1 << i;
+            } else {
+                mask &= ~(1 << i);
+            }
+        }
+        return mask;
+    }
+
+    private static void applyReminders(JSObject reminders, AlarmSettings settings) {
+        for (int i = 0; i < AlarmSettings.PRAYER_COUNT; i++) {
+            JSONObject offsets = reminders.optJSONObject(AlarmSettings.PRAYER_KEYS[i]);
+            if (offsets == null) continue;
+            if (offsets.has("before")) {
+                settings.leadMinutes[i] = clampMinutes(offsets.optInt("before"));
+            }
+            if (offsets.has("beforeEnd")) {
+                settings.trailMinutes[i] = clampMinutes(offsets.optInt("beforeEnd"));
+            }
+        }
+    }
+
+    private static int clampMinutes(int minutes) {
+        return Math.max(0, Math.min(AlarmSettings.MAX_REMINDER_MINUTES, minutes));
+    }
+
     /**
      * Preview an Adhan sound
      */
@@ -389,6 +412,7 @@ public class AdhanNotificationPlugin extends Plugin {
     public void updateNotificationSound(PluginCall call) {
         try {
             createNotificationChannel();
+            channelReady = true;
             Log.d(TAG, "Notification channel sound updated");
             call.resolve();
         } catch (Exception e) {
@@ -397,19 +421,35 @@ public class AdhanNotificationPlugin extends Plugin {
         }
     }
 
+    /**
+     * Everything that affects alarm delivery in one call (see SchedulingHealth).
+     * Cached natively; pass {refresh: true} to force a re-read. Changes are
+     * also emitted as "schedulingHealthChanged" with the same shape.
+     */
+    @PluginMethod
+    public void getSchedulingHealth(PluginCall call) {
+        boolean refresh = Boolean.TRUE.equals(call.getBoolean("refresh", false));
+        call.resolve(toJS(SchedulingHealth.get(context, refresh)));
+    }
+
+    private static JSObject toJS(SchedulingHealth.Snapshot s) {
+        JSObject result = new JSObject();
+        result.put("exactAlarms", s.exactAlarms);
+        result.put("batteryOptimizationDisabled", s.batteryOptimizationDisabled);
+        result.put("standbyBucket", s.standbyBucketName());
+        result.put("notificationsEnabled", s.notificationsEnabled);
+        result.put("channelImportance", s.channelImportanceName());
+        result.put("fullScreenIntent", s.fullScreenIntent);
+        return result;
+    }
+
     /**
      * Check if device can schedule exact alarms
      */
     @PluginMethod
     public void canScheduleExactAlarms(PluginCall call) {
         JSObject result = new JSObject();
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            result.put("canSchedule", alarmManager.canScheduleExactAlarms());
-        } else {
-            result.put("canSchedule", true);
-        }
-        
+        result.put("canSchedule", SchedulingHealth.get(context, false).exactAlarms);
         call.resolve(result);
     }
     
@@ -419,16 +459,7 @@ public class AdhanNotificationPlugin extends Plugin {
     @PluginMethod
     public void isBatteryOptimizationDisabled(PluginCall call) {
         JSObject result = new JSObject();
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
-            boolean isIgnoring = pm.isIgnoringBatteryOptimizations(context.getPackageName());
-            result.put("isDisabled", isIgnoring);
-            Log.d(TAG, "Battery optimization disabled: " + isIgnoring);
-        } else {
-            result.put("isDisabled", true);
-        }
-        
+        result.put("isDisabled", SchedulingHealth.get(context, false).batteryOptimizationDisabled);
         call.resolve(result);
     }
     
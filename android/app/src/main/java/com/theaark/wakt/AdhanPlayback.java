@@ -0,0 +1,101 @@
+package com.theaark.wakt;
+
+/**
+ * Persisted state of one Adhan firing in AdhanService:
+ * IDLE -> PREPARING -> PLAYING -> DONE.
+ *
+ * AdhanService returns START_NOT_STICKY, so a killed process is not
+ * restarted with a null intent. When the same firing is started again
+ * (AdhanActivity recreated, the notification tapped), the saved state decides
+ * whether the Adhan resumes where it would be now or is already over; a DONE
+ * firing is never played twice.
+ *
+ * Both clocks are saved: elapsedRealtime measures the position, and a wall
+ * clock that moved differently means the device rebooted (or the clock was
+ * changed) in between, after which the firing counts as over.
+ *
+ * Pure Java so the decisions can be exercised in JVM tests.
+ */
+final class AdhanPlayback {
+
+    enum Phase { IDLE, PREPARING, PLAYING, DONE }
+
+    // A start killed while preparing is retried from the top within this
+    static final long PREPARE_TIMEOUT_MS = 30_000;
+    // Playback length assumed when the player never reported one
+    static final long UNKNOWN_DURATION_MS = 10 * 60_000L;
+    // Not worth resuming for the last few seconds
+    static final long MIN_REMAINING_MS = 5_000;
+    // Allowed disagreement between the two clocks before assuming a reboot
+    static final long CLOCK_SKEW_MS = 60_000;
+
+    static final AdhanPlayback IDLE = new AdhanPlayback(Phase.IDLE, null, null, null, null, 0, 0, 0);
+
+    final Phase phase;
+    final String eventKey;
+    final String prayerName;
+    final String window;
+    final String soundName;
+    // elapsedRealtime and wall clock of position 0 (PLAYING) or of the start (PREPARING)
+    final long startedAt;
+    final long startedAtWall;
+    // From MediaPlayer.getDuration(), 0 if unknown
+    final long durationMs;
+
+    AdhanPlayback(Phase phase, String eventKey, String prayerName, String window, String soundName,
+                  long startedAt, long startedAtWall, long durationMs) {
+        this.phase = phase;
+        this.eventKey = eventKey;
+        this.prayerName = prayerName;
+        this.window = window;
+        this.soundName = soundName;
+        this.startedAt = startedAt;
+        this.startedAtWall = startedAtWall;
+        this.durationMs = durationMs;
+    }
+
+    static AdhanPlayback preparing(String eventKey, String prayerName, String window, String soundName,
+                                   long now, long nowWall) {
+        return new AdhanPlayback(Phase.PREPARING, eventKey, prayerName, window, soundName, now, nowWall, 0);
+    }
+
+    /**
+     * Audible from {@code positionMs} at {@code now}
+     */
+    AdhanPlayback playing(long positionMs, long durationMs, long now, long nowWall) {
+        return new AdhanPlayback(Phase.PLAYING, eventKey, prayerName, window, soundName,
+                now - positionMs, nowWall - positionMs, durationMs);
+    }
+
+    AdhanPlayback done() {
+        return new AdhanPlayback(Phase.DONE, eventKey, prayerName, window, soundName,
+                startedAt, startedAtWall, durationMs);
+    }
+
+    boolean isActive() {
+        return phase == Phase.PREPARING || phase == Phase.PLAYING;
+    }
+
+    boolean isFor(String key) {
+        return key != null && key.equals(eventKey);
+    }
+
+    /**
+     * Where a restarted service should continue this firing.
+     *
+     * @return playback position in milliseconds, or -1 if the firing is over
+     */
+    long resumePosition(long now, long nowWall) {
+        if (!isActive()) return -1;
+        long elapsed = now - startedAt;
+        if (elapsed < 0 || Math.abs((nowWall - startedAtWall) - elapsed) > CLOCK_SKEW_MS) return -1;
+        if (phase == Phase.PREPARING) return elapsed < PREPARE_TIMEOUT_MS ? 0 : -1;
+        long end = durationMs > 0 ? durationMs : UNKNOWN_DURATION_MS;
+        return elapsed < end - MIN_REMAINING_MS ? elapsed : -1;
+    }
+
+    @Override
+    public String toString() {
+        return eventKey + " " + phase;
+    }
+}
@@ -3,52 +3,113 @@ package com.theaark.wakt;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
 import android.media.MediaPlayer;
 import android.os.Build;
 import android.os.IBinder;
+import android.os.SystemClock;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
 import androidx.core.content.ContextCompat;
 
 /**
  * Service for playing Adhan audio
  * Runs in foreground to ensure audio plays even when app is backgrounded
+ *
+ * Each firing goes through AdhanPlayback's states, persisted with commit()
+ * so they survive the process being killed. The service is not sticky: it
+ * runs only while audio plays. A silent firing leaves its notification
+ * behind (detached) and stops at once, and a start for a firing that is
+ * already DONE is dropped.
  */
 public class AdhanService extends Service implements MediaPlayer.OnCompletionListener {
 
     private static final String TAG = "AdhanService";
-    private static final String CHANNEL_ID = "adhan_notifications";
-    private static final int NOTIFICATION_ID = 2000;
     private static final int MAX_LOOPS = 1; // Play once only
+    private static final String PREFS = "adhan_playback";
 
     private MediaPlayer mediaPlayer;
     private int loopCount = 0;
     private String prayerName = "";
     private String soundName = "";
     private String prayerTimeWindow = ""; // Prayer time window (e.g., "05:30 - 06:45")
+    // Firing this service is handling; a repeated start for it is a no-op
+    private String eventKey;
+    private int notificationId = AdhanNotificationFactory.DEFAULT_NOTIFICATION_ID;
+    private android.app.Notification notification;
+    private AdhanPlayback playback = AdhanPlayback.IDLE;
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "Service started");
 
-        if (intent != null) {
-            prayerName = intent.getStringExtra("prayerName");
+        if (intent == null) {
+            // Sticky restart of an instance from before START_NOT_STICKY. Not a
+            // foreground start, so leave the saved state for a proper one to resume.
+            Log.d(TAG, "Restarted without intent, stopping");
+            if (!playback.isActive()) stopSelf(startId);
+            return START_NOT_STICKY;
+        }
+
+        AdhanPlayback saved = loadPlayback();
+        String name = intent.getStringExtra("prayerName");
+        String key = intent.getStringExtra(AdhanNotificationFactory.EXTRA_EVENT_KEY);
+        if (key == null && name != null) key = AdhanNotificationFactory.eventKey(name);
+
+        if (key != null && key.equals(eventKey) && playback.isActive()) {
+            // Same firing started again (e.g. by AdhanActivity): every
+            // startForegroundService still needs a startForeground call.
+            Log.d(TAG, "Already handling " + key + ", ignoring duplicate start");
+            startForeground(notificationId, notification);
+            AlarmWakeLock.release(this, "duplicate");
+            return START_NOT_STICKY;
+        }
+
+        long resumeAt = 0;
+        if (saved.isFor(key)) {
+            // This firing was started before, in a process that is gone now
+            resumeAt = saved.resumePosition(SystemClock.elapsedRealtime(), System.currentTimeMillis());
+            AlarmTelemetry.get(this).event(resumeAt >= 0 ? "playback.resume" : "playback.over",
+                    saved + (resumeAt > 0 ? " at " + resumeAt + "ms" : ""));
+            if (resumeAt < 0) {
+                if (saved.isActive()) savePlayback(saved.done());
+                finish(name != null ? name : saved.prayerName);
+                return START_NOT_STICKY;
+            }
+            playback = saved;
+        } else if (key == null) {
+            finish(null);
+            return START_NOT_STICKY;
+        }
+
+        eventKey = key;
+        prayerName = name != null ? name : saved.prayerName;
+        if (saved.isFor(key)) {
+            soundName = saved.soundName;
+            prayerTimeWindow = saved.window;
+        } else {
             soundName = intent.getStringExtra("soundName");
             prayerTimeWindow = intent.getStringExtra("prayerTimeWindow");
         }
+        notificationId = AdhanNotificationFactory.notificationId(prayerName);
 
         // Check if adhan is enabled for this prayer
         if (!isAdhanEnabled(prayerName)) {
-            Log.d(TAG, "Adhan is disabled for " + prayerName + ", running foreground service with silent notification");
+            Log.d(TAG, "Adhan is disabled for " + prayerName + ", posting silent notification");
 
-            // Start foreground service with the notification, but do NOT
-            // play audio. This mirrors the normal path so Android keeps
-            // the service and notification alive reliably.
-            startForeground(NOTIFICATION_ID, createNotification());
-            return START_STICKY;
+            // startForegroundService still needs a startForeground call; the
+            // notification is then detached so it outlives the service.
+            notification = AdhanNotificationFactory.get(this).build(prayerName, prayerTimeWindow, false);
+            startForeground(notificationId, notification);
+            savePlayback(new AdhanPlayback(AdhanPlayback.Phase.DONE, eventKey, prayerName,
+                    prayerTimeWindow, soundName, 0, 0, 0));
+            AlarmWakeLock.release(this, "silent");
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_DETACH);
+            stopSelf();
+            return START_NOT_STICKY;
         }
 
         // Ensure alarm volume is at least audible; if muted, lift to 1 step, otherwise respect user volume
@@ -65,19 +126,60 @@ public class AdhanService extends Service implements MediaPlayer.OnCompletionLis
             Log.w(TAG, "Unable to adjust alarm volume in service", e);
         }
 
-        // Start foreground notification
-        startForeground(NOTIFICATION_ID, createNotification());
+        // Start foreground notification; the full-screen intent brings up AdhanActivity
+        notification = AdhanNotificationFactory.get(this).build(prayerName, prayerTimeWindow, true, eventKey);
+        startForeground(notificationId, notification);
 
-        // Initialize and play Adhan audio
-        playAdhan();
+        if (!playback.isFor(eventKey)) {
+            playback = AdhanPlayback.preparing(eventKey, prayerName, prayerTimeWindow, soundName,
+                    SystemClock.elapsedRealtime(), System.currentTimeMillis());
+            savePlayback(playback);
+        }
+
+        // Initialize and play Adhan audio; the alarm path is done once it is audible
+        boolean playing = playAdhan((int) resumeAt);
+        AlarmWakeLock.release(this, playing ? "playing" : "error");
+        if (playing) {
+            long duration = Math.max(0, mediaPlayer.getDuration());
+            playback = playback.playing(resumeAt, duration, SystemClock.elapsedRealtime(), System.currentTimeMillis());
+            savePlayback(playback);
+        } else {
+            // Nothing to hear: keep the notification, not the service
+            finishPlayback();
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_DETACH);
+            stopSelf();
+        }
 
-        return START_STICKY;
+        return START_NOT_STICKY;
+    }
+
+    /**
+     * Satisfy a foreground start for a firing that is over or unknown, then stop
+     * without leaving a notification behind. The default id keeps the
+     * prayer's own notification (e.g. a detached silent one) untouched.
+     */
+    private void finish(String name) {
+        AlarmWakeLock.release(this, "finished");
+        if (playback.isActive()) {
+            // Still playing another firing; keep that one in the foreground
+            startForeground(notificationId, notification);
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            startForeground(AdhanNotificationFactory.DEFAULT_NOTIFICATION_ID,
+                    AdhanNotificationFactory.get(this).build(name != null ? name : "", null, false));
+            ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        }
+        stopSelf();
     }
 
     /**
      * Play Adhan audio file
+     *
+     * @param positionMs where to start, non-zero when resuming a killed firing
+     * @return true if playback started
      */
-    private void playAdhan() {
+    private boolean playAdhan(int positionMs) {
         try {
             // Release previous player if exists
             if (mediaPlayer != null) {
@@ -102,9 +204,7 @@ public class AdhanService extends Service implements MediaPlayer.OnCompletionLis
             try {
                 String chosen = soundName;
                 if (chosen == null || chosen.isEmpty()) {
-                    android.content.SharedPreferences prefs = getApplicationContext().getSharedPreferences(
-                            "CapacitorStorage", MODE_PRIVATE);
-                    chosen = prefs.getString("adhanSound", "athan_makkah");
+                    chosen = AlarmStore.read(this).soundName;
                 }
                 resId = getResources().getIdentifier(chosen, "raw", getPackageName());
                 if (resId == 0) {
@@ -117,14 +217,16 @@ public class AdhanService extends Service implements MediaPlayer.OnCompletionLis
                 ));
                 mediaPlayer.setOnCompletionListener(this);
                 mediaPlayer.prepare();
+                if (positionMs > 0) mediaPlayer.seekTo(positionMs);
                 mediaPlayer.start();
                 Log.d(TAG, "Playing Adhan audio");
-            } else {
-                Log.e(TAG, "Adhan audio file not found");
+                return true;
             }
+            Log.e(TAG, "Adhan audio file not found");
         } catch (Exception e) {
             Log.e(TAG, "Error playing Adhan", e);
         }
+        return false;
     }
 
     @Override
@@ -139,59 +241,24 @@ public class AdhanService extends Service implements MediaPlayer.OnCompletionLis
                 mediaPlayer.start();
             } catch (Exception e) {
                 Log.e(TAG, "Error replaying Adhan", e);
+                finishPlayback();
                 stopSelf();
             }
         } else {
             // Stop after max loops
             Log.d(TAG, "Reached max loop count, stopping service");
+            finishPlayback();
             stopSelf();
         }
     }
 
-    /**
-     * Create foreground notification (default style)
-     */
-    private android.app.Notification createNotification() {
-        // Dismiss action - stops the adhan sound and notification
-        Intent dismissIntent = new Intent(this, AdhanBroadcastReceiver.class);
-        dismissIntent.setAction("com.theaark.wakt.DISMISS_ADHAN");
-
-        android.app.PendingIntent dismissPendingIntent = android.app.PendingIntent.getBroadcast(
-                this,
-                1001,
-                dismissIntent,
-                android.app.PendingIntent.FLAG_UPDATE_CURRENT | android.app.PendingIntent.FLAG_IMMUTABLE
-        );
-        
-        // Display prayer time window
-        String contentText = prayerTimeWindow != null && !prayerTimeWindow.isEmpty() 
-            ? prayerTimeWindow 
-            : "";
-
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
-            .setSmallIcon(R.mipmap.ic_launcher)
-            .setContentTitle("🕌 Time for " + prayerName)
-            .setContentText(contentText)
-            .setContentIntent(dismissPendingIntent)
-            .setDeleteIntent(dismissPendingIntent)
-            .setPriority(NotificationCompat.PRIORITY_MAX)
-            .setCategory(NotificationCompat.CATEGORY_ALARM)
-            .setAutoCancel(true)
-            .setOngoing(false)
-            .setVibrate(new long[]{0, 500, 250, 500})
-            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-            .addAction(
-                android.R.drawable.ic_menu_close_clear_cancel,
-                "Dismiss",
-                dismissPendingIntent
-            )
-            .build();
-    }
-
     @Override
     public void onDestroy() {
         super.onDestroy();
         Log.d(TAG, "Service destroyed");
+        AlarmWakeLock.release(this, "destroyed");
+        // Stopped by the user (dismiss) or the system; a killed process never gets here
+        finishPlayback();
 
         if (mediaPlayer != null) {
             try {
@@ -211,40 +278,50 @@ public class AdhanService extends Service implements MediaPlayer.OnCompletionLis
 
     /**
      * Check if adhan sound is enabled for a specific prayer
-     * Maps prayer name to the stored preference
      */
     private boolean isAdhanEnabled(String prayerName) {
-        try {
-            android.content.SharedPreferences prefs = getApplicationContext().getSharedPreferences(
-                    "CapacitorStorage", MODE_PRIVATE);
-            
-            // Get the stored adhan toggles JSON string
-            String adhanToggles = prefs.getString("wakt_adhan_toggles", "");
-            if (adhanToggles.isEmpty()) {
-                // If no preferences stored yet, default to false (disabled for adhan)
-                Log.d(TAG, "No adhan preferences found, defaulting to false (disabled)");
-                return false;
-            }
+        boolean isEnabled = AlarmStore.read(this).isAdhanEnabled(prayerName);
+        Log.d(TAG, "Adhan for " + prayerName + " is " + (isEnabled ? "enabled" : "disabled"));
+        return isEnabled;
+    }
 
-            // Parse the JSON to extract the prayer key
-            String prayerKey = prayerName.toLowerCase()
-                    .replace(" ", "")
-                    .replace("(test)", "")
-                    .trim();
-            
-            // Try to parse JSON - look for "prayerKey": true/false
-            if (adhanToggles.contains("\"" + prayerKey + "\":")) {
-                boolean isEnabled = adhanToggles.contains("\"" + prayerKey + "\":true");
-                Log.d(TAG, "Adhan for " + prayerKey + " is " + (isEnabled ? "enabled" : "disabled"));
-                return isEnabled;
-            }
+    private void finishPlayback() {
+        if (!playback.isActive()) return;
+        playback = playback.done();
+        savePlayback(playback);
+    }
 
-            // If preference not found, default to false (disabled for adhan)
-            Log.d(TAG, "No adhan preference found for " + prayerKey + ", defaulting to false");
-            return false;
-        } catch (Exception e) {
-            Log.e(TAG, "Error checking adhan preference", e);
-            return false; // Default to disabled on error
+    private SharedPreferences prefs() {
+        return createDeviceProtectedStorageContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+
+    private AdhanPlayback loadPlayback() {
+        SharedPreferences p = prefs();
+        AdhanPlayback.Phase phase;
+        try {
+            phase = AdhanPlayback.Phase.valueOf(p.getString("phase", "IDLE"));
+        } catch (IllegalArgumentException e) {
+            phase = AdhanPlayback.Phase.IDLE;
         }
+        return new AdhanPlayback(phase, p.getString("eventKey", null), p.getString("prayerName", null),
+                p.getString("window", null), p.getString("soundName", null),
+                p.getLong("startedAt", 0), p.getLong("startedAtWall", 0), p.getLong("durationMs", 0));
+    }
+
+    /**
+     * commit(), not apply(): the point is to be on disk before the process can die
+     */
+    private void savePlayback(AdhanPlayback state) {
+        Log.d(TAG, "Playback " + state);
+        prefs().edit()
+                .putString("phase", state.phase.name())
+                .putString("eventKey", state.eventKey)
+                .putString("prayerName", state.prayerName)
+                .putString("window", state.window)
+                .putString("soundName", state.soundName)
+                .putLong("startedAt", state.startedAt)
+                .putLong("startedAtWall", state.startedAtWall)
+                .putLong("durationMs", state.durationMs)
+                .commit();
     }
 }
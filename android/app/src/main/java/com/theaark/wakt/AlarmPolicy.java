@@ -0,0 +1,90 @@
+package com.theaark.wakt;
+
+/**
+ * Chooses how each alarm event is armed. Every mechanism still fires while
+ * the device dozes; only the Adhan shows up as an alarm clock:
+ * <ul>
+ *   <li>Adhan: {@code setAlarmClock}, which is exempt from doze and app standby.</li>
+ *   <li>Notification only: {@code setExactAndAllowWhileIdle}, on time without
+ *       the alarm-clock indicator.</li>
+ *   <li>Reminder: delivered by a neighbouring wakeup when one is close enough,
+ *       otherwise an exact while-idle alarm of its own.</li>
+ * </ul>
+ * Without exact-alarm permission (Android 12+) every event degrades to
+ * {@code setAndAllowWhileIdle}, which the OS may deliver late but not skip.
+ * {@code setWindow} is never used: it is held until the next maintenance
+ * window while the device dozes, which can be hours.
+ */
+public final class AlarmPolicy {
+
+    public enum Kind { ADHAN, NOTIFICATION, REMINDER }
+
+    public enum Mechanism { ALARM_CLOCK, EXACT, INEXACT, PIGGYBACK }
+
+    // How far a reminder may move to share another event's wakeup
+    static final long PIGGYBACK_TOLERANCE_MS = 3 * 60_000L;
+
+    public static final class Decision {
+        public final Kind kind;
+        public final Mechanism mechanism;
+        public final long triggerAtMillis;
+        // Wakeup a PIGGYBACK event is delivered with, -1 otherwise
+        public final long hostAtMillis;
+        public final String reason;
+
+        Decision(Kind kind, Mechanism mechanism, long triggerAtMillis, long hostAtMillis, String reason) {
+            this.kind = kind;
+            this.mechanism = mechanism;
+            this.triggerAtMillis = triggerAtMillis;
+            this.hostAtMillis = hostAtMillis;
+            this.reason = reason;
+        }
+
+        @Override
+        public String toString() {
+            return kind + "->" + mechanism + " (" + reason + ")";
+        }
+    }
+
+    private AlarmPolicy() {}
+
+    /**
+     * @param exactAllowed whether exact alarms may be used (canScheduleExactAlarms)
+     * @param wakeups      trigger times of the other armed events, may be null
+     */
+    public static Decision decide(Kind kind, long triggerAtMillis, boolean exactAllowed, long[] wakeups) {
+        switch (kind) {
+            case ADHAN:
+                if (exactAllowed) {
+                    return new Decision(kind, Mechanism.ALARM_CLOCK, triggerAtMillis, -1, "adhan");
+                }
+                return new Decision(kind, Mechanism.INEXACT, triggerAtMillis, -1, "exact alarms denied");
+            case REMINDER:
+                long host = nearest(triggerAtMillis, wakeups);
+                if (host >= 0 && Math.abs(host - triggerAtMillis) <= PIGGYBACK_TOLERANCE_MS) {
+                    return new Decision(kind, Mechanism.PIGGYBACK, triggerAtMillis, host, "shares wakeup");
+                }
+                return own(kind, triggerAtMillis, exactAllowed, "no neighbour");
+            case NOTIFICATION:
+            default:
+                return own(kind, triggerAtMillis, exactAllowed, "notification only");
+        }
+    }
+
+    private static Decision own(Kind kind, long triggerAtMillis, boolean exactAllowed, String reason) {
+        if (exactAllowed) {
+            return new Decision(kind, Mechanism.EXACT, triggerAtMillis, -1, reason);
+        }
+        return new Decision(kind, Mechanism.INEXACT, triggerAtMillis, -1, "exact alarms denied");
+    }
+
+    private static long nearest(long at, long[] wakeups) {
+        if (wakeups == null) return -1;
+        long best = -1;
+        for (long w : wakeups) {
+            if (w < 0) continue;
+            if (best < 0 || Math.abs(w - at) < Math.abs(best - at)) best = w;
+        }
+        return best;
+    }
+}
@@ -0,0 +1,139 @@
+package com.theaark.wakt;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Where the alarm pipeline runs. With the {@code waktAlarmProcess} Gradle
+ * property set, AdhanBroadcastReceiver, AlarmRearmReceiver, AdhanAlarmService,
+ * AdhanService and AdhanActivity are declared in a separate ":alarm" process
+ * (see the alarmProcess manifest placeholder), so an alarm firing while the app is
+ * dead does not start the process that hosts Capacitor and the WebView, and
+ * none of the main process's content providers are initialized for it.
+ *
+ * SharedPreferences are cached per process, so each piece of state must
+ * only be touched in one of them: other processes forward re-arm requests
+ * to AlarmRearmReceiver ({@link #forwardRearm}), and the alarm process forwards
+ * widget and tile refreshes, which read the main process's preferences, to
+ * PrayerWidgetProvider ({@link #forwardGlance}).
+ */
+final class AlarmProcess {
+
+    private static final String TAG = "AlarmProcess";
+    static final String ACTION_REARM = "com.theaark.wakt.REARM";
+    static final String EXTRA_REASON = "reason";
+    // A process younger than this at the first alarm was started for it
+    private static final long COLD_START_WINDOW_MS = 10_000;
+
+    private static String currentName;
+    private static String alarmName;
+
+    private AlarmProcess() {}
+
+    /**
+     * True when the alarm components live in another process than this one
+     */
+    static synchronized boolean isElsewhere(Context context) {
+        String alarm = alarmProcessName(context);
+        return alarm != null && !alarm.equals(currentName(context));
+    }
+
+    static synchronized boolean isCurrent(Context context) {
+        String alarm = alarmProcessName(context);
+        return alarm != null && alarm.equals(currentName(context))
+                && !alarm.equals(context.getApplicationInfo().processName);
+    }
+
+    /**
+     * True in the app's default process, where the WebView and the plugins run
+     */
+    static synchronized boolean isMain(Context context) {
+        return context.getApplicationInfo().processName.equals(currentName(context));
+    }
+
+    /**
+     * Ask the alarm process to re-arm; AlarmStore is a file, so it sees what
+     * this process just wrote.
+     */
+    static void forwardRearm(Context context, String reason) {
+        Intent intent = new Intent(context, AlarmRearmReceiver.class);
+        intent.setAction(ACTION_REARM);
+        intent.putExtra(EXTRA_REASON, reason);
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Ask the main process to refresh the widgets and tile (PrayerGlance).
+     * Starts it if needed; that process only loads the app, not the WebView.
+     */
+    static void forwardGlance(Context context) {
+        Intent intent = new Intent(context, PrayerWidgetProvider.class);
+        intent.setAction(AlarmScheduler.ACTION_GLANCE_REFRESH);
+        context.sendBroadcast(intent);
+    }
+
+    /**
+     * Record how long the process took to reach its first alarm and its
+     * memory footprint at that point, per process, in AlarmTelemetry.
+     */
+    static void recordFiring(Context context) {
+        long age = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+        boolean cold = age < COLD_START_WINDOW_MS;
+        String where = isCurrent(context) ? "alarm" : "main";
+        // Total PSS in KB; reads /proc, a few milliseconds once per firing
+        long pssKb = Debug.getPss();
+        AlarmTelemetry telemetry = AlarmTelemetry.get(context);
+        if (cold) telemetry.record("process." + where + ".coldStart", age);
+        telemetry.event("process." + where, (cold ? "cold " + age + "ms" : "warm")
+                + ", pss " + (pssKb / 1024) + " MB");
+    }
+
+    private static String alarmProcessName(Context context) {
+        if (alarmName == null) {
+            try {
+                alarmName = context.getPackageManager()
+                        .getReceiverInfo(new ComponentName(context, AdhanBroadcastReceiver.class), 0)
+                        .processName;
+            } catch (PackageManager.NameNotFoundException e) {
+                Log.w(TAG, "Receiver not found", e);
+                return null;
+            }
+        }
+        return alarmName;
+    }
+
+    private static String currentName(Context context) {
+        if (currentName == null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                currentName = Application.getProcessName();
+            } else {
+                currentName = readCmdline();
+                if (currentName == null) currentName = context.getApplicationInfo().processName;
+            }
+        }
+        return currentName;
+    }
+
+    private static String readCmdline() {
+        try (FileInputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buffer = new byte[256];
+            int length = in.read(buffer);
+            int end = 0;
+            while (end < length && buffer[end] != 0) end++;
+            return end > 0 ? new String(buffer, 0, end, StandardCharsets.UTF_8) : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.theaark.wakt;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Re-arms the alarm timeline in the alarm process on behalf of another one
+ * (see AlarmProcess.forwardRearm). Not exported, unlike AdhanBroadcastReceiver,
+ * so other apps cannot make it re-arm.
+ */
+public class AlarmRearmReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!AlarmProcess.ACTION_REARM.equals(intent.getAction())) return;
+        // The forwarding process has refreshed the glance already
+        String reason = intent.getStringExtra(AlarmProcess.EXTRA_REASON);
+        AlarmScheduler.rearmTimeline(context, reason != null ? reason : "update");
+    }
+}
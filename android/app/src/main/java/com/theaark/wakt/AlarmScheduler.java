@@ -0,0 +1,343 @@
+package com.theaark.wakt;
+
+import android.app.AlarmManager;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.util.Log;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Keeps exactly one alarm armed: the next wakeup of the AlarmTimeline built
+ * from AlarmStore. AlarmPolicy decides which AlarmManager call it uses, and
+ * the choice is logged to AlarmTelemetry. When the alarm fires,
+ * AdhanBroadcastReceiver hands it to {@link #onAlarm}, which delivers the
+ * wakeup's events and arms the following one.
+ *
+ * Shared by AdhanNotificationPlugin (JS changes to settings and slots) and
+ * AdhanBroadcastReceiver (alarms and boot).
+ */
+public final class AlarmScheduler {
+
+    private static final String TAG = "AlarmScheduler";
+    static final String ACTION_ADHAN_ALARM = "com.theaark.wakt.ADHAN_ALARM";
+    static final String ACTION_GLANCE_REFRESH = "com.theaark.wakt.GLANCE_REFRESH";
+    // Per-prayer alarms armed by earlier versions, one request code per prayer
+    static final int BASE_REQUEST_CODE = 100;
+    static final int TIMELINE_REQUEST_CODE = 99;
+    private static final int GLANCE_REQUEST_CODE = 98;
+
+    private static final String STATE_PREFS = "alarm_timeline";
+    private static final String KEY_DELIVERED_UNTIL = "deliveredUntil";
+    private static final String KEY_ARMED = "armed";
+    private static final String KEY_ARMED_AT = "armedAt";
+    private static final String KEY_ARMED_AFTER = "armedAfter";
+
+    private static final String EXTRA_PRAYERS = "eventPrayers";
+    private static final String EXTRA_TYPES = "eventTypes";
+    private static final String EXTRA_OFFSETS = "eventOffsets";
+    private static final String EXTRA_STARTS = "eventStarts";
+    private static final String EXTRA_ENDS = "eventEnds";
+    private static final String EXTRA_COVERS_UNTIL = "coversUntil";
+
+    private AlarmScheduler() {}
+
+    static AlarmTimeline.Wakeup rearm(Context context) {
+        return rearm(context, "update");
+    }
+
+    /**
+     * Recompute the timeline and arm its next wakeup, replacing whatever was
+     * armed before. Cheap enough to call after every settings change, clock
+     * change or timezone change: the timeline is rebuilt from AlarmStore in
+     * one pass, and AlarmManager is left alone when the wakeup is unchanged.
+     * Widgets and the tile (PrayerGlance) are refreshed on the way.
+     *
+     * @param reason why, for AlarmTelemetry (e.g. "boot", "timezone")
+     * @return the armed wakeup, or null if nothing is enabled or the request was forwarded
+     */
+    static AlarmTimeline.Wakeup rearm(Context context, String reason) {
+        refreshGlance(context);
+        return rearmTimeline(context, reason);
+    }
+
+    /**
+     * {@link #rearm} without the glance refresh, for changes the widgets and
+     * tile do not show (an alarm firing, exact-alarm access).
+     *
+     * When the alarm components run in their own process (AlarmProcess), the
+     * request is forwarded there so the timeline state has a single owner.
+     */
+    static synchronized AlarmTimeline.Wakeup rearmTimeline(Context context, String reason) {
+        if (AlarmProcess.isElsewhere(context)) {
+            AlarmProcess.forwardRearm(context, reason);
+            return null;
+        }
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        cancelLegacyAlarms(context, alarmManager);
+        return armTimeline(context, alarmManager, reason);
+    }
+
+    /**
+     * Refresh the widgets and tile and arm their next boundary. They read
+     * preferences only the main process writes (Hijri settings, whether the
+     * tile is added), so the alarm process forwards this to the main process
+     * rather than render from its own stale copies.
+     */
+    static synchronized void refreshGlance(Context context) {
+        if (!AlarmProcess.isMain(context)) {
+            AlarmProcess.forwardGlance(context);
+            return;
+        }
+        armGlance(context, (AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+    }
+
+    private static AlarmTimeline.Wakeup armTimeline(Context context, AlarmManager alarmManager, String reason) {
+        AlarmSettings settings = AlarmStore.read(context);
+        SharedPreferences state = state(context);
+        TimelineArming arming = arming(state);
+        // The PendingIntent does not survive a reboot, so an existing one means
+        // the stored state still describes a live alarm
+        PendingIntent existing = timelineIntent(context, null, PendingIntent.FLAG_NO_CREATE);
+        boolean exactAllowed = Build.VERSION.SDK_INT < Build.VERSION_CODES.S
+                || alarmManager.canScheduleExactAlarms();
+
+        TimelineArming.Action action = arming.rearm(settings, TimeZone.getDefault(),
+                System.currentTimeMillis(), existing != null, exactAllowed);
+        AlarmTimeline.Wakeup wakeup = arming.wakeup;
+        if (action == TimelineArming.Action.CANCEL) {
+            if (existing != null) alarmManager.cancel(existing);
+            save(state, arming);
+            Log.d(TAG, "Nothing enabled; no alarm armed");
+            return null;
+        }
+        if (action == TimelineArming.Action.KEEP) {
+            AlarmTelemetry.get(context).count("rearm." + reason + ".unchanged");
+            return wakeup;
+        }
+
+        PendingIntent pendingIntent = timelineIntent(context, wakeup, PendingIntent.FLAG_UPDATE_CURRENT);
+        switch (wakeup.decision.mechanism) {
+            case ALARM_CLOCK:
+                alarmManager.setAlarmClock(
+                        new AlarmManager.AlarmClockInfo(wakeup.atMillis, showIntent(context)), pendingIntent);
+                break;
+            case EXACT:
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, wakeup.atMillis, pendingIntent);
+                break;
+            case INEXACT:
+            default:
+                alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, wakeup.atMillis, pendingIntent);
+                break;
+        }
+
+        save(state, arming);
+
+        Log.d(TAG, "Armed " + wakeup.events + " at " + new Date(wakeup.atMillis) + " as " + wakeup.decision);
+        AlarmTelemetry.get(context).event("arm." + wakeup.decision.mechanism.name().toLowerCase(Locale.ROOT),
+                wakeup.events.size() + " events at " + wakeup.atMillis + " (" + reason + ") " + wakeup.decision.reason);
+        return wakeup;
+    }
+
+    /**
+     * Refresh the widgets and tile, and arm a non-wakeup alarm for their next
+     * boundary. It is delivered with the next wakeup that happens anyway, so
+     * an idle device shows a stale widget rather than waking up for it.
+     */
+    private static void armGlance(Context context, AlarmManager alarmManager) {
+        long refreshAt;
+        try {
+            refreshAt = PrayerGlance.refresh(context);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Glance refresh failed", e);
+            refreshAt = -1;
+        }
+        // Delivered to the main process, like refreshGlance
+        Intent intent = new Intent(context, PrayerWidgetProvider.class);
+        intent.setAction(ACTION_GLANCE_REFRESH);
+        if (refreshAt < 0) {
+            PendingIntent existing = PendingIntent.getBroadcast(context, GLANCE_REQUEST_CODE, intent,
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+            if (existing != null) alarmManager.cancel(existing);
+            return;
+        }
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, GLANCE_REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        alarmManager.set(AlarmManager.RTC, refreshAt, pendingIntent);
+    }
+
+    /**
+     * Deliver a fired wakeup and arm the next one. Prayers go through
+     * AdhanAlarmService (holding AlarmWakeLock until it hands off); reminders
+     * are posted directly.
+     */
+    static void onAlarm(Context context, Intent intent) {
+        AlarmProcess.recordFiring(context);
+        int[] prayers = intent.getIntArrayExtra(EXTRA_PRAYERS);
+        int[] types = intent.getIntArrayExtra(EXTRA_TYPES);
+        int[] offsets = intent.getIntArrayExtra(EXTRA_OFFSETS);
+        long[] starts = intent.getLongArrayExtra(EXTRA_STARTS);
+        long[] ends = intent.getLongArrayExtra(EXTRA_ENDS);
+
+        if (prayers == null || types == null || offsets == null || starts == null || ends == null) {
+            // A per-prayer alarm armed by an earlier version
+            String prayerName = intent.getStringExtra("prayerName");
+            startPrayer(context, prayerName, intent.getStringExtra("prayerTimeWindow"),
+                    AdhanNotificationFactory.eventKey(prayerName));
+        } else {
+            SharedPreferences state = state(context);
+            TimelineArming arming = arming(state);
+            arming.delivered(intent.getLongExtra(EXTRA_COVERS_UNTIL, 0));
+            save(state, arming);
+            AlarmSettings settings = AlarmStore.read(context);
+            for (int i = 0; i < prayers.length; i++) {
+                if (types[i] == AlarmTimeline.TYPE_PRAYER) {
+                    // Pushed windows are formatted in the current timezone; past
+                    // them only the slot's JS window text is known
+                    String window = ends[i] > 0 ? "" : settings.slotWindow[prayers[i]];
+                    if (window.isEmpty()) window = formatWindow(context, starts[i], ends[i]);
+                    String name = AlarmSettings.PRAYER_NAMES[prayers[i]];
+                    startPrayer(context, name, window, AdhanNotificationFactory.eventKey(name, starts[i]));
+                } else {
+                    postReminder(context, prayers[i], types[i], offsets[i]);
+                }
+            }
+        }
+        // The glance has its own boundary alarm
+        rearmTimeline(context, "alarm");
+    }
+
+    private static void startPrayer(Context context, String prayerName, String prayerTimeWindow, String eventKey) {
+        // Held until AdhanService is playing or AdhanAlarmService/AdhanService
+        // decide the prayer is silent (see AlarmWakeLock)
+        AlarmWakeLock.acquire(context);
+        try {
+            Intent serviceIntent = new Intent(context, AdhanAlarmService.class);
+            serviceIntent.putExtra("prayerName", prayerName);
+            serviceIntent.putExtra("prayerTimeWindow", prayerTimeWindow);
+            serviceIntent.putExtra(AdhanNotificationFactory.EXTRA_EVENT_KEY, eventKey);
+            context.startService(serviceIntent);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to start AdhanAlarmService", e);
+            AlarmWakeLock.release(context, "error");
+        }
+    }
+
+    private static void postReminder(Context context, int prayer, int type, int offsetMinutes) {
+        NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (nm == null) return;
+        AdhanNotificationFactory factory = AdhanNotificationFactory.get(context);
+        nm.notify(AdhanNotificationFactory.reminderId(prayer, type),
+                factory.buildReminder(AlarmSettings.PRAYER_NAMES[prayer], type == AlarmTimeline.TYPE_TRAIL, offsetMinutes));
+        AlarmTelemetry.get(context).count(type == AlarmTimeline.TYPE_TRAIL ? "reminder.trail" : "reminder.lead");
+    }
+
+    private static String formatWindow(Context context, long startMillis, long endMillis) {
+        DateFormat format = android.text.format.DateFormat.getTimeFormat(context);
+        String start = format.format(new Date(startMillis));
+        return endMillis > 0 ? start + " - " + format.format(new Date(endMillis)) : start;
+    }
+
+    private static PendingIntent timelineIntent(Context context, AlarmTimeline.Wakeup wakeup, int flags) {
+        Intent intent = new Intent(context, AdhanBroadcastReceiver.class);
+        intent.setAction(ACTION_ADHAN_ALARM);
+        // Explicitly set the component to ensure it works when app is closed
+        intent.setComponent(new ComponentName(
+                context.getPackageName(),
+                "com.theaark.wakt.AdhanBroadcastReceiver"
+        ));
+        if (wakeup != null) {
+            List<AlarmTimeline.Event> events = wakeup.events;
+            int n = events.size();
+            int[] prayers = new int[n];
+            int[] types = new int[n];
+            int[] offsets = new int[n];
+            long[] starts = new long[n];
+            long[] ends = new long[n];
+            for (int i = 0; i < n; i++) {
+                AlarmTimeline.Event e = events.get(i);
+                prayers[i] = e.prayer;
+                types[i] = e.type;
+                offsets[i] = e.offsetMinutes;
+                starts[i] = e.windowStartMillis;
+                ends[i] = e.windowEndMillis;
+            }
+            intent.putExtra(EXTRA_PRAYERS, prayers);
+            intent.putExtra(EXTRA_TYPES, types);
+            intent.putExtra(EXTRA_OFFSETS, offsets);
+            intent.putExtra(EXTRA_STARTS, starts);
+            intent.putExtra(EXTRA_ENDS, ends);
+            intent.putExtra(EXTRA_COVERS_UNTIL, wakeup.coversUntilMillis());
+        }
+        return PendingIntent.getBroadcast(context, TIMELINE_REQUEST_CODE, intent, flags | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    /**
+     * Drop the per-prayer alarms earlier versions armed (request codes 100-104)
+     */
+    private static void cancelLegacyAlarms(Context context, AlarmManager alarmManager) {
+        for (int i = 0; i < AlarmSettings.PRAYER_COUNT; i++) {
+            Intent intent = new Intent(context, AdhanBroadcastReceiver.class);
+            intent.setAction(ACTION_ADHAN_ALARM);
+            intent.setComponent(new ComponentName(
+                    context.getPackageName(),
+                    "com.theaark.wakt.AdhanBroadcastReceiver"
+            ));
+            PendingIntent pi = PendingIntent.getBroadcast(context, BASE_REQUEST_CODE + i, intent,
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+            if (pi != null) {
+                alarmManager.cancel(pi);
+                pi.cancel();
+            }
+        }
+    }
+
+    /**
+     * Opened when the user taps the alarm-clock indicator for an Adhan alarm
+     */
+    private static PendingIntent showIntent(Context context) {
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(context, TIMELINE_REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private static SharedPreferences state(Context context) {
+        // Device-protected, like AlarmStore, so boot-time re-arming can read it
+        return context.createDeviceProtectedStorageContext()
+                .getSharedPreferences(STATE_PREFS, Context.MODE_PRIVATE);
+    }
+
+    private static TimelineArming arming(SharedPreferences state) {
+        TimelineArming arming = new TimelineArming();
+        arming.deliveredUntil = state.getLong(KEY_DELIVERED_UNTIL, 0);
+        arming.armedKey = state.getString(KEY_ARMED, null);
+        arming.armedAt = state.getLong(KEY_ARMED_AT, -1);
+        arming.armedAfter = state.getLong(KEY_ARMED_AFTER, -1);
+        return arming;
+    }
+
+    private static void save(SharedPreferences state, TimelineArming arming) {
+        SharedPreferences.Editor editor = state.edit().putLong(KEY_DELIVERED_UNTIL, arming.deliveredUntil);
+        if (arming.armedKey != null) {
+            editor.putString(KEY_ARMED, arming.armedKey);
+        } else {
+            editor.remove(KEY_ARMED);
+        }
+        if (arming.armedAt >= 0) {
+            editor.putLong(KEY_ARMED_AT, arming.armedAt).putLong(KEY_ARMED_AFTER, arming.armedAfter);
+        } else {
+            editor.remove(KEY_ARMED_AT).remove(KEY_ARMED_AFTER);
+        }
+        editor.apply();
+    }
+}
@@ -0,0 +1,245 @@
+package com.theaark.wakt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Alarm-path settings and the armed daily schedule, in a fixed binary layout.
+ *
+ * Layout (big-endian, version 3, {@link #ENCODED_SIZE} bytes):
+ * <pre>
+ *   0  magic "WAKT"
+ *   4  u8  version
+ *   5  u8  notification mask (bit i = prayer i)
+ *   6  u8  adhan mask
+ *   7  u8  sound name length, then 32 bytes ASCII (zero padded)
+ *  40  u8  has location
+ *  41  f64 latitude
+ *  49  f64 longitude
+ *  57  u8  calculation method (index into METHOD_NAMES)
+ *  58  u8  madhab (0 = Shafi, 1 = Hanafi)
+ *  59  5 x slot: i16 minute of day (-1 = not armed), u8 window length, 32 bytes window text
+ * 234  u8  schedule days, then SCHEDULE_DAYS x 5 x window: i32 start, i32 end
+ *          (epoch minutes, -1 = unknown)
+ * 795  5 x reminder: u8 minutes before start, u8 minutes before window end (0 = off)
+ * 805  u32 CRC32 of bytes 0..804
+ * </pre>
+ * The schedule holds the prayer windows JS computed for consecutive days
+ * starting yesterday; native code never computes prayer times itself.
+ * Version 1 (no schedule, CRC at 234) and version 2 (no reminder block, CRC
+ * at 795) files are still decoded.
+ * Pure Java so it can be round-tripped in JVM tests; file I/O lives in AlarmStore.
+ */
+public class AlarmSettings {
+
+    public static final int VERSION = 3;
+    public static final int PRAYER_COUNT = 5;
+    // Days of windows JS pushes ahead; past them the slot times are repeated
+    public static final int SCHEDULE_DAYS = 14;
+    // Packed schedule entries per day: start and end per prayer
+    public static final int DAY_FIELDS = PRAYER_COUNT * 2;
+
+    public static final String[] PRAYER_KEYS = {"fajr", "dhuhr", "asr", "maghrib", "isha"};
+    public static final String[] PRAYER_NAMES = {"Fajr", "Dhuhr", "Asr", "Maghrib", "Isha"};
+
+    // Same order as calculationMethods in src/services/prayerService.ts
+    public static final String[] METHOD_NAMES = {
+            "Muslim World League",
+            "Islamic Society of North America",
+            "Egyptian General Authority",
+            "Umm al-Qura University, Makkah",
+            "University of Islamic Sciences, Karachi",
+            "Qatar Calendar House",
+            "Moonsighting Committee Worldwide",
+            "Dubai",
+            "Singapore",
+            "Turkey",
+            "Tehran",
+            "Jafari",
+            "Russia",
+            "JAKIM (Malaysia)",
+            "Kemenag (Indonesia)"
+    };
+
+    public static final String DEFAULT_SOUND = "athan_makkah";
+    public static final int MADHAB_SHAFI = 0;
+    public static final int MADHAB_HANAFI = 1;
+
+    private static final byte[] MAGIC = {'W', 'A', 'K', 'T'};
+    private static final int SOUND_BYTES = 32;
+    private static final int WINDOW_BYTES = 32;
+    private static final int SLOT_SIZE = 2 + 1 + WINDOW_BYTES;
+    private static final int BODY_SIZE_V1 = 4 + 1 + 1 + 1 + 1 + SOUND_BYTES + 1 + 8 + 8 + 1 + 1 + PRAYER_COUNT * SLOT_SIZE;
+    private static final int BODY_SIZE_V2 = BODY_SIZE_V1 + 1 + SCHEDULE_DAYS * DAY_FIELDS * 4;
+    private static final int BODY_SIZE = BODY_SIZE_V2 + PRAYER_COUNT * 2;
+    public static final int ENCODED_SIZE = BODY_SIZE + 4;
+    public static final int MAX_REMINDER_MINUTES = 255;
+
+    // Notifications default on, Adhan audio default off (matches NotificationsPage).
+    public int notificationMask = (1 << PRAYER_COUNT) - 1;
+    public int adhanMask = 0;
+    public String soundName = DEFAULT_SOUND;
+    public boolean hasLocation = false;
+    public double latitude;
+    public double longitude;
+    public int method = 0;
+    public int madhab = MADHAB_SHAFI;
+    public final int[] slotMinute = {-1, -1, -1, -1, -1};
+    public final String[] slotWindow = {"", "", "", "", ""};
+    // Windows for scheduleDays consecutive days, DAY_FIELDS per day:
+    // schedule[(day * PRAYER_COUNT + prayer) * 2] is the start, + 1 the end
+    public int scheduleDays = 0;
+    public final int[] schedule = new int[SCHEDULE_DAYS * DAY_FIELDS];
+    // Reminder offsets per prayer in minutes, 0 = off
+    public final int[] leadMinutes = new int[PRAYER_COUNT];
+    public final int[] trailMinutes = new int[PRAYER_COUNT];
+
+    public AlarmSettings() {
+        Arrays.fill(schedule, -1);
+    }
+
+    /**
+     * Index of a prayer name ("Fajr", "fajr", "Fajr (Test)"), or -1 if unknown.
+     */
+    public static int prayerIndex(String prayerName) {
+        if (prayerName == null) return -1;
+        String key = prayerName.toLowerCase()
+                .replace(" ", "")
+                .replace("(test)", "")
+                .trim();
+        for (int i = 0; i < PRAYER_COUNT; i++) {
+            if (PRAYER_KEYS[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    public static int methodIndex(String methodName) {
+        if (methodName != null) {
+            for (int i = 0; i < METHOD_NAMES.length; i++) {
+                if (METHOD_NAMES[i].equals(methodName)) return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Notification toggle for a prayer; unknown names default to enabled.
+     */
+    public boolean isNotificationEnabled(String prayerName) {
+        int i = prayerIndex(prayerName);
+        return i < 0 || (notificationMask & (1 << i)) != 0;
+    }
+
+    /**
+     * Adhan audio toggle for a prayer; unknown names default to disabled.
+     */
+    public boolean isAdhanEnabled(String prayerName) {
+        int i = prayerIndex(prayerName);
+        return i >= 0 && (adhanMask & (1 << i)) != 0;
+    }
+
+    /**
+     * Replace the schedule with packed windows from JS (DAY_FIELDS per day,
+     * first day yesterday); days past SCHEDULE_DAYS are dropped.
+     */
+    public void setSchedule(int[] windows) {
+        Arrays.fill(schedule, -1);
+        scheduleDays = Math.min(SCHEDULE_DAYS, windows.length / DAY_FIELDS);
+        System.arraycopy(windows, 0, schedule, 0, scheduleDays * DAY_FIELDS);
+    }
+
+    public byte[] encode() {
+        ByteBuffer buf = ByteBuffer.allocate(ENCODED_SIZE);
+        buf.put(MAGIC);
+        buf.put((byte) VERSION);
+        buf.put((byte) notificationMask);
+        buf.put((byte) adhanMask);
+        putFixed(buf, soundName, SOUND_BYTES);
+        buf.put((byte) (hasLocation ? 1 : 0));
+        buf.putDouble(latitude);
+        buf.putDouble(longitude);
+        buf.put((byte) method);
+        buf.put((byte) madhab);
+        for (int i = 0; i < PRAYER_COUNT; i++) {
+            buf.putShort((short) slotMinute[i]);
+            putFixed(buf, slotWindow[i], WINDOW_BYTES);
+        }
+        buf.put((byte) scheduleDays);
+        for (int minute : schedule) buf.putInt(minute);
+        for (int i = 0; i < PRAYER_COUNT; i++) {
+            buf.put((byte) leadMinutes[i]);
+            buf.put((byte) trailMinutes[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, BODY_SIZE);
+        buf.putInt((int) crc.getValue());
+        return buf.array();
+    }
+
+    /**
+     * Decode a stored blob, or return null if it is truncated, corrupt or from
+     * an unknown version (callers then fall back to defaults/legacy prefs).
+     */
+    public static AlarmSettings decode(byte[] data) {
+        if (data == null || data.length < BODY_SIZE_V1 + 4) return null;
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            for (byte b : MAGIC) {
+                if (buf.get() != b) return null;
+            }
+            int version = buf.get();
+            if (version < 1 || version > VERSION) return null;
+            int bodySize = version == 1 ? BODY_SIZE_V1 : version == 2 ? BODY_SIZE_V2 : BODY_SIZE;
+            if (data.length < bodySize + 4) return null;
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, bodySize);
+            if ((int) crc.getValue() != ByteBuffer.wrap(data, bodySize, 4).getInt()) return null;
+
+            AlarmSettings s = new AlarmSettings();
+            s.notificationMask = buf.get() & 0xFF;
+            s.adhanMask = buf.get() & 0xFF;
+            s.soundName = getFixed(buf, SOUND_BYTES);
+            if (s.soundName.isEmpty()) s.soundName = DEFAULT_SOUND;
+            s.hasLocation = buf.get() != 0;
+            s.latitude = buf.getDouble();
+            s.longitude = buf.getDouble();
+            s.method = buf.get() & 0xFF;
+            s.madhab = buf.get() & 0xFF;
+            for (int i = 0; i < PRAYER_COUNT; i++) {
+                s.slotMinute[i] = buf.getShort();
+                s.slotWindow[i] = getFixed(buf, WINDOW_BYTES);
+            }
+            if (version >= 2) {
+                s.scheduleDays = Math.min(SCHEDULE_DAYS, buf.get() & 0xFF);
+                for (int i = 0; i < s.schedule.length; i++) s.schedule[i] = buf.getInt();
+            }
+            if (version >= 3) {
+                for (int i = 0; i < PRAYER_COUNT; i++) {
+                    s.leadMinutes[i] = buf.get() & 0xFF;
+                    s.trailMinutes[i] = buf.get() & 0xFF;
+                }
+            }
+            return s;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static void putFixed(ByteBuffer buf, String value, int size) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        int len = Math.min(bytes.length, size);
+        buf.put((byte) len);
+        buf.put(bytes, 0, len);
+        for (int i = len; i < size; i++) buf.put((byte) 0);
+    }
+
+    private static String getFixed(ByteBuffer buf, int size) {
+        int len = Math.min(buf.get() & 0xFF, size);
+        byte[] bytes = new byte[size];
+        buf.get(bytes);
+        return new String(bytes, 0, len, StandardCharsets.UTF_8);
+    }
+}
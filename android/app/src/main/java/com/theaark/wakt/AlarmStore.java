@@ -0,0 +1,117 @@
+package com.theaark.wakt;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserManager;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+/**
+ * Native store for alarm state (see AlarmSettings for the binary layout).
+ *
+ * The file lives in device-protected storage so the receiver can read it
+ * during LOCKED_BOOT_COMPLETED, and is written atomically via AtomicFile.
+ * The JS layer writes it through AdhanNotificationPlugin.saveAlarmSettings;
+ * on first read after an update it is seeded from the legacy CapacitorStorage
+ * JSON keys when those are readable.
+ */
+public final class AlarmStore {
+
+    private static final String TAG = "AlarmStore";
+    private static final String FILE_NAME = "alarm_state.bin";
+    private static final String LEGACY_PREFS = "CapacitorStorage";
+
+    // Bumped on every successful write so in-process readers know to reload
+    private static volatile int generation;
+
+    private AlarmStore() {}
+
+    private static AtomicFile file(Context context) {
+        Context deviceContext = context.createDeviceProtectedStorageContext();
+        return new AtomicFile(new File(deviceContext.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Read the current settings. Never returns null: falls back to legacy
+     * prefs, then to defaults.
+     */
+    public static synchronized AlarmSettings read(Context context) {
+        try {
+            AlarmSettings settings = AlarmSettings.decode(file(context).readFully());
+            if (settings != null) return settings;
+        } catch (java.io.FileNotFoundException e) {
+            // First run after update: fall through to migration
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to read alarm store", e);
+        }
+
+        AlarmSettings migrated = readLegacy(context);
+        if (migrated != null) {
+            write(context, migrated);
+            return migrated;
+        }
+        return new AlarmSettings();
+    }
+
+    public static int generation() {
+        return generation;
+    }
+
+    public static synchronized boolean write(Context context, AlarmSettings settings) {
+        AtomicFile atomicFile = file(context);
+        FileOutputStream out = null;
+        try {
+            out = atomicFile.startWrite();
+            out.write(settings.encode());
+            atomicFile.finishWrite(out);
+            generation++;
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write alarm store", e);
+            if (out != null) atomicFile.failWrite(out);
+            return false;
+        }
+    }
+
+    /**
+     * Build settings from the JSON strings the JS layer used to write into
+     * CapacitorStorage. Returns null if credential storage is still locked
+     * (direct boot) or nothing was stored.
+     */
+    private static AlarmSettings readLegacy(Context context) {
+        try {
+            UserManager um = (UserManager) context.getSystemService(Context.USER_SERVICE);
+            if (um != null && !um.isUserUnlocked()) return null;
+
+            SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+            String notifications = prefs.getString("wakt_notification_toggles", "");
+            String adhan = prefs.getString("wakt_adhan_toggles", "");
+            String sound = prefs.getString("adhanSound", "");
+            if (notifications.isEmpty() && adhan.isEmpty() && sound.isEmpty()) return null;
+
+            AlarmSettings settings = new AlarmSettings();
+            settings.notificationMask = legacyMask(notifications, true);
+            settings.adhanMask = legacyMask(adhan, false);
+            if (!sound.isEmpty()) settings.soundName = sound;
+            Log.d(TAG, "Migrated alarm settings from CapacitorStorage");
+            return settings;
+        } catch (Exception e) {
+            Log.w(TAG, "Legacy settings migration failed", e);
+            return null;
+        }
+    }
+
+    private static int legacyMask(String json, boolean defaultEnabled) throws Exception {
+        JSONObject obj = json.isEmpty() ? new JSONObject() : new JSONObject(json);
+        int mask = 0;
+        for (int i = 0; i < AlarmSettings.PRAYER_COUNT; i++) {
+            if (obj.optBoolean(AlarmSettings.PRAYER_KEYS[i], defaultEnabled)) mask |= 1 << i;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,202 @@
+package com.theaark.wakt;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Small persistent diagnostics log for the alarm path: counters, millisecond
+ * histograms (e.g. wake-lock hold time) and the most recent events (e.g. which
+ * mechanism each alarm was armed with).
+ *
+ * Alarm firings usually run in a freshly started process, so state is kept in
+ * a text file next to AlarmStore's and rewritten after each change. Writes
+ * happen a handful of times per day. The alarm pipeline may run in its own
+ * process (AlarmProcess), so the file is reloaded when another process has
+ * rewritten it since.
+ */
+public final class AlarmTelemetry {
+
+    private static final String TAG = "AlarmTelemetry";
+    private static final String FILE_NAME = "alarm_telemetry.txt";
+    private static final int MAX_EVENTS = 64;
+    // Upper bounds (exclusive) of the histogram buckets; the last bucket is open-ended
+    static final long[] BUCKETS_MS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private static AlarmTelemetry instance;
+
+    private final AtomicFile file;
+    private final TreeMap<String, Long> counters = new TreeMap<>();
+    private final TreeMap<String, long[]> histograms = new TreeMap<>();
+    private final ArrayDeque<String> events = new ArrayDeque<>();
+    private long loadedModified;
+
+    private AlarmTelemetry(File file) {
+        this.file = new AtomicFile(file);
+        load();
+    }
+
+    public static synchronized AlarmTelemetry get(Context context) {
+        if (instance == null) {
+            Context deviceContext = context.getApplicationContext().createDeviceProtectedStorageContext();
+            instance = new AlarmTelemetry(new File(deviceContext.getNoBackupFilesDir(), FILE_NAME));
+        }
+        return instance;
+    }
+
+    /**
+     * Increment a counter and append an event line in one write.
+     */
+    public synchronized void event(String type, String detail) {
+        reloadIfChanged();
+        bump(type);
+        events.addLast(System.currentTimeMillis() + " " + type + " " + detail.replace('\n', ' '));
+        while (events.size() > MAX_EVENTS) {
+            events.removeFirst();
+        }
+        save();
+    }
+
+    public synchronized void count(String name) {
+        reloadIfChanged();
+        bump(name);
+        save();
+    }
+
+    /**
+     * Add a duration sample to a histogram
+     */
+    public synchronized void record(String histogram, long millis) {
+        reloadIfChanged();
+        long[] counts = histograms.get(histogram);
+        if (counts == null) {
+            counts = new long[BUCKETS_MS.length + 1];
+            histograms.put(histogram, counts);
+        }
+        counts[bucket(millis)]++;
+        save();
+    }
+
+    static int bucket(long millis) {
+        for (int i = 0; i < BUCKETS_MS.length; i++) {
+            if (millis < BUCKETS_MS[i]) return i;
+        }
+        return BUCKETS_MS.length;
+    }
+
+    public synchronized Map<String, Long> counters() {
+        reloadIfChanged();
+        return new TreeMap<>(counters);
+    }
+
+    /**
+     * Human-readable snapshot, oldest event first
+     */
+    public synchronized String dump() {
+        reloadIfChanged();
+        StringBuilder sb = new StringBuilder("Alarm telemetry\n");
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            sb.append("  ").append(e.getKey()).append(" = ").append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, long[]> e : histograms.entrySet()) {
+            sb.append("  ").append(e.getKey()).append(':');
+            long[] counts = e.getValue();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) continue;
+                sb.append(i < BUCKETS_MS.length ? " <" + BUCKETS_MS[i] : " >=" + BUCKETS_MS[BUCKETS_MS.length - 1])
+                        .append('=').append(counts[i]);
+            }
+            sb.append('\n');
+        }
+        for (String line : events) {
+            sb.append("  ").append(line).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+        histograms.clear();
+        events.clear();
+        save();
+    }
+
+    private void bump(String name) {
+        Long v = counters.get(name);
+        counters.put(name, v == null ? 1 : v + 1);
+    }
+
+    private void reloadIfChanged() {
+        if (file.getBaseFile().lastModified() == loadedModified) return;
+        counters.clear();
+        histograms.clear();
+        events.clear();
+        load();
+    }
+
+    // Format: "c <name> <value>", "h <name> <bucket counts...>" and "e <event line>", one per line
+
+    private void load() {
+        loadedModified = file.getBaseFile().lastModified();
+        try {
+            String text = new String(file.readFully(), StandardCharsets.UTF_8);
+            for (String line : text.split("\n")) {
+                if (line.startsWith("c ")) {
+                    int space = line.lastIndexOf(' ');
+                    counters.put(line.substring(2, space), Long.parseLong(line.substring(space + 1)));
+                } else if (line.startsWith("h ")) {
+                    String[] parts = line.split(" ");
+                    long[] counts = new long[BUCKETS_MS.length + 1];
+                    for (int i = 0; i < counts.length && i + 2 < parts.length; i++) {
+                        counts[i] = Long.parseLong(parts[i + 2]);
+                    }
+                    histograms.put(parts[1], counts);
+                } else if (line.startsWith("e ")) {
+                    events.addLast(line.substring(2));
+                }
+            }
+        } catch (FileNotFoundException e) {
+            // Nothing recorded yet
+        } catch (Exception e) {
+            Log.w(TAG, "Discarding unreadable telemetry", e);
+            counters.clear();
+            histograms.clear();
+            events.clear();
+        }
+    }
+
+    private void save() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> e : counters.entrySet()) {
+            sb.append("c ").append(e.getKey()).append(' ').append(e.getValue()).append('\n');
+        }
+        for (Map.Entry<String, long[]> e : histograms.entrySet()) {
+            sb.append("h ").append(e.getKey());
+            for (long count : e.getValue()) {
+                sb.append(' ').append(count);
+            }
+            sb.append('\n');
+        }
+        for (String line : events) {
+            sb.append("e ").append(line).append('\n');
+        }
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+            file.finishWrite(out);
+            loadedModified = file.getBaseFile().lastModified();
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to write telemetry", e);
+            if (out != null) file.failWrite(out);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.theaark.wakt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * The alarm schedule as one ordered timeline: every enabled prayer, plus the
+ * optional reminders X minutes before a prayer starts (lead) and X minutes
+ * before its window ends (trail). Only the next wakeup is ever armed.
+ *
+ * Reminders close to a prayer ride on that prayer's wakeup (AlarmPolicy's
+ * piggyback rule), so enabling them adds few or no extra wakeups.
+ *
+ * Windows are the ones JS pushed into AlarmSettings#schedule, computed by
+ * getPrayerWindows in prayerService.ts, so reminders before a window ends use
+ * the same end times the app shows (Asr ends before sunset by the set
+ * buffer, Isha at the next Fajr). Past the pushed days only the slot times
+ * are known and trail reminders are skipped.
+ */
+public final class AlarmTimeline {
+
+    public static final int TYPE_PRAYER = 0;
+    public static final int TYPE_LEAD = 1;
+    public static final int TYPE_TRAIL = 2;
+    // Days of slot times laid out once the pushed schedule runs out
+    static final int HORIZON_DAYS = 4;
+    // The pushed schedule alone is used while it reaches this far ahead
+    static final long LOOKAHEAD_MS = 2 * 24 * 3_600_000L;
+
+    public static final class Event {
+        public final int prayer;
+        public final int type;
+        public final long atMillis;
+        // Reminder offset in minutes, 0 for prayer events
+        public final int offsetMinutes;
+        public final long windowStartMillis;
+        // -1 when the window end is unknown
+        public final long windowEndMillis;
+        public final AlarmPolicy.Kind kind;
+
+        Event(int prayer, int type, long atMillis, int offsetMinutes,
+              long windowStartMillis, long windowEndMillis, AlarmPolicy.Kind kind) {
+            this.prayer = prayer;
+            this.type = type;
+            this.atMillis = atMillis;
+            this.offsetMinutes = offsetMinutes;
+            this.windowStartMillis = windowStartMillis;
+            this.windowEndMillis = windowEndMillis;
+            this.kind = kind;
+        }
+
+        public String prayerName() {
+            return AlarmSettings.PRAYER_NAMES[prayer];
+        }
+
+        @Override
+        public String toString() {
+            String what = type == TYPE_PRAYER ? "" : (type == TYPE_LEAD ? "-" : "end-") + offsetMinutes + "m ";
+            return what + prayerName() + "@" + atMillis;
+        }
+    }
+
+    public static final class Wakeup {
+        public final long atMillis;
+        public final AlarmPolicy.Decision decision;
+        public final List<Event> events;
+
+        Wakeup(long atMillis, AlarmPolicy.Decision decision, List<Event> events) {
+            this.atMillis = atMillis;
+            this.decision = decision;
+            this.events = events;
+        }
+
+        /**
+         * Latest event this wakeup delivers; the next wakeup starts after it
+         */
+        public long coversUntilMillis() {
+            long max = atMillis;
+            for (Event e : events) max = Math.max(max, e.atMillis);
+            return max;
+        }
+
+        /**
+         * Identifies what is armed: same key, same alarm. Used to skip re-arming
+         * when a clock or timezone change leaves the next wakeup as it was.
+         */
+        public String key() {
+            return atMillis + "/" + decision.mechanism + "/" + events;
+        }
+    }
+
+    private AlarmTimeline() {}
+
+    /**
+     * All events after {@code afterMillis}, ordered by time (prayers first on ties).
+     *
+     * @param times packed epoch minutes, {@link AlarmSettings#DAY_FIELDS} per day
+     *              (window start and end per prayer); negative entries are unknown
+     */
+    public static List<Event> events(AlarmSettings s, int[] times, long afterMillis) {
+        List<Event> out = new ArrayList<>();
+        int windows = times.length / 2;
+        for (int w = 0; w < windows; w++) {
+            int p = w % AlarmSettings.PRAYER_COUNT;
+            int start = times[w * 2];
+            if (start < 0) continue;
+            int end = times[w * 2 + 1];
+            long startMs = start * 60_000L;
+            long endMs = end > start ? end * 60_000L : -1;
+
+            if ((s.notificationMask & (1 << p)) != 0) {
+                AlarmPolicy.Kind kind = (s.adhanMask & (1 << p)) != 0
+                        ? AlarmPolicy.Kind.ADHAN : AlarmPolicy.Kind.NOTIFICATION;
+                add(out, afterMillis, new Event(p, TYPE_PRAYER, startMs, 0, startMs, endMs, kind));
+            }
+            int lead = s.leadMinutes[p];
+            if (lead > 0) {
+                add(out, afterMillis, new Event(p, TYPE_LEAD, startMs - lead * 60_000L, lead,
+                        startMs, endMs, AlarmPolicy.Kind.REMINDER));
+            }
+            int trail = s.trailMinutes[p];
+            if (trail > 0 && endMs > 0 && endMs - trail * 60_000L > startMs) {
+                add(out, afterMillis, new Event(p, TYPE_TRAIL, endMs - trail * 60_000L, trail,
+                        startMs, endMs, AlarmPolicy.Kind.REMINDER));
+            }
+        }
+        Collections.sort(out, (a, b) -> a.atMillis != b.atMillis
+                ? Long.compare(a.atMillis, b.atMillis)
+                : Integer.compare(a.type, b.type));
+        return out;
+    }
+
+    private static void add(List<Event> out, long afterMillis, Event e) {
+        if (e.atMillis > afterMillis) out.add(e);
+    }
+
+    /**
+     * The next wakeup after {@code afterMillis}, or null if nothing is enabled.
+     * A prayer is never delivered early; a reminder may be delivered up to
+     * {@link AlarmPolicy#PIGGYBACK_TOLERANCE_MS} early or late to share a wakeup.
+     */
+    public static Wakeup next(AlarmSettings s, int[] times, long afterMillis, boolean exactAllowed) {
+        List<Event> all = events(s, times, afterMillis);
+        if (all.isEmpty()) return null;
+
+        List<Long> prayerTimes = new ArrayList<>();
+        for (Event e : all) {
+            if (e.type == TYPE_PRAYER) prayerTimes.add(e.atMillis);
+        }
+        long[] hosts = new long[prayerTimes.size()];
+        for (int i = 0; i < hosts.length; i++) hosts[i] = prayerTimes.get(i);
+
+        Event first = all.get(0);
+        long at = first.atMillis;
+        if (first.type != TYPE_PRAYER) {
+            AlarmPolicy.Decision d = AlarmPolicy.decide(AlarmPolicy.Kind.REMINDER, first.atMillis, exactAllowed, hosts);
+            if (d.mechanism == AlarmPolicy.Mechanism.PIGGYBACK) at = d.hostAtMillis;
+        }
+
+        List<Event> group = new ArrayList<>();
+        AlarmPolicy.Kind strongest = AlarmPolicy.Kind.REMINDER;
+        for (Event e : all) {
+            boolean due = e.atMillis <= at
+                    || (e.type != TYPE_PRAYER && e.atMillis <= at + AlarmPolicy.PIGGYBACK_TOLERANCE_MS);
+            if (!due) continue;
+            group.add(e);
+            if (e.kind.ordinal() < strongest.ordinal()) strongest = e.kind;
+        }
+        return new Wakeup(at, AlarmPolicy.decide(strongest, at, exactAllowed, null), group);
+    }
+
+    /**
+     * Timeline input for {@code settings} around {@code nowMillis}: the
+     * windows last pushed from JS, followed, once they no longer reach
+     * {@link #LOOKAHEAD_MS} ahead, by the slot times repeated on the local
+     * days in {@code zone} after them.
+     */
+    public static int[] times(AlarmSettings s, TimeZone zone, long nowMillis) {
+        int[] pushed = Arrays.copyOf(s.schedule, s.scheduleDays * AlarmSettings.DAY_FIELDS);
+        long lastStart = -1;
+        for (int i = 0; i < pushed.length; i += 2) lastStart = Math.max(lastStart, pushed[i]);
+        if (lastStart * 60_000L > nowMillis + LOOKAHEAD_MS) return pushed;
+
+        Calendar from = Calendar.getInstance(zone);
+        from.setTimeInMillis(nowMillis);
+        from.add(Calendar.DAY_OF_MONTH, -1);
+        if (lastStart >= 0) {
+            // The pushed days end on the local date of their last window
+            Calendar after = Calendar.getInstance(zone);
+            after.setTimeInMillis(lastStart * 60_000L);
+            after.add(Calendar.DAY_OF_MONTH, 1);
+            if (after.after(from)) from = after;
+        }
+        int[] slots = fromSlots(s, zone, from.get(Calendar.YEAR), from.get(Calendar.MONTH) + 1,
+                from.get(Calendar.DAY_OF_MONTH), HORIZON_DAYS);
+        int[] times = Arrays.copyOf(pushed, pushed.length + slots.length);
+        System.arraycopy(slots, 0, times, pushed.length, slots.length);
+        return times;
+    }
+
+    /**
+     * Where the next wakeup search starts. A delivered wakeup may have covered
+     * reminders slightly in the future; they must not be delivered again. A
+     * wakeup that is due but not delivered yet (an inexact alarm waiting
+     * for its window, or held by Doze) is searched for again from where it was
+     * found, so re-arming keeps it instead of skipping past it. One that is
+     * not due yet may carry a reminder that has just passed, held back to
+     * share its wakeup, so the search starts that much earlier.
+     *
+     * @param armedAtMillis    when the live, undelivered wakeup is armed for, otherwise -1
+     * @param armedAfterMillis the search start it was found from
+     */
+    public static long deliverAfter(long nowMillis, long deliveredUntilMillis,
+                                    long armedAtMillis, long armedAfterMillis) {
+        if (armedAtMillis >= 0 && armedAfterMillis >= 0 && armedAfterMillis < nowMillis) {
+            return armedAtMillis <= nowMillis
+                    ? armedAfterMillis
+                    : Math.max(armedAfterMillis, nowMillis - AlarmPolicy.PIGGYBACK_TOLERANCE_MS);
+        }
+        return deliveredUntilMillis > nowMillis
+                && deliveredUntilMillis - nowMillis <= AlarmPolicy.PIGGYBACK_TOLERANCE_MS
+                ? deliveredUntilMillis : nowMillis;
+    }
+
+    /**
+     * Timeline input past the pushed windows: the slot minutes last armed
+     * from JS, placed on {@code days} consecutive local dates in {@code zone}.
+     * Only window starts are known, so trail reminders are skipped.
+     */
+    public static int[] fromSlots(AlarmSettings s, TimeZone zone, int year, int month, int day, int days) {
+        int[] times = new int[days * AlarmSettings.DAY_FIELDS];
+        Arrays.fill(times, -1);
+        Calendar cal = Calendar.getInstance(zone);
+        for (int d = 0; d < days; d++) {
+            for (int p = 0; p < AlarmSettings.PRAYER_COUNT; p++) {
+                int minute = s.slotMinute[p];
+                if (minute < 0) continue;
+                cal.clear();
+                cal.set(year, month - 1, day + d, minute / 60, minute % 60, 0);
+                times[(d * AlarmSettings.PRAYER_COUNT + p) * 2] = (int) (cal.getTimeInMillis() / 60_000L);
+            }
+        }
+        return times;
+    }
+}
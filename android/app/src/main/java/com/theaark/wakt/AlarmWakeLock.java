@@ -0,0 +1,69 @@
+package com.theaark.wakt;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * The single wake lock on the alarm path. It is taken when an Adhan alarm is
+ * received and released by whichever component finishes the hand-off:
+ * AdhanAlarmService when the prayer is disabled, AdhanService once audio is
+ * playing or it has settled on a silent notification. The timeout only
+ * bounds failures; hold times are recorded in AlarmTelemetry.
+ */
+public final class AlarmWakeLock {
+
+    private static final String TAG = "AlarmWakeLock";
+    private static final String LOCK_TAG = "wakt::AdhanAlarm";
+    static final String HISTOGRAM = "wakelock.hold_ms";
+    // Receive -> service start -> MediaPlayer.prepare of a bundled raw resource
+    static final long TIMEOUT_MS = 10_000;
+
+    private static PowerManager.WakeLock lock;
+    private static long acquiredAt;
+
+    private AlarmWakeLock() {}
+
+    /**
+     * Take (or extend) the lock. A second alarm arriving while the first is
+     * still being handled refreshes the timeout but keeps the original start time.
+     */
+    static synchronized void acquire(Context context) {
+        if (lock != null && !lock.isHeld()) {
+            settle(context, "timeout", TIMEOUT_MS);
+        }
+        if (lock == null) {
+            PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            if (pm == null) return;
+            lock = pm.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, LOCK_TAG);
+            lock.setReferenceCounted(false);
+            acquiredAt = SystemClock.elapsedRealtime();
+        }
+        lock.acquire(TIMEOUT_MS);
+    }
+
+    /**
+     * Release the lock if this process holds it; a no-op otherwise, so callers on
+     * paths that may not have started from an alarm can call it unconditionally.
+     *
+     * @param outcome why the alarm path is done, e.g. "playing", "silent", "disabled"
+     */
+    static synchronized void release(Context context, String outcome) {
+        if (lock == null) return;
+        if (lock.isHeld()) {
+            lock.release();
+            settle(context, outcome, SystemClock.elapsedRealtime() - acquiredAt);
+        } else {
+            settle(context, "timeout", TIMEOUT_MS);
+        }
+    }
+
+    private static void settle(Context context, String outcome, long heldMs) {
+        lock = null;
+        Log.d(TAG, "Wake lock released after " + heldMs + "ms (" + outcome + ")");
+        AlarmTelemetry telemetry = AlarmTelemetry.get(context);
+        telemetry.record(HISTOGRAM, heldMs);
+        telemetry.count("wakelock." + outcome);
+    }
+}
@@ -0,0 +1,38 @@
+package com.theaark.wakt;
+
+/**
+ * Proleptic Gregorian date <-> epoch day (days since 1970-01-01) without
+ * java.time, which needs API 26.
+ */
+public final class CivilDate {
+
+    private CivilDate() {}
+
+    /**
+     * Days since 1970-01-01 for a proleptic Gregorian date (month 1-12)
+     */
+    static long epochDayOf(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * {year, month (1-12), day} for days since 1970-01-01
+     */
+    static int[] civilFromEpochDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (month <= 2 ? 1 : 0));
+        return new int[]{year, month, day};
+    }
+}
@@ -17,6 +17,17 @@ import android.util.Log;
 @CapacitorPlugin(name = "QiblaCompass")
 public class CompassQiblaPlugin extends Plugin {
     private static final String TAG = "CompassQiblaPlugin";
+    private static final String STREAM_NAME = "qiblaCompass";
+    // [heading, qibla, isFacingQibla (0/1)]
+    private static final int STREAM_FIELDS = 3;
+
+    private volatile NativeStream stream;
+
+    /**
+     * With {@code stream: true}, updates go over a NativeStream named
+     * "qiblaCompass" instead of headingChange/qiblaChange events when the
+     * WebView supports it; the result's {@code stream} says whether it did.
+     */
     @PluginMethod
     public void startListening(PluginCall call) {
         Activity baseActivity = getActivity();
@@ -25,39 +36,59 @@ public class CompassQiblaPlugin extends Plugin {
             return;
         }
         AppCompatActivity activity = (AppCompatActivity) baseActivity;
+        boolean wantStream = Boolean.TRUE.equals(call.getBoolean("stream", false));
 
-        new CompassQibla.Builder(activity)
-            .onDirectionChangeListener(qiblaDirection -> {
-                JSObject data = new JSObject();
-                float heading = qiblaDirection.getCompassAngle();
-                float qibla = qiblaDirection.getNeedleAngle();
-                boolean isFacing = qiblaDirection.isFacingQibla();
-                
-                Log.d(TAG, "Qibla Update: heading=" + heading + ", qibla=" + qibla + ", isFacingQibla=" + isFacing);
-                
-                data.put("heading", heading);
-                data.put("qibla", qibla);
-                data.put("isFacingQibla", isFacing);
-                notifyListeners("headingChange", data);
-                notifyListeners("qiblaChange", data);
-                return Unit.INSTANCE; // Kotlin Unit required
-            })
-            .build();
+        activity.runOnUiThread(() -> {
+            closeStream();
+            if (wantStream) stream = NativeStream.open(getBridge(), STREAM_NAME, STREAM_FIELDS);
 
-        JSObject result = new JSObject();
-        result.put("started", true);
-        call.resolve(result);
+            new CompassQibla.Builder(activity)
+                .onDirectionChangeListener(qiblaDirection -> {
+                    float heading = qiblaDirection.getCompassAngle();
+                    float qibla = qiblaDirection.getNeedleAngle();
+                    boolean isFacing = qiblaDirection.isFacingQibla();
+
+                    NativeStream s = stream;
+                    if (s != null && s.offer(heading, qibla, isFacing ? 1f : 0f)) {
+                        return Unit.INSTANCE;
+                    }
+
+                    Log.d(TAG, "Qibla Update: heading=" + heading + ", qibla=" + qibla + ", isFacingQibla=" + isFacing);
+
+                    JSObject data = new JSObject();
+                    data.put("heading", heading);
+                    data.put("qibla", qibla);
+                    data.put("isFacingQibla", isFacing);
+                    notifyListeners("headingChange", data);
+                    notifyListeners("qiblaChange", data);
+                    return Unit.INSTANCE; // Kotlin Unit required
+                })
+                .build();
+
+            JSObject result = new JSObject();
+            result.put("started", true);
+            result.put("stream", stream != null);
+            call.resolve(result);
+        });
     }
 
     @PluginMethod
     public void stopListening(PluginCall call) {
+        closeStream();
         JSObject result = new JSObject();
         result.put("stopped", true);
         call.resolve(result);
     }
 
+    private void closeStream() {
+        NativeStream s = stream;
+        stream = null;
+        if (s != null) s.close();
+    }
+
     @Override
     protected void handleOnDestroy() {
         super.handleOnDestroy();
+        closeStream();
     }
 }
@@ -0,0 +1,141 @@
+package com.theaark.wakt;
+
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Receives bridge measurements from diagnosticsService.ts (PluginProfiler) and
+ * exposes them, optionally together with AlarmTelemetry, as JSON or as a
+ * text file in the app's external files directory, where
+ * {@code adb pull} can reach it.
+ */
+@CapacitorPlugin(name = "Diagnostics")
+public class DiagnosticsPlugin extends Plugin {
+
+    private static final String TAG = "DiagnosticsPlugin";
+    private static final String FILE_NAME = "bridge_profile.txt";
+
+    /**
+     * {calls: [{key, calls, errors, totalMs, maxMs, requestBytes, responseBytes, histogram}],
+     *  events: [{key, count, bytes, maxPerSecond}]}, each a delta since the last report
+     */
+    @PluginMethod
+    public void report(PluginCall call) {
+        PluginProfiler profiler = PluginProfiler.get();
+        JSONArray calls = call.getArray("calls", new JSArray());
+        for (int i = 0; i < calls.length(); i++) {
+            JSONObject c = calls.optJSONObject(i);
+            if (c == null) continue;
+            JSONArray buckets = c.optJSONArray("histogram");
+            long[] histogram = null;
+            if (buckets != null) {
+                histogram = new long[buckets.length()];
+                for (int b = 0; b < histogram.length; b++) histogram[b] = buckets.optLong(b);
+            }
+            profiler.addCalls(c.optString("key"), c.optLong("calls"), c.optLong("errors"),
+                    c.optLong("totalMs"), c.optLong("maxMs"), c.optLong("requestBytes"),
+                    c.optLong("responseBytes"), histogram);
+        }
+        JSONArray events = call.getArray("events", new JSArray());
+        for (int i = 0; i < events.length(); i++) {
+            JSONObject e = events.optJSONObject(i);
+            if (e == null) continue;
+            profiler.addEvents(e.optString("key"), e.optLong("count"), e.optLong("bytes"),
+                    e.optLong("maxPerSecond"));
+        }
+        call.resolve();
+    }
+
+    /**
+     * {alarms?: boolean}. Resolves {windowMs, calls, events, alarms?}
+     */
+    @PluginMethod
+    public void getStats(PluginCall call) {
+        PluginProfiler profiler = PluginProfiler.get();
+        JSObject ret = new JSObject();
+        ret.put("windowMs", profiler.windowMillis());
+
+        JSArray calls = new JSArray();
+        for (Map.Entry<String, PluginProfiler.MethodStats> e : profiler.methods().entrySet()) {
+            PluginProfiler.MethodStats s = e.getValue();
+            JSObject item = new JSObject();
+            item.put("key", e.getKey());
+            item.put("calls", s.calls);
+            item.put("errors", s.errors);
+            item.put("meanMs", s.meanMs());
+            item.put("p50Ms", s.percentileMs(0.5));
+            item.put("p95Ms", s.percentileMs(0.95));
+            item.put("maxMs", s.maxMs);
+            item.put("requestBytes", s.requestBytes);
+            item.put("responseBytes", s.responseBytes);
+            JSArray histogram = new JSArray();
+            for (long count : s.histogram) histogram.put(count);
+            item.put("histogram", histogram);
+            calls.put(item);
+        }
+        ret.put("calls", calls);
+
+        JSArray events = new JSArray();
+        for (Map.Entry<String, PluginProfiler.EventStats> e : profiler.events().entrySet()) {
+            PluginProfiler.EventStats s = e.getValue();
+            JSObject item = new JSObject();
+            item.put("key", e.getKey());
+            item.put("count", s.count);
+            item.put("bytes", s.bytes);
+            item.put("maxPerSecond", s.maxPerSecond);
+            events.put(item);
+        }
+        ret.put("events", events);
+
+        if (call.getBoolean("alarms", false)) {
+            ret.put("alarms", AlarmTelemetry.get(getContext()).dump());
+        }
+        call.resolve(ret);
+    }
+
+    /**
+     * {alarms?: boolean}. Writes the text summary and resolves {path}
+     */
+    @PluginMethod
+    public void dump(PluginCall call) {
+        StringBuilder text = new StringBuilder(PluginProfiler.get().dump());
+        if (call.getBoolean("alarms", false)) {
+            text.append('\n').append(AlarmTelemetry.get(getContext()).dump());
+        }
+
+        File dir = getContext().getExternalFilesDir(null);
+        if (dir == null) dir = getContext().getFilesDir();
+        File file = new File(dir, FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to write " + file, e);
+            call.reject("Failed to write diagnostics", e);
+            return;
+        }
+        Log.i(TAG, text.toString());
+        JSObject ret = new JSObject();
+        ret.put("path", file.getAbsolutePath());
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void reset(PluginCall call) {
+        PluginProfiler.get().clear();
+        call.resolve();
+    }
+}
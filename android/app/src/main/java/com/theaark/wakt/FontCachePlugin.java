@@ -0,0 +1,55 @@
+package com.theaark.wakt;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downloads web fonts to disk for FontWebViewClient to serve. The page links
+ * {@code FontStore.PATH_PREFIX + FontStore.STYLESHEET} once fonts are cached.
+ */
+@CapacitorPlugin(name = "FontCache")
+public class FontCachePlugin extends Plugin {
+
+    // Downloads take seconds on a slow network; they must not hold up the
+    // plugin thread every other plugin's calls are queued on
+    private static final ExecutorService DOWNLOADS = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "FontCache");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    @PluginMethod
+    public void getStatus(PluginCall call) {
+        call.resolve(status());
+    }
+
+    /**
+     * Download fonts unless a fresh copy is on disk ({force?}). The download
+     * runs on its own thread and resolves from there, so neither the WebView
+     * thread nor the shared plugin thread waits on the network.
+     */
+    @PluginMethod
+    public void cacheFonts(PluginCall call) {
+        boolean force = Boolean.TRUE.equals(call.getBoolean("force", false));
+        DOWNLOADS.execute(() -> {
+            if (force || !FontStore.isFresh(getContext())) {
+                FontStore.download(getContext());
+            }
+            call.resolve(status());
+        });
+    }
+
+    private JSObject status() {
+        JSObject ret = new JSObject();
+        ret.put("cached", FontStore.isCached(getContext()));
+        ret.put("fresh", FontStore.isFresh(getContext()));
+        ret.put("stylesheet", FontStore.PATH_PREFIX + FontStore.STYLESHEET);
+        return ret;
+    }
+}
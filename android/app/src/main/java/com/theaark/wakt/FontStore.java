@@ -0,0 +1,206 @@
+package com.theaark.wakt;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.webkit.WebResourceResponse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Web fonts cached as plain files under filesDir/fonts and served to the
+ * WebView at {@link #PATH_PREFIX} by {@link FontWebViewClient}.
+ *
+ * The stylesheet is Google Fonts' CSS with every font url() rewritten to a
+ * local path, so the page only links one small stylesheet and the WebView
+ * streams each font file straight from disk when it is first used.
+ */
+public final class FontStore {
+
+    private static final String TAG = "FontStore";
+    public static final String PATH_PREFIX = "/_wakt/fonts/";
+    public static final String STYLESHEET = "fonts.css";
+    private static final String DIR = "fonts";
+    private static final String SOURCE_CSS =
+            "https://fonts.googleapis.com/css2?family=Montserrat:wght@300;400;500;600;700&display=swap";
+    // Google Fonts picks the font format from the user agent; ask for woff2
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Linux; Android 14) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0 Mobile Safari/537.36";
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+    private static final Pattern FONT_URL = Pattern.compile("url\\((['\"]?)(https://[^)'\"]+)\\1\\)");
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private FontStore() {}
+
+    private static File dir(Context context) {
+        return new File(context.getFilesDir(), DIR);
+    }
+
+    public static boolean isCached(Context context) {
+        return new File(dir(context), STYLESHEET).isFile();
+    }
+
+    public static boolean isFresh(Context context) {
+        File css = new File(dir(context), STYLESHEET);
+        return css.isFile() && System.currentTimeMillis() - css.lastModified() < MAX_AGE_MS;
+    }
+
+    /**
+     * Download the stylesheet and its fonts, rewriting font URLs to local paths.
+     * Blocking; call from a background thread. Existing files are reused, and the
+     * stylesheet is only replaced once every font it references is on disk.
+     */
+    public static synchronized boolean download(Context context) {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .build();
+        File dir = dir(context);
+        if (!dir.isDirectory() && !dir.mkdirs()) return false;
+
+        try {
+            String css = fetchText(client, SOURCE_CSS);
+            Matcher m = FONT_URL.matcher(css);
+            Map<String, String> local = new HashMap<>();
+            StringBuffer rewritten = new StringBuffer(css.length());
+            while (m.find()) {
+                String url = m.group(2);
+                String name = local.get(url);
+                if (name == null) {
+                    name = fileName(url);
+                    File file = new File(dir, name);
+                    if (!file.isFile()) {
+                        fetchFile(client, url, file);
+                    }
+                    local.put(url, name);
+                }
+                m.appendReplacement(rewritten, Matcher.quoteReplacement("url('" + PATH_PREFIX + name + "')"));
+            }
+            m.appendTail(rewritten);
+            if (local.isEmpty()) {
+                Log.w(TAG, "No font URLs in stylesheet");
+                return false;
+            }
+            writeAtomically(new File(dir, STYLESHEET), rewritten.toString().getBytes(StandardCharsets.UTF_8));
+            Log.d(TAG, "Cached " + local.size() + " font files");
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "Font download failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Response for a request path under {@link #PATH_PREFIX}. The file is handed to
+     * the WebView as a stream, so nothing is copied into the JS heap. Returns a 404
+     * response when the file is not cached, so the page falls back to local fonts.
+     */
+    public static WebResourceResponse respond(Context context, String path) {
+        String name = path.substring(PATH_PREFIX.length());
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Access-Control-Allow-Origin", "*");
+        File file = new File(dir(context), name);
+        if (!SAFE_NAME.matcher(name).matches() || !file.isFile()) {
+            headers.put("Cache-Control", "no-store");
+            return new WebResourceResponse("text/plain", "utf-8", 404, "Not Found", headers, null);
+        }
+
+        InputStream in;
+        try {
+            in = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return new WebResourceResponse("text/plain", "utf-8", 404, "Not Found", headers, null);
+        }
+        headers.put("Content-Length", String.valueOf(file.length()));
+        if (STYLESHEET.equals(name)) {
+            // The stylesheet is rewritten when the cache refreshes
+            headers.put("Cache-Control", "no-cache");
+            return new WebResourceResponse("text/css", "utf-8", 200, "OK", headers, in);
+        }
+        // Font file names come from Google's content-addressed URLs and never change
+        headers.put("Cache-Control", "public, max-age=31536000, immutable");
+        return new WebResourceResponse(mimeType(name), null, 200, "OK", headers, in);
+    }
+
+    private static String mimeType(String name) {
+        if (name.endsWith(".woff2")) return "font/woff2";
+        if (name.endsWith(".woff")) return "font/woff";
+        if (name.endsWith(".ttf")) return "font/ttf";
+        if (name.endsWith(".otf")) return "font/otf";
+        return "application/octet-stream";
+    }
+
+    /**
+     * Local file name for a font URL: the last path segment, prefixed with a hash of
+     * the directory so files from different families cannot collide.
+     */
+    static String fileName(String url) {
+        int slash = url.lastIndexOf('/');
+        String last = url.substring(slash + 1).replaceAll("[^A-Za-z0-9._-]", "_");
+        return Integer.toHexString(url.substring(0, slash).hashCode()) + "-" + last;
+    }
+
+    private static String fetchText(OkHttpClient client, String url) throws IOException {
+        try (Response response = client.newCall(request(url)).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " for " + url);
+            }
+            return body.string();
+        }
+    }
+
+    private static void fetchFile(OkHttpClient client, String url, File target) throws IOException {
+        try (Response response = client.newCall(request(url)).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " for " + url);
+            }
+            AtomicFile file = new AtomicFile(target);
+            FileOutputStream out = file.startWrite();
+            try (InputStream in = body.byteStream()) {
+                byte[] chunk = new byte[16 * 1024];
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    out.write(chunk, 0, n);
+                }
+                file.finishWrite(out);
+            } catch (IOException e) {
+                file.failWrite(out);
+                throw e;
+            }
+        }
+    }
+
+    private static void writeAtomically(File target, byte[] data) throws IOException {
+        AtomicFile file = new AtomicFile(target);
+        FileOutputStream out = file.startWrite();
+        try {
+            out.write(data);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            file.failWrite(out);
+            throw e;
+        }
+    }
+
+    private static Request request(String url) {
+        return new Request.Builder().url(url).header("User-Agent", USER_AGENT).get().build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.theaark.wakt;
+
+import android.net.Uri;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+
+/**
+ * Bridge WebView client that serves cached fonts from disk (see FontStore) and
+ * leaves every other request to Capacitor's local server.
+ */
+public class FontWebViewClient extends BridgeWebViewClient {
+
+    private final Bridge bridge;
+
+    public FontWebViewClient(Bridge bridge) {
+        super(bridge);
+        this.bridge = bridge;
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        Uri url = request.getUrl();
+        String path = url.getPath();
+        if (path != null && path.startsWith(FontStore.PATH_PREFIX) && isAppHost(url)) {
+            return FontStore.respond(bridge.getContext(), path);
+        }
+        return super.shouldInterceptRequest(view, request);
+    }
+
+    private boolean isAppHost(Uri url) {
+        Uri app = Uri.parse(bridge.getAppUrl());
+        return url.getHost() != null && url.getHost().equals(app.getHost());
+    }
+}
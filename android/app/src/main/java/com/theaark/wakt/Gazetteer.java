@@ -0,0 +1,294 @@
+package com.theaark.wakt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Read-only city gazetteer over a (memory-mapped) binary file produced by
+ * scripts/build_gazetteer.py.
+ *
+ * Layout (big-endian, version 1):
+ * <pre>
+ *   0  magic "WGAZ"
+ *   4  u8  version, u8 grid cell size in degrees, u16 reserved
+ *   8  u32 city count
+ *  12  u32 name index count
+ *  16  u16 time zone count
+ *  18  u16 country count
+ *  20  u32 string pool size
+ *  24  time zones: u32 string offset each
+ *      countries:  2 bytes ISO code, u32 name string offset
+ *      grid:       (rows * cols + 1) x u32 first city of each cell
+ *      cities:     i32 lat e5, i32 lng e5, u32 name offset, u32 population,
+ *                  u16 time zone, u16 country (sorted by grid cell)
+ *      names:      u32 key offset, u32 city (sorted by key bytes)
+ *      strings:    u8 length + UTF-8 bytes
+ * </pre>
+ * Name keys are folded with {@link #normalize}, so search is case and accent
+ * insensitive and a prefix lookup is a binary search over the name table.
+ * Nearest-city lookup walks grid cells outward from the query point.
+ *
+ * Pure Java so it can be exercised in JVM tests with an in-memory buffer.
+ */
+public final class Gazetteer {
+
+    public static final class Place {
+        public final String name;
+        public final String country;
+        public final String countryCode;
+        public final String timezone;
+        public final double latitude;
+        public final double longitude;
+        public final long population;
+        // Only set by nearest()
+        public final double distanceKm;
+
+        Place(String name, String country, String countryCode, String timezone,
+              double latitude, double longitude, long population, double distanceKm) {
+            this.name = name;
+            this.country = country;
+            this.countryCode = countryCode;
+            this.timezone = timezone;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.population = population;
+            this.distanceKm = distanceKm;
+        }
+    }
+
+    private static final byte[] MAGIC = {'W', 'G', 'A', 'Z'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int COUNTRY_SIZE = 6;
+    private static final int CITY_SIZE = 20;
+    private static final int NAME_SIZE = 8;
+    // Candidate names scanned per prefix before ranking by population
+    private static final int MAX_CANDIDATES = 512;
+    private static final int MAX_RINGS = 8;
+    private static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final ByteBuffer buf;
+    private final int cityCount;
+    private final int nameCount;
+    private final int cellDegrees;
+    private final int rows;
+    private final int cols;
+    private final int tzOffset;
+    private final int countryOffset;
+    private final int gridOffset;
+    private final int cityOffset;
+    private final int nameOffset;
+    private final int stringOffset;
+
+    private Gazetteer(ByteBuffer buf) {
+        this.buf = buf.duplicate().order(ByteOrder.BIG_ENDIAN);
+        cellDegrees = this.buf.get(5) & 0xFF;
+        cityCount = this.buf.getInt(8);
+        nameCount = this.buf.getInt(12);
+        int tzCount = this.buf.getShort(16) & 0xFFFF;
+        int countryCount = this.buf.getShort(18) & 0xFFFF;
+        rows = 180 / cellDegrees;
+        cols = 360 / cellDegrees;
+
+        tzOffset = HEADER_SIZE;
+        countryOffset = tzOffset + tzCount * 4;
+        gridOffset = countryOffset + countryCount * COUNTRY_SIZE;
+        cityOffset = gridOffset + (rows * cols + 1) * 4;
+        nameOffset = cityOffset + cityCount * CITY_SIZE;
+        stringOffset = nameOffset + nameCount * NAME_SIZE;
+    }
+
+    /**
+     * Wrap a gazetteer file, or return null if the header does not match.
+     */
+    public static Gazetteer open(ByteBuffer buf) {
+        if (buf == null || buf.capacity() < HEADER_SIZE) return null;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buf.get(i) != MAGIC[i]) return null;
+        }
+        int cell = buf.get(5) & 0xFF;
+        if ((buf.get(4) & 0xFF) != VERSION || cell == 0 || 180 % cell != 0) return null;
+        Gazetteer g = new Gazetteer(buf);
+        long expected = (long) g.stringOffset + g.buf.getInt(20);
+        return expected <= buf.capacity() ? g : null;
+    }
+
+    public int size() {
+        return cityCount;
+    }
+
+    /**
+     * Lowercase, strip accents and collapse punctuation/whitespace to single spaces.
+     * Must match normalize() in scripts/build_gazetteer.py.
+     */
+    public static String normalize(String s) {
+        String folded = Normalizer.normalize(s, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+        StringBuilder out = new StringBuilder(folded.length());
+        boolean space = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (space && out.length() > 0) out.append(' ');
+                out.append(c);
+                space = false;
+            } else {
+                space = true;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Cities whose name (or alternate name) starts with the query, most populous first.
+     */
+    public List<Place> search(String query, int limit) {
+        String key = normalize(query);
+        if (key.isEmpty() || limit <= 0) return Collections.emptyList();
+        byte[] prefix = key.getBytes(StandardCharsets.UTF_8);
+
+        // Lower bound of the prefix in the sorted name table
+        int lo = 0;
+        int hi = nameCount;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareKey(mid, prefix) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        Set<Integer> matched = new LinkedHashSet<>();
+        for (int i = lo; i < nameCount && matched.size() < MAX_CANDIDATES; i++) {
+            if (!keyStartsWith(i, prefix)) break;
+            matched.add(buf.getInt(nameOffset + i * NAME_SIZE + 4));
+        }
+        List<Integer> cities = new ArrayList<>(matched);
+        cities.sort((a, b) -> Long.compare(population(b), population(a)));
+
+        List<Place> out = new ArrayList<>(Math.min(limit, cities.size()));
+        for (int i = 0; i < cities.size() && out.size() < limit; i++) {
+            out.add(place(cities.get(i), -1));
+        }
+        return out;
+    }
+
+    /**
+     * Closest city to a point, or null if none lies within the searched grid rings.
+     */
+    public Place nearest(double latitude, double longitude) {
+        int row = clamp((int) Math.floor((latitude + 90) / cellDegrees), 0, rows - 1);
+        int col = Math.floorMod((int) Math.floor((longitude + 180) / cellDegrees), cols);
+
+        int best = -1;
+        double bestKm = Double.MAX_VALUE;
+        int foundRing = -1;
+        for (int ring = 0; ring <= MAX_RINGS; ring++) {
+            // One extra ring after the first hit covers neighbours closer than the hit
+            if (foundRing >= 0 && ring > foundRing + 1) break;
+            for (int r = row - ring; r <= row + ring; r++) {
+                if (r < 0 || r >= rows) continue;
+                for (int c = col - ring; c <= col + ring; c++) {
+                    boolean edge = r == row - ring || r == row + ring || c == col - ring || c == col + ring;
+                    if (!edge) continue;
+                    int cell = r * cols + Math.floorMod(c, cols);
+                    int start = buf.getInt(gridOffset + cell * 4);
+                    int end = buf.getInt(gridOffset + (cell + 1) * 4);
+                    for (int i = start; i < end; i++) {
+                        double km = distanceKm(latitude, longitude, lat(i), lng(i));
+                        if (km < bestKm) {
+                            bestKm = km;
+                            best = i;
+                        }
+                    }
+                }
+            }
+            if (best >= 0 && foundRing < 0) foundRing = ring;
+        }
+        return best >= 0 ? place(best, bestKm) : null;
+    }
+
+    // --- Records ---
+
+    private Place place(int city, double distanceKm) {
+        int base = cityOffset + city * CITY_SIZE;
+        int tz = buf.getShort(base + 16) & 0xFFFF;
+        int country = buf.getShort(base + 18) & 0xFFFF;
+        int countryBase = countryOffset + country * COUNTRY_SIZE;
+        String code = new String(new char[]{(char) buf.get(countryBase), (char) buf.get(countryBase + 1)});
+        return new Place(
+                string(buf.getInt(base + 8)),
+                string(buf.getInt(countryBase + 2)),
+                code,
+                string(buf.getInt(tzOffset + tz * 4)),
+                lat(city),
+                lng(city),
+                population(city),
+                distanceKm
+        );
+    }
+
+    private double lat(int city) {
+        return buf.getInt(cityOffset + city * CITY_SIZE) / 1e5;
+    }
+
+    private double lng(int city) {
+        return buf.getInt(cityOffset + city * CITY_SIZE + 4) / 1e5;
+    }
+
+    private long population(int city) {
+        return buf.getInt(cityOffset + city * CITY_SIZE + 12) & 0xFFFFFFFFL;
+    }
+
+    private String string(int offset) {
+        int pos = stringOffset + offset;
+        int len = buf.get(pos) & 0xFF;
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = buf.get(pos + 1 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Unsigned byte comparison of name key i against a prefix, truncated to the prefix length.
+     */
+    private int compareKey(int i, byte[] prefix) {
+        int pos = stringOffset + buf.getInt(nameOffset + i * NAME_SIZE);
+        int len = buf.get(pos) & 0xFF;
+        int n = Math.min(len, prefix.length);
+        for (int k = 0; k < n; k++) {
+            int a = buf.get(pos + 1 + k) & 0xFF;
+            int b = prefix[k] & 0xFF;
+            if (a != b) return a - b;
+        }
+        return len < prefix.length ? -1 : 0;
+    }
+
+    private boolean keyStartsWith(int i, byte[] prefix) {
+        return compareKey(i, prefix) == 0;
+    }
+
+    static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return Math.max(min, Math.min(max, v));
+    }
+}
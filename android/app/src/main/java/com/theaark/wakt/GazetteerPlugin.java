@@ -0,0 +1,148 @@
+package com.theaark.wakt;
+
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Offline city search and reverse geocoding backed by the bundled
+ * gazetteer.bin asset (see Gazetteer), generated by the buildGazetteer task
+ * in build.gradle. The asset is stored uncompressed (noCompress) so it can be
+ * memory-mapped straight from the APK. Builds without -PwaktGazetteer=true
+ * ship no asset; calls then reject and the web layer uses Nominatim instead.
+ */
+@CapacitorPlugin(name = "Gazetteer")
+public class GazetteerPlugin extends Plugin {
+
+    private static final String TAG = "GazetteerPlugin";
+    private static final String ASSET = "gazetteer.bin";
+    private static final int DEFAULT_LIMIT = 8;
+    // Beyond this the nearest city is not a meaningful label for the location
+    private static final double MAX_REVERSE_KM = 75;
+
+    // The asset is mapped on first use, not at startup
+    private Gazetteer gazetteer;
+    private boolean loadAttempted = false;
+
+    private synchronized Gazetteer gazetteer() {
+        if (!loadAttempted) {
+            loadAttempted = true;
+            long start = System.nanoTime();
+            gazetteer = Gazetteer.open(mapAsset());
+            if (gazetteer != null) {
+                Log.d(TAG, "Loaded " + gazetteer.size() + " cities in "
+                        + (System.nanoTime() - start) / 1_000_000 + "ms");
+            } else {
+                Log.w(TAG, ASSET + " missing or invalid; offline search disabled");
+            }
+        }
+        return gazetteer;
+    }
+
+    private ByteBuffer mapAsset() {
+        try (AssetFileDescriptor fd = getContext().getAssets().openFd(ASSET);
+             FileInputStream in = fd.createInputStream()) {
+            return in.getChannel().map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+        } catch (IOException e) {
+            // openFd fails for compressed assets; fall back to reading into memory
+        }
+        try (InputStream in = getContext().getAssets().open(ASSET)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(chunk)) > 0) {
+                out.write(chunk, 0, n);
+            }
+            return ByteBuffer.wrap(out.toByteArray());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @PluginMethod
+    public void isAvailable(PluginCall call) {
+        Gazetteer g = gazetteer();
+        JSObject ret = new JSObject();
+        ret.put("available", g != null);
+        ret.put("cities", g != null ? g.size() : 0);
+        call.resolve(ret);
+    }
+
+    /**
+     * Prefix search by city name ({query, limit?}), most populous first
+     */
+    @PluginMethod
+    public void search(PluginCall call) {
+        String query = call.getString("query");
+        if (query == null) {
+            call.reject("Missing required parameters");
+            return;
+        }
+        Gazetteer g = gazetteer();
+        if (g == null) {
+            call.reject("Gazetteer unavailable");
+            return;
+        }
+
+        List<Gazetteer.Place> places = g.search(query, call.getInt("limit", DEFAULT_LIMIT));
+        JSArray results = new JSArray();
+        for (Gazetteer.Place place : places) {
+            results.put(toJs(place));
+        }
+        JSObject ret = new JSObject();
+        ret.put("results", results);
+        call.resolve(ret);
+    }
+
+    /**
+     * Nearest city to {latitude, longitude}; resolves {} when nothing is close
+     */
+    @PluginMethod
+    public void reverse(PluginCall call) {
+        Double latitude = call.getDouble("latitude");
+        Double longitude = call.getDouble("longitude");
+        if (latitude == null || longitude == null) {
+            call.reject("Missing required parameters");
+            return;
+        }
+        Gazetteer g = gazetteer();
+        if (g == null) {
+            call.reject("Gazetteer unavailable");
+            return;
+        }
+
+        Gazetteer.Place place = g.nearest(latitude, longitude);
+        if (place == null || place.distanceKm > MAX_REVERSE_KM) {
+            call.resolve(new JSObject());
+            return;
+        }
+        JSObject ret = toJs(place);
+        ret.put("distanceKm", place.distanceKm);
+        call.resolve(ret);
+    }
+
+    private static JSObject toJs(Gazetteer.Place place) {
+        JSObject obj = new JSObject();
+        obj.put("city", place.name);
+        obj.put("country", place.country);
+        obj.put("countryCode", place.countryCode);
+        obj.put("timezone", place.timezone);
+        obj.put("latitude", place.latitude);
+        obj.put("longitude", place.longitude);
+        return obj;
+    }
+}
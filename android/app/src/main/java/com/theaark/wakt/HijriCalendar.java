@@ -0,0 +1,164 @@
+package com.theaark.wakt;
+
+import android.icu.util.IslamicCalendar;
+import android.icu.util.TimeZone;
+
+/**
+ * Offline Gregorian <-> Hijri conversion.
+ *
+ * UMM_AL_QURA uses ICU's table-driven Umm al-Qura calendar (1300-1600 AH,
+ * ICU falls back to the civil rule outside that range). TABULAR is the
+ * arithmetic civil calendar (30-year cycle, Friday epoch), computed directly.
+ *
+ * Dates are exchanged as epoch days (days since 1970-01-01) so callers never
+ * deal with time zones. A user day offset is applied by the caller/plugin as
+ * a shift of the Gregorian epoch day.
+ */
+public final class HijriCalendar {
+
+    public enum Method {
+        UMM_AL_QURA("ummAlQura"),
+        TABULAR("tabular");
+
+        public final String key;
+
+        Method(String key) {
+            this.key = key;
+        }
+
+        public static Method fromKey(String key) {
+            return TABULAR.key.equals(key) ? TABULAR : UMM_AL_QURA;
+        }
+    }
+
+    public static final String[] MONTH_NAMES = {
+            "Muharram",
+            "Safar",
+            "Rabi al-Awwal",
+            "Rabi al-Thani",
+            "Jumada al-Awwal",
+            "Jumada al-Thani",
+            "Rajab",
+            "Sha'ban",
+            "Ramadan",
+            "Shawwal",
+            "Dhu al-Qi'dah",
+            "Dhu al-Hijjah"
+    };
+
+    // Julian day number of 1970-01-01 and of 1 Muharram 1 AH (civil epoch).
+    private static final long JDN_UNIX_EPOCH = 2440588L;
+    private static final long JDN_HIJRI_EPOCH = 1948440L;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private static IslamicCalendar umalqura;
+
+    // Last month resolved via ICU; month grids and "today" hit the same month repeatedly.
+    private static int cachedYear = -1;
+    private static int cachedMonth = -1;
+    private static long cachedStart;
+    private static int cachedLength;
+
+    private HijriCalendar() {}
+
+    /**
+     * Convert a Gregorian epoch day to {year, month (1-12), day, daysInMonth}.
+     */
+    public static int[] fromEpochDay(long epochDay, Method method) {
+        if (method == Method.TABULAR) {
+            return tabularFromJdn(epochDay + JDN_UNIX_EPOCH);
+        }
+        synchronized (HijriCalendar.class) {
+            IslamicCalendar cal = calendar();
+            cal.setTimeInMillis(epochDay * MILLIS_PER_DAY + MILLIS_PER_DAY / 2);
+            int year = cal.get(IslamicCalendar.YEAR);
+            int month = cal.get(IslamicCalendar.MONTH) + 1;
+            int day = cal.get(IslamicCalendar.DAY_OF_MONTH);
+            return new int[]{year, month, day, monthLengthLocked(year, month)};
+        }
+    }
+
+    /**
+     * Gregorian epoch day of the 1st of a Hijri month.
+     */
+    public static long monthStartEpochDay(int year, int month, Method method) {
+        if (method == Method.TABULAR) {
+            return tabularToJdn(year, month, 1) - JDN_UNIX_EPOCH;
+        }
+        synchronized (HijriCalendar.class) {
+            resolveMonthLocked(year, month);
+            return cachedStart;
+        }
+    }
+
+    /**
+     * Number of days (29 or 30) in a Hijri month.
+     */
+    public static int monthLength(int year, int month, Method method) {
+        if (method == Method.TABULAR) {
+            return tabularMonthLength(year, month);
+        }
+        synchronized (HijriCalendar.class) {
+            return monthLengthLocked(year, month);
+        }
+    }
+
+    public static String monthName(int month) {
+        return MONTH_NAMES[Math.max(1, Math.min(12, month)) - 1];
+    }
+
+    // --- Umm al-Qura (ICU) ---
+
+    private static IslamicCalendar calendar() {
+        if (umalqura == null) {
+            umalqura = new IslamicCalendar(TimeZone.GMT_ZONE);
+            umalqura.setCalculationType(IslamicCalendar.CalculationType.ISLAMIC_UMALQURA);
+        }
+        return umalqura;
+    }
+
+    private static int monthLengthLocked(int year, int month) {
+        resolveMonthLocked(year, month);
+        return cachedLength;
+    }
+
+    private static void resolveMonthLocked(int year, int month) {
+        if (year == cachedYear && month == cachedMonth) return;
+        IslamicCalendar cal = calendar();
+        cal.clear();
+        cal.set(IslamicCalendar.YEAR, year);
+        cal.set(IslamicCalendar.MONTH, month - 1);
+        cal.set(IslamicCalendar.DAY_OF_MONTH, 1);
+        long start = Math.floorDiv(cal.getTimeInMillis(), MILLIS_PER_DAY);
+        int length = cal.getActualMaximum(IslamicCalendar.DAY_OF_MONTH);
+        cachedYear = year;
+        cachedMonth = month;
+        cachedStart = start;
+        cachedLength = length;
+    }
+
+    // --- Tabular (civil) calendar ---
+
+    static long tabularToJdn(int year, int month, int day) {
+        return day
+                + (long) Math.ceil(29.5 * (month - 1))
+                + (year - 1) * 354L
+                + Math.floorDiv(3 + 11L * year, 30)
+                + JDN_HIJRI_EPOCH - 1;
+    }
+
+    static int[] tabularFromJdn(long jdn) {
+        int year = (int) Math.floorDiv(30 * (jdn - JDN_HIJRI_EPOCH) + 10646, 10631);
+        long firstOfYear = tabularToJdn(year, 1, 1);
+        int month = (int) Math.min(12, Math.ceil((jdn - (29 + firstOfYear)) / 29.5) + 1);
+        int day = (int) (jdn - tabularToJdn(year, month, 1) + 1);
+        return new int[]{year, month, day, tabularMonthLength(year, month)};
+    }
+
+    static int tabularMonthLength(int year, int month) {
+        if (month < 12) {
+            return (int) (tabularToJdn(year, month + 1, 1) - tabularToJdn(year, month, 1));
+        }
+        return (int) (tabularToJdn(year + 1, 1, 1) - tabularToJdn(year, 12, 1));
+    }
+}
@@ -0,0 +1,144 @@
+package com.theaark.wakt;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+import java.util.Calendar;
+
+/**
+ * Offline Hijri calendar for the JS layer.
+ * Replaces the Aladhan API fetches: conversions are computed on demand by
+ * HijriCalendar, and a whole month is returned as one compact record that JS
+ * expands locally.
+ */
+@CapacitorPlugin(name = "HijriCalendar")
+public class HijriCalendarPlugin extends Plugin {
+
+    static final String PREFS = "WaktHijri";
+    static final String KEY_DAY_OFFSET = "dayOffset";
+    static final String KEY_METHOD = "method";
+    private static final int MAX_OFFSET = 3;
+
+    /**
+     * Today's Hijri date in the device time zone, with the user offset applied
+     */
+    @PluginMethod
+    public void getToday(PluginCall call) {
+        SharedPreferences prefs = getContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        call.resolve(toJs(todayHijri(prefs)));
+    }
+
+    /**
+     * Convert a single Gregorian date ({year, month (1-12), day})
+     */
+    @PluginMethod
+    public void convert(PluginCall call) {
+        Integer year = call.getInt("year");
+        Integer month = call.getInt("month");
+        Integer day = call.getInt("day");
+        if (year == null || month == null || day == null) {
+            call.reject("Missing required parameters");
+            return;
+        }
+        SharedPreferences prefs = getContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        long epochDay = CivilDate.epochDayOf(year, month, day) + prefs.getInt(KEY_DAY_OFFSET, 0);
+        call.resolve(toJs(HijriCalendar.fromEpochDay(epochDay, method(prefs))));
+    }
+
+    /**
+     * Bulk conversion of a whole Hijri month ({year, month (1-12)}).
+     * Returns the month length and the Gregorian date/weekday of day 1;
+     * every following day maps to the next Gregorian day.
+     */
+    @PluginMethod
+    public void getMonth(PluginCall call) {
+        Integer year = call.getInt("year");
+        Integer month = call.getInt("month");
+        if (year == null || month == null || month < 1 || month > 12) {
+            call.reject("Missing required parameters");
+            return;
+        }
+        SharedPreferences prefs = getContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        HijriCalendar.Method method = method(prefs);
+        long start = HijriCalendar.monthStartEpochDay(year, month, method) - prefs.getInt(KEY_DAY_OFFSET, 0);
+        int[] g = CivilDate.civilFromEpochDay(start);
+
+        JSObject ret = new JSObject();
+        ret.put("year", year);
+        ret.put("month", month);
+        ret.put("monthName", HijriCalendar.monthName(month));
+        ret.put("daysInMonth", HijriCalendar.monthLength(year, month, method));
+        JSObject gregorian = new JSObject();
+        gregorian.put("year", g[0]);
+        gregorian.put("month", g[1]);
+        gregorian.put("day", g[2]);
+        // 0 = Sunday, matching JS Date.getDay()
+        gregorian.put("weekday", (int) Math.floorMod(start + 4, 7L));
+        ret.put("gregorianStart", gregorian);
+        call.resolve(ret);
+    }
+
+    /**
+     * Persist the calendar settings ({dayOffset?: -3..3, method?: 'ummAlQura' | 'tabular'})
+     */
+    @PluginMethod
+    public void setSettings(PluginCall call) {
+        SharedPreferences.Editor editor = getContext()
+                .getSharedPreferences(PREFS, Context.MODE_PRIVATE).edit();
+        Integer offset = call.getInt(KEY_DAY_OFFSET);
+        if (offset != null) {
+            editor.putInt(KEY_DAY_OFFSET, Math.max(-MAX_OFFSET, Math.min(MAX_OFFSET, offset)));
+        }
+        String method = call.getString(KEY_METHOD);
+        if (method != null) {
+            editor.putString(KEY_METHOD, HijriCalendar.Method.fromKey(method).key);
+        }
+        editor.apply();
+        // The widget and tile show the Hijri date; the refresh alarm is unaffected
+        PrayerGlance.refresh(getContext());
+        getSettings(call);
+    }
+
+    @PluginMethod
+    public void getSettings(PluginCall call) {
+        SharedPreferences prefs = getContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        JSObject ret = new JSObject();
+        ret.put(KEY_DAY_OFFSET, prefs.getInt(KEY_DAY_OFFSET, 0));
+        ret.put(KEY_METHOD, method(prefs).key);
+        call.resolve(ret);
+    }
+
+    /**
+     * Today's Hijri date {year, month, day, daysInMonth} using the stored settings.
+     * Shared with native surfaces that show the date without the WebView.
+     */
+    static int[] todayHijri(SharedPreferences prefs) {
+        Calendar now = Calendar.getInstance();
+        long epochDay = CivilDate.epochDayOf(
+                now.get(Calendar.YEAR),
+                now.get(Calendar.MONTH) + 1,
+                now.get(Calendar.DAY_OF_MONTH)
+        ) + prefs.getInt(KEY_DAY_OFFSET, 0);
+        return HijriCalendar.fromEpochDay(epochDay, method(prefs));
+    }
+
+    private static HijriCalendar.Method method(SharedPreferences prefs) {
+        return HijriCalendar.Method.fromKey(prefs.getString(KEY_METHOD, null));
+    }
+
+    private static JSObject toJs(int[] h) {
+        JSObject ret = new JSObject();
+        ret.put("year", h[0]);
+        ret.put("month", h[1]);
+        ret.put("day", h[2]);
+        ret.put("daysInMonth", h[3]);
+        ret.put("monthName", HijriCalendar.monthName(h[1]));
+        return ret;
+    }
+}
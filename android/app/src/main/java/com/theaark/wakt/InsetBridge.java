@@ -0,0 +1,169 @@
+package com.theaark.wakt;
+
+import android.content.res.Resources;
+import android.view.Choreographer;
+import android.view.View;
+import android.webkit.WebView;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeActivity;
+import com.getcapacitor.WebViewListener;
+
+/**
+ * Pushes system bar insets into the WebView as CSS variables
+ * (--android-system-top / --android-system-bottom), plus the navigation mode
+ * as a data-nav-mode attribute and an "androidinsetschange" window event.
+ *
+ * Insets dispatches arrive in bursts during rotation and IME animations, so
+ * values are cached and coalesced: at most one evaluateJavascript per frame,
+ * and only when the scaled values or the mode actually changed.
+ * Must be used from the main thread.
+ */
+public class InsetBridge implements Choreographer.FrameCallback {
+
+    // Use 40% of system bars for visual fit (124px * 0.4 = ~50px)
+    // This accounts for the fact that system bars include transparent padding
+    private static final float INSET_SCALE = 0.4f;
+
+    public static final String NAV_FULL_SCREEN = "full-screen";
+    public static final String NAV_GESTURE = "gesture";
+    public static final String NAV_TWO_BUTTON = "2-button";
+    public static final String NAV_THREE_BUTTON = "3-button";
+
+    // Values of the framework's config_navBarInteractionMode
+    private static final int INTERACTION_THREE_BUTTON = 0;
+    private static final int INTERACTION_TWO_BUTTON = 1;
+    private static final int INTERACTION_GESTURE = 2;
+
+    private final BridgeActivity activity;
+    private boolean installed = false;
+    private boolean frameScheduled = false;
+
+    private int pendingTop = 0;
+    private int pendingBottom = 0;
+    private int pushedTop = -1;
+    private int pushedBottom = -1;
+    private String pendingNavMode = NAV_FULL_SCREEN;
+    private String pushedNavMode = null;
+    private int interactionModeRes = -1;
+
+    public InsetBridge(BridgeActivity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * Install the insets listener once. Safe to call repeatedly.
+     */
+    public void install() {
+        if (installed) return;
+        installed = true;
+
+        View decor = activity.getWindow().getDecorView();
+        ViewCompat.setOnApplyWindowInsetsListener(decor, (v, insets) -> {
+            Insets bars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            onInsets(
+                    (int) (Math.max(0, bars.top) * INSET_SCALE),
+                    (int) (Math.max(0, bars.bottom) * INSET_SCALE),
+                    classify(insets)
+            );
+            return insets;
+        });
+
+        // A page (re)load drops the CSS variables we set, so push them again.
+        Bridge bridge = activity.getBridge();
+        if (bridge != null) {
+            bridge.addWebViewListener(new WebViewListener() {
+                @Override
+                public void onPageLoaded(WebView webView) {
+                    pushedTop = -1;
+                    pushedBottom = -1;
+                    pushedNavMode = null;
+                    scheduleFrame();
+                }
+            });
+        }
+        ViewCompat.requestApplyInsets(decor);
+    }
+
+    private void onInsets(int top, int bottom, String navMode) {
+        pendingTop = top;
+        pendingBottom = bottom;
+        pendingNavMode = navMode;
+        if (!isDirty()) return;
+        scheduleFrame();
+    }
+
+    private boolean isDirty() {
+        return pendingTop != pushedTop
+                || pendingBottom != pushedBottom
+                || !pendingNavMode.equals(pushedNavMode);
+    }
+
+    /**
+     * Navigation mode from the current insets. The framework interaction-mode
+     * resource tells 2-button from 3-button; without it, a nav bar with no
+     * tappable area is treated as gesture navigation.
+     */
+    private String classify(WindowInsetsCompat insets) {
+        Insets nav = insets.getInsets(WindowInsetsCompat.Type.navigationBars());
+        if (Math.max(nav.bottom, Math.max(nav.left, nav.right)) <= 0) {
+            return NAV_FULL_SCREEN;
+        }
+        int mode = interactionMode();
+        if (mode == INTERACTION_GESTURE) return NAV_GESTURE;
+        if (mode == INTERACTION_TWO_BUTTON) return NAV_TWO_BUTTON;
+        if (mode == INTERACTION_THREE_BUTTON) return NAV_THREE_BUTTON;
+
+        Insets tappable = insets.getInsets(WindowInsetsCompat.Type.tappableElement());
+        return Math.max(tappable.bottom, Math.max(tappable.left, tappable.right)) == 0
+                ? NAV_GESTURE
+                : NAV_THREE_BUTTON;
+    }
+
+    private int interactionMode() {
+        Resources res = activity.getResources();
+        if (interactionModeRes == -1) {
+            interactionModeRes = res.getIdentifier("config_navBarInteractionMode", "integer", "android");
+        }
+        if (interactionModeRes == 0) return -1;
+        try {
+            return res.getInteger(interactionModeRes);
+        } catch (Resources.NotFoundException e) {
+            return -1;
+        }
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled) return;
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        if (!isDirty()) return;
+
+        Bridge bridge = activity.getBridge();
+        if (bridge == null || bridge.getWebView() == null) return;
+
+        final int top = pendingTop;
+        final int bottom = pendingBottom;
+        final String navMode = pendingNavMode;
+        try {
+            String detail = "{top:" + top + ",bottom:" + bottom + ",navMode:'" + navMode + "'}";
+            String js = "(function(){var d=document.documentElement,e=" + detail + ";" +
+                        "d.style.setProperty('--android-system-bottom', e.bottom + 'px');" +
+                        "d.style.setProperty('--android-system-top', e.top + 'px');" +
+                        "d.setAttribute('data-nav-mode', e.navMode);" +
+                        "window.__androidInsets=e;" +
+                        "window.dispatchEvent(new CustomEvent('androidinsetschange',{detail:e}));})()";
+            bridge.getWebView().evaluateJavascript(js, null);
+            pushedTop = top;
+            pushedBottom = bottom;
+            pushedNavMode = navMode;
+        } catch (Exception ignored) {}
+    }
+}
@@ -0,0 +1,177 @@
+package com.theaark.wakt;
+
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebView;
+
+import androidx.annotation.Nullable;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+import com.getcapacitor.Bridge;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A WebMessagePort channel for high-rate native -> JS streams (compass
+ * readings, future live views). It skips what notifyListeners costs per
+ * event: a JSObject, JSON serialization and an evaluateJavascript call.
+ *
+ * Every message has the same layout, {@code fields} float32 values: an
+ * ArrayBuffer (little-endian, as Float32Array reads it on Android) when the
+ * WebView supports it, otherwise the values joined by commas.
+ *
+ * Backpressure: the page acks messages once it has used them (see
+ * src/app/services/nativeStream.ts). At most MAX_IN_FLIGHT messages are
+ * unacknowledged; past that, a new sample replaces the pending one instead
+ * of queueing, so a busy or hidden page gets the latest value late rather
+ * than a backlog.
+ *
+ * The page receives the port in a window "message" event whose data is
+ * MESSAGE_PREFIX + name. {@link #offer} may be called from any thread.
+ */
+public final class NativeStream {
+
+    private static final String TAG = "NativeStream";
+    static final String MESSAGE_PREFIX = "wakt-stream:";
+    private static final int MAX_IN_FLIGHT = 2;
+
+    private final String name;
+    private final int fields;
+    private final boolean binary;
+    private final WebMessagePortCompat port;
+
+    private final float[] pending;
+    private boolean hasPending = false;
+    private int inFlight = 0;
+    private boolean closed = false;
+    private long sent = 0;
+    private long coalesced = 0;
+
+    private NativeStream(String name, int fields, boolean binary, WebMessagePortCompat port) {
+        this.name = name;
+        this.fields = fields;
+        this.binary = binary;
+        this.port = port;
+        this.pending = new float[fields];
+    }
+
+    static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_SET_MESSAGE_CALLBACK)
+                && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE);
+    }
+
+    /**
+     * Open a channel and hand its far end to the page. Must be called on the
+     * main thread.
+     *
+     * @return null if the WebView has no message channels; use notifyListeners instead
+     */
+    @Nullable
+    static NativeStream open(Bridge bridge, String name, int fields) {
+        WebView webView = bridge != null ? bridge.getWebView() : null;
+        if (webView == null || !isSupported()) return null;
+        try {
+            WebMessagePortCompat[] ports = WebViewCompat.createWebMessageChannel(webView);
+            boolean binary = WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+            NativeStream stream = new NativeStream(name, fields, binary, ports[0]);
+            ports[0].setWebMessageCallback(new WebMessagePortCompat.WebMessageCallbackCompat() {
+                @Override
+                public void onMessage(WebMessagePortCompat port, @Nullable WebMessageCompat message) {
+                    stream.onAck(message);
+                }
+            });
+            WebViewCompat.postWebMessage(webView,
+                    new WebMessageCompat(MESSAGE_PREFIX + name, new WebMessagePortCompat[]{ports[1]}),
+                    Uri.parse(bridge.getLocalUrl()));
+            Log.d(TAG, "Opened " + name + (binary ? " (binary)" : " (text)"));
+            return stream;
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not open " + name + " stream", e);
+            return null;
+        }
+    }
+
+    /**
+     * Send a sample of {@code fields} values, or keep it as the pending one
+     * if the page is behind.
+     *
+     * @return false once the stream is closed
+     */
+    public boolean offer(float... values) {
+        synchronized (this) {
+            if (closed) return false;
+            System.arraycopy(values, 0, pending, 0, Math.min(values.length, fields));
+            if (hasPending) coalesced++;
+            hasPending = true;
+            if (inFlight >= MAX_IN_FLIGHT) return true;
+            return flushLocked();
+        }
+    }
+
+    /**
+     * The page acks with the number of messages it has consumed
+     */
+    private void onAck(@Nullable WebMessageCompat message) {
+        int count = 1;
+        try {
+            String data = message != null ? message.getData() : null;
+            if (data != null) count = Math.max(1, Integer.parseInt(data));
+        } catch (RuntimeException ignored) {
+        }
+        synchronized (this) {
+            inFlight = Math.max(0, inFlight - count);
+            if (!closed && hasPending) flushLocked();
+        }
+    }
+
+    private boolean flushLocked() {
+        WebMessageCompat message = binary ? new WebMessageCompat(encode(pending)) : new WebMessageCompat(join(pending));
+        try {
+            port.postMessage(message);
+        } catch (RuntimeException e) {
+            Log.w(TAG, name + " stream failed; closing", e);
+            closeLocked();
+            return false;
+        }
+        hasPending = false;
+        inFlight++;
+        sent++;
+        return true;
+    }
+
+    private static byte[] encode(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        for (float v : values) buffer.putFloat(v);
+        return buffer.array();
+    }
+
+    private static String join(float[] values) {
+        StringBuilder sb = new StringBuilder(values.length * 8);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    public synchronized void close() {
+        closeLocked();
+    }
+
+    private void closeLocked() {
+        if (closed) return;
+        closed = true;
+        try {
+            port.close();
+        } catch (RuntimeException ignored) {
+        }
+        Log.d(TAG, "Closed " + name + ": sent " + sent + ", coalesced " + coalesced);
+    }
+}
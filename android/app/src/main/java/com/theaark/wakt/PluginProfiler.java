@@ -0,0 +1,174 @@
+package com.theaark.wakt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Cost of the JS/native bridge, per plugin method and per listener event:
+ * call counts, round-trip latency histograms, payload sizes and event rates.
+ *
+ * Capacitor has no native hook between receiving a call and the plugin
+ * resolving it, so the measuring happens in diagnosticsService.ts, which
+ * wraps every call the page makes in dev builds or with diagnostics
+ * enabled; it sends aggregated batches here through the Diagnostics plugin.
+ * Keys are "Plugin.method" and "Plugin.event".
+ *
+ * Pure Java (no android.* imports) so it can be exercised from JVM tests.
+ */
+public final class PluginProfiler {
+
+    // Upper bounds (exclusive) of the latency buckets; the last bucket is
+    // open-ended. diagnosticsService.ts uses the same bounds.
+    static final long[] BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 250, 500, 1000};
+
+    public static final class MethodStats {
+        public long calls;
+        public long errors;
+        public long totalMs;
+        public long maxMs;
+        public long requestBytes;
+        public long responseBytes;
+        public final long[] histogram = new long[BUCKETS_MS.length + 1];
+
+        public long meanMs() {
+            return calls == 0 ? 0 : totalMs / calls;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given fraction of calls,
+         * maxMs for the open-ended one.
+         */
+        public long percentileMs(double fraction) {
+            long target = (long) Math.ceil(calls * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS_MS.length; i++) {
+                seen += histogram[i];
+                if (seen >= target && seen > 0) return BUCKETS_MS[i];
+            }
+            return maxMs;
+        }
+    }
+
+    public static final class EventStats {
+        public long count;
+        public long bytes;
+        public long maxPerSecond;
+    }
+
+    private static final PluginProfiler INSTANCE = new PluginProfiler(System::currentTimeMillis);
+
+    private final LongSupplier clock;
+    private final TreeMap<String, MethodStats> methods = new TreeMap<>();
+    private final TreeMap<String, EventStats> events = new TreeMap<>();
+    private long sinceMillis;
+
+    public PluginProfiler(LongSupplier millisClock) {
+        this.clock = millisClock;
+        this.sinceMillis = millisClock.getAsLong();
+    }
+
+    /**
+     * Process-wide profile fed by the Diagnostics plugin.
+     */
+    public static PluginProfiler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Merge one batch of calls to {@code key} measured on the JS side.
+     *
+     * @param histogram call counts per BUCKETS_MS bucket; ignored unless it
+     *                  has exactly one entry per bucket
+     */
+    public synchronized void addCalls(String key, long calls, long errors, long totalMs, long maxMs,
+                                      long requestBytes, long responseBytes, long[] histogram) {
+        MethodStats s = methods.get(key);
+        if (s == null) {
+            s = new MethodStats();
+            methods.put(key, s);
+        }
+        s.calls += calls;
+        s.errors += errors;
+        s.totalMs += totalMs;
+        s.maxMs = Math.max(s.maxMs, maxMs);
+        s.requestBytes += requestBytes;
+        s.responseBytes += responseBytes;
+        if (histogram != null && histogram.length == s.histogram.length) {
+            for (int i = 0; i < histogram.length; i++) s.histogram[i] += histogram[i];
+        }
+    }
+
+    public synchronized void addEvents(String key, long count, long bytes, long maxPerSecond) {
+        EventStats s = events.get(key);
+        if (s == null) {
+            s = new EventStats();
+            events.put(key, s);
+        }
+        s.count += count;
+        s.bytes += bytes;
+        s.maxPerSecond = Math.max(s.maxPerSecond, maxPerSecond);
+    }
+
+    public synchronized Map<String, MethodStats> methods() {
+        return new TreeMap<>(methods);
+    }
+
+    public synchronized Map<String, EventStats> events() {
+        return new TreeMap<>(events);
+    }
+
+    /**
+     * Milliseconds covered by the profile, for rates
+     */
+    public synchronized long windowMillis() {
+        return Math.max(1, clock.getAsLong() - sinceMillis);
+    }
+
+    public synchronized void clear() {
+        methods.clear();
+        events.clear();
+        sinceMillis = clock.getAsLong();
+    }
+
+    /**
+     * Human-readable summary, most expensive methods (total time) first.
+     */
+    public synchronized String dump() {
+        StringBuilder sb = new StringBuilder("Bridge profile over ")
+                .append(windowMillis() / 1000).append("s\n");
+
+        List<Map.Entry<String, MethodStats>> sorted = new ArrayList<>(methods.entrySet());
+        sorted.sort((a, b) -> Long.compare(b.getValue().totalMs, a.getValue().totalMs));
+        sb.append("calls:\n");
+        for (Map.Entry<String, MethodStats> e : sorted) {
+            MethodStats s = e.getValue();
+            sb.append("  ").append(e.getKey())
+                    .append(": ").append(s.calls).append(" calls");
+            if (s.errors > 0) sb.append(" (").append(s.errors).append(" rejected)");
+            sb.append(", mean ").append(s.meanMs()).append("ms")
+                    .append(", p95 <=").append(s.percentileMs(0.95)).append("ms")
+                    .append(", max ").append(s.maxMs).append("ms")
+                    .append(", in ").append(s.requestBytes).append("B")
+                    .append(", out ").append(s.responseBytes).append("B")
+                    .append(", buckets");
+            for (long count : s.histogram) sb.append(' ').append(count);
+            sb.append('\n');
+        }
+
+        double minutes = windowMillis() / 60_000.0;
+        sb.append("events:\n");
+        for (Map.Entry<String, EventStats> e : events.entrySet()) {
+            EventStats s = e.getValue();
+            sb.append("  ").append(e.getKey())
+                    .append(": ").append(s.count)
+                    .append(String.format(Locale.US, " (%.1f/min", s.count / minutes))
+                    .append(", peak ").append(s.maxPerSecond).append("/s)")
+                    .append(", ").append(s.bytes).append("B\n");
+        }
+        return sb.toString();
+    }
+}
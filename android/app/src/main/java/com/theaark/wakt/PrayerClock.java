@@ -0,0 +1,177 @@
+package com.theaark.wakt;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import java.util.Calendar;
+
+/**
+ * Minute-aligned clock that knows the day's prayer boundaries.
+ *
+ * Driven by ACTION_TIME_TICK (once a minute, only while registered) plus
+ * TIME_SET / TIMEZONE_CHANGED / DATE_CHANGED, so the WebView is woken at most
+ * once a minute instead of polling every second. Times are the prayer
+ * windows JS last pushed into AlarmStore; nothing is known past them.
+ */
+public class PrayerClock {
+
+    private static final String TAG = "PrayerClock";
+
+    public static final String REASON_START = "start";
+    public static final String REASON_MINUTE = "minute";
+    public static final String REASON_TRANSITION = "transition";
+    public static final String REASON_DAY_CHANGED = "dayChanged";
+    public static final String REASON_TIME_CHANGED = "timeChanged";
+
+    // Boundaries in day order, as offsets into a day of AlarmSettings#schedule
+    // (sunrise is where Fajr's window ends)
+    static final String[] NAMES = {"Fajr", "Sunrise", "Dhuhr", "Asr", "Maghrib", "Isha"};
+    private static final int[] FIELDS = {0, 1, 2, 4, 6, 8};
+
+    public interface Listener {
+        void onTick(State state, String reason);
+    }
+
+    public static final class State {
+        public final long nowMillis;
+        public final long epochDay;
+        // Null until JS has pushed prayer windows, or once they have run out
+        public final String current;
+        public final String next;
+        public final long nextAtMillis;
+
+        State(long nowMillis, long epochDay, String current, String next, long nextAtMillis) {
+            this.nowMillis = nowMillis;
+            this.epochDay = epochDay;
+            this.current = current;
+            this.next = next;
+            this.nextAtMillis = nextAtMillis;
+        }
+    }
+
+    private Context context;
+    private Listener listener;
+    private BroadcastReceiver receiver;
+    private AlarmSettings settings;
+    private int settingsGeneration = -1;
+    private State last;
+
+    public void start(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        if (receiver == null) {
+            receiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context c, Intent intent) {
+                    String action = intent.getAction();
+                    if (Intent.ACTION_TIME_TICK.equals(action)) {
+                        tick(REASON_MINUTE);
+                    } else {
+                        tick(REASON_TIME_CHANGED);
+                    }
+                }
+            };
+            IntentFilter filter = new IntentFilter();
+            filter.addAction(Intent.ACTION_TIME_TICK);
+            filter.addAction(Intent.ACTION_TIME_CHANGED);
+            filter.addAction(Intent.ACTION_TIMEZONE_CHANGED);
+            filter.addAction(Intent.ACTION_DATE_CHANGED);
+            ContextCompat.registerReceiver(this.context, receiver, filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+        }
+        tick(REASON_START);
+    }
+
+    public void stop() {
+        if (receiver != null && context != null) {
+            try {
+                context.unregisterReceiver(receiver);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Receiver already unregistered", e);
+            }
+        }
+        receiver = null;
+    }
+
+    public boolean isRunning() {
+        return receiver != null;
+    }
+
+    public State getState() {
+        return last != null ? last : evaluate(System.currentTimeMillis());
+    }
+
+    private void tick(String reason) {
+        State previous = last;
+        State state = evaluate(System.currentTimeMillis());
+        last = state;
+
+        if (REASON_MINUTE.equals(reason) && previous != null) {
+            if (previous.epochDay != state.epochDay) {
+                reason = REASON_DAY_CHANGED;
+            } else if (state.current != null && !state.current.equals(previous.current)) {
+                reason = REASON_TRANSITION;
+            }
+        }
+        if (listener != null) {
+            listener.onTick(state, reason);
+        }
+    }
+
+    private State evaluate(long nowMillis) {
+        return evaluate(settings(), nowMillis);
+    }
+
+    /**
+     * Current/next boundary at {@code nowMillis} from the pushed windows; the
+     * epoch day is the local date in the default time zone. Also used by
+     * PrayerGlance (widget and tile).
+     */
+    static State evaluate(AlarmSettings s, long nowMillis) {
+        Calendar now = Calendar.getInstance();
+        now.setTimeInMillis(nowMillis);
+        int year = now.get(Calendar.YEAR);
+        int month = now.get(Calendar.MONTH) + 1;
+        int day = now.get(Calendar.DAY_OF_MONTH);
+        long epochDay = CivilDate.epochDayOf(year, month, day);
+
+        if (s == null || s.scheduleDays == 0) {
+            return new State(nowMillis, epochDay, null, null, 0);
+        }
+        return at(nowMillis, epochDay, s.schedule, s.scheduleDays);
+    }
+
+    /**
+     * Current/next boundary in packed windows ({@link AlarmSettings#schedule}
+     * layout). Unknown once the last boundary has passed.
+     */
+    static State at(long nowMillis, long epochDay, int[] windows, int days) {
+        long nowMinute = Math.floorDiv(nowMillis, 60_000L);
+        String current = NAMES[NAMES.length - 1];
+        for (int d = 0; d < days; d++) {
+            for (int i = 0; i < FIELDS.length; i++) {
+                long minute = windows[d * AlarmSettings.DAY_FIELDS + FIELDS[i]];
+                if (minute < 0) continue;
+                if (minute > nowMinute) {
+                    return new State(nowMillis, epochDay, current, NAMES[i], minute * 60_000L);
+                }
+                current = NAMES[i];
+            }
+        }
+        return new State(nowMillis, epochDay, null, null, 0);
+    }
+
+    private AlarmSettings settings() {
+        if (context == null) return null;
+        int generation = AlarmStore.generation();
+        if (settings == null || generation != settingsGeneration) {
+            settings = AlarmStore.read(context);
+            settingsGeneration = generation;
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,77 @@
+package com.theaark.wakt;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+/**
+ * Pushes "tick" events from PrayerClock to JS on minute rollovers, prayer
+ * transitions, day changes and time/timezone changes. Paused while the
+ * Activity is in the background.
+ */
+@CapacitorPlugin(name = "PrayerClock")
+public class PrayerClockPlugin extends Plugin {
+
+    private final PrayerClock clock = new PrayerClock();
+    private boolean wasRunning = false;
+
+    private void startNative() {
+        clock.start(getContext(), (state, reason) -> notifyListeners("tick", toJs(state, reason)));
+    }
+
+    @PluginMethod
+    public void start(PluginCall call) {
+        startNative();
+        wasRunning = true;
+        call.resolve(toJs(clock.getState(), PrayerClock.REASON_START));
+    }
+
+    @PluginMethod
+    public void stop(PluginCall call) {
+        clock.stop();
+        wasRunning = false;
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getState(PluginCall call) {
+        call.resolve(toJs(clock.getState(), PrayerClock.REASON_START));
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        clock.stop();
+    }
+
+    @Override
+    protected void handleOnResume() {
+        super.handleOnResume();
+        if (wasRunning) {
+            // Emits immediately, so JS catches up on whatever it missed
+            startNative();
+        }
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        wasRunning = false;
+        clock.stop();
+    }
+
+    private static JSObject toJs(PrayerClock.State state, String reason) {
+        JSObject ret = new JSObject();
+        ret.put("reason", reason);
+        ret.put("now", state.nowMillis);
+        ret.put("epochDay", state.epochDay);
+        if (state.current != null) ret.put("current", state.current);
+        if (state.next != null) {
+            ret.put("next", state.next);
+            ret.put("nextAt", state.nextAtMillis);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,153 @@
+package com.theaark.wakt;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.service.quicksettings.TileService;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import androidx.core.os.UserManagerCompat;
+
+import java.text.DateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Glanceable next-prayer info for the home-screen widget and the quick
+ * settings tile, rendered natively from the prayer windows in AlarmStore
+ * (see PrayerClock) and HijriCalendar. Nothing here starts MainActivity or
+ * the WebView.
+ *
+ * There is no periodic update: AlarmScheduler calls {@link #refresh} whenever
+ * it re-arms and arms a non-wakeup alarm for {@link Snapshot#refreshAtMillis},
+ * the next prayer boundary or local midnight (for the Hijri date).
+ *
+ * Runs in the main process only (see AlarmScheduler#refreshGlance): the tile
+ * state and the Hijri settings are SharedPreferences written there, and
+ * another process would read its own stale cached copy.
+ */
+public final class PrayerGlance {
+
+    private static final String TAG = "PrayerGlance";
+    private static final String PREFS = "glance";
+    private static final String KEY_TILE_ADDED = "tileAdded";
+
+    static final class Snapshot {
+        // Null until JS has pushed prayer windows, or once they have run out
+        final String current;
+        final String next;
+        final long nextAtMillis;
+        final int[] hijri;
+        final long refreshAtMillis;
+
+        Snapshot(PrayerClock.State state, int[] hijri, long midnightMillis) {
+            this.current = state.current;
+            this.next = state.next;
+            this.nextAtMillis = state.nextAtMillis;
+            this.hijri = hijri;
+            this.refreshAtMillis = state.nextAtMillis > 0
+                    ? Math.min(state.nextAtMillis, midnightMillis) : midnightMillis;
+        }
+    }
+
+    private PrayerGlance() {}
+
+    static Snapshot snapshot(Context context, long nowMillis) {
+        PrayerClock.State state = PrayerClock.evaluate(AlarmStore.read(context), nowMillis);
+        int[] hijri = HijriCalendarPlugin.todayHijri(
+                context.getSharedPreferences(HijriCalendarPlugin.PREFS, Context.MODE_PRIVATE));
+        Calendar midnight = Calendar.getInstance();
+        midnight.setTimeInMillis(nowMillis);
+        midnight.add(Calendar.DAY_OF_MONTH, 1);
+        midnight.set(Calendar.HOUR_OF_DAY, 0);
+        midnight.set(Calendar.MINUTE, 0);
+        midnight.set(Calendar.SECOND, 0);
+        midnight.set(Calendar.MILLISECOND, 0);
+        return new Snapshot(state, hijri, midnight.getTimeInMillis());
+    }
+
+    /**
+     * Re-render every widget and ask the tile to refresh.
+     *
+     * @return when the next refresh is due, or -1 if nothing is on screen
+     */
+    static long refresh(Context context) {
+        int[] widgetIds = widgetIds(context);
+        boolean tile = isTileAdded(context);
+        if (widgetIds.length == 0 && !tile) return -1;
+        // Hijri settings live in credential-encrypted storage; BOOT_COMPLETED retries
+        if (!UserManagerCompat.isUserUnlocked(context)) return -1;
+
+        Snapshot snapshot = snapshot(context, System.currentTimeMillis());
+        if (widgetIds.length > 0) {
+            AppWidgetManager.getInstance(context).updateAppWidget(widgetIds, widgetViews(context, snapshot));
+        }
+        if (tile) {
+            try {
+                TileService.requestListeningState(context, new ComponentName(context, PrayerTileService.class));
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Tile refresh request failed", e);
+            }
+        }
+        return snapshot.refreshAtMillis;
+    }
+
+    static RemoteViews widgetViews(Context context, Snapshot s) {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_prayer);
+        views.setTextViewText(R.id.widget_hijri, hijriText(s.hijri));
+        if (s.next != null) {
+            views.setTextViewText(R.id.widget_next_name, s.next);
+            views.setTextViewText(R.id.widget_next_time, formatTime(context, s.nextAtMillis));
+            views.setTextViewText(R.id.widget_current, "Now: " + s.current);
+        } else {
+            views.setTextViewText(R.id.widget_next_name, "Wakt");
+            views.setTextViewText(R.id.widget_next_time, "");
+            views.setTextViewText(R.id.widget_current, "Open Wakt to update prayer times");
+        }
+        views.setOnClickPendingIntent(R.id.widget_root, openAppIntent(context));
+        return views;
+    }
+
+    static String tileLabel(Context context, Snapshot s) {
+        return s.next != null ? s.next + " " + formatTime(context, s.nextAtMillis) : "Wakt";
+    }
+
+    static String hijriText(int[] h) {
+        return h[2] + " " + HijriCalendar.monthName(h[1]) + " " + h[0];
+    }
+
+    static String formatTime(Context context, long millis) {
+        DateFormat format = android.text.format.DateFormat.getTimeFormat(context);
+        return format.format(new Date(millis));
+    }
+
+    static PendingIntent openAppIntent(Context context) {
+        Intent intent = new Intent(context, MainActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        return PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    static void setTileAdded(Context context, boolean added) {
+        prefs(context).edit().putBoolean(KEY_TILE_ADDED, added).apply();
+    }
+
+    private static boolean isTileAdded(Context context) {
+        return prefs(context).getBoolean(KEY_TILE_ADDED, false);
+    }
+
+    private static int[] widgetIds(Context context) {
+        AppWidgetManager manager = AppWidgetManager.getInstance(context);
+        if (manager == null) return new int[0];
+        return manager.getAppWidgetIds(new ComponentName(context, PrayerWidgetProvider.class));
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.createDeviceProtectedStorageContext()
+                .getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
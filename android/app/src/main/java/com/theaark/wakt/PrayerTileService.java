@@ -0,0 +1,52 @@
+package com.theaark.wakt;
+
+import android.content.Intent;
+import android.os.Build;
+import android.service.quicksettings.Tile;
+import android.service.quicksettings.TileService;
+
+/**
+ * Quick settings tile showing the next prayer ("Asr 15:26") and, on Android
+ * 10+, the Hijri date as subtitle. Tapping it opens the app.
+ *
+ * The tile is only bound while the shade is open or when PrayerGlance asks
+ * for a refresh at a prayer boundary; it never polls.
+ */
+public class PrayerTileService extends TileService {
+
+    @Override
+    public void onTileAdded() {
+        PrayerGlance.setTileAdded(this, true);
+        AlarmScheduler.refreshGlance(this);
+    }
+
+    @Override
+    public void onTileRemoved() {
+        PrayerGlance.setTileAdded(this, false);
+        AlarmScheduler.refreshGlance(this);
+    }
+
+    @Override
+    public void onStartListening() {
+        Tile tile = getQsTile();
+        if (tile == null) return;
+        PrayerGlance.Snapshot snapshot = PrayerGlance.snapshot(this, System.currentTimeMillis());
+        tile.setLabel(PrayerGlance.tileLabel(this, snapshot));
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            tile.setSubtitle(PrayerGlance.hijriText(snapshot.hijri));
+        }
+        tile.setState(Tile.STATE_ACTIVE);
+        tile.updateTile();
+    }
+
+    @Override
+    public void onClick() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            startActivityAndCollapse(PrayerGlance.openAppIntent(this));
+        } else {
+            Intent intent = new Intent(this, MainActivity.class);
+            intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            startActivityAndCollapse(intent);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.theaark.wakt;
+
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Home-screen widget with the next prayer and today's Hijri date.
+ * updatePeriodMillis is 0; PrayerGlance is refreshed by AlarmScheduler's
+ * boundary alarm, which is delivered here (GLANCE_REFRESH), in the main
+ * process, along with refreshes forwarded from the alarm process.
+ */
+public class PrayerWidgetProvider extends AppWidgetProvider {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (AlarmScheduler.ACTION_GLANCE_REFRESH.equals(intent.getAction())) {
+            // Prayer boundary or midnight, or a forwarded refresh
+            AlarmScheduler.refreshGlance(context);
+            return;
+        }
+        super.onReceive(context, intent);
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        // Renders the new widget and arms the boundary refresh if it was not yet armed
+        AlarmScheduler.refreshGlance(context);
+    }
+
+    @Override
+    public void onDisabled(Context context) {
+        // Last widget removed; drops the refresh alarm unless the tile still needs it
+        AlarmScheduler.refreshGlance(context);
+    }
+}
@@ -55,7 +55,9 @@ class QiblaDemoActivity : AppCompatActivity() {
             onAccuracyUpdate = { level, _ ->
                 // Optional: show quick hint when accuracy is poor
                 if (level == "poor") {
-                    Toast.makeText(this, "Calibrate compass: move phone in a figure-8.", Toast.LENGTH_SHORT).show()
+                    runOnUiThread {
+                        Toast.makeText(this, "Calibrate compass: move phone in a figure-8.", Toast.LENGTH_SHORT).show()
+                    }
                 }
             }
         )
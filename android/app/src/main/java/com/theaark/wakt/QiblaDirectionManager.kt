@@ -4,6 +4,10 @@ import android.annotation.SuppressLint
 import android.content.Context
 import android.hardware.*
 import android.location.Location
+import android.os.Handler
+import android.os.HandlerThread
+import android.os.Process
+import android.os.SystemClock
 import android.util.Log
 import com.google.android.gms.location.*
 import okhttp3.OkHttpClient
@@ -20,6 +24,11 @@ import kotlin.math.roundToInt
  * - Listens to accelerometer + magnetometer to compute device heading
  * - Emits rotation angle to point an arrow toward Qibla in real time
  *
+ * Sensor events are delivered to and fused on a dedicated HandlerThread, not
+ * the main looper that also runs the WebView. Only the smoothed result is
+ * emitted, at most every EMIT_INTERVAL_MS and when it moved by at least
+ * MIN_CHANGE_DEG, so callbacks run on that thread at a bounded rate.
+ *
  * Usage:
  * val manager = QiblaDirectionManager()
  * manager.start(context) { angle -> qiblaArrow.rotation = angle }
@@ -33,31 +42,56 @@ class QiblaDirectionManager : SensorEventListener {
     private var accel: Sensor? = null
     private var magnet: Sensor? = null
 
-    private var accelValues = FloatArray(3)
-    private var magnetValues = FloatArray(3)
+    private var sensorThread: HandlerThread? = null
+    private var sensorHandler: Handler? = null
+
+    // Owned by the sensor thread; buffers are reused for every event
+    private val accelValues = FloatArray(3)
+    private val magnetValues = FloatArray(3)
+    private val rotationMatrix = FloatArray(9)
+    private val inclinationMatrix = FloatArray(9)
+    private val orientation = FloatArray(3)
     private var haveAccel = false
     private var haveMagnet = false
-
     private var currentHeadingDeg: Float = 0f
+    private var lastEmitAt = 0L
+    private var lastEmittedHeading = Float.NaN
+    private var lastEmittedRotation = Float.NaN
+
+    // Written from the location and OkHttp callbacks, read on the sensor thread
+    @Volatile
     private var lastLocation: Location? = null
+    @Volatile
+    private var declinationDeg: Float = 0f
+    @Volatile
     private var lastQiblaBearing: Float? = null
     private var lastApiLat: Double? = null
     private var lastApiLng: Double? = null
 
+    @Volatile
     private var onUpdate: ((Float) -> Unit)? = null
+    @Volatile
     private var onHeadingUpdate: ((Float) -> Unit)? = null
+    @Volatile
     private var onAccuracyUpdate: ((String, Int) -> Unit)? = null
 
     @Volatile
     private var running = false
 
-    private val client: OkHttpClient = OkHttpClient.Builder()
-        .connectTimeout(8, TimeUnit.SECONDS)
-        .readTimeout(8, TimeUnit.SECONDS)
-        .build()
+    // Built on the first Qibla API request rather than at construction.
+    private val client: OkHttpClient by lazy {
+        OkHttpClient.Builder()
+            .connectTimeout(8, TimeUnit.SECONDS)
+            .readTimeout(8, TimeUnit.SECONDS)
+            .build()
+    }
 
     private var locationCallback: LocationCallback? = null
 
+    /**
+     * Callbacks are invoked on the sensor thread; post to the main thread
+     * before touching views.
+     */
     fun start(
         context: Context,
         onDirectionUpdate: (Float) -> Unit,
@@ -75,10 +109,22 @@ class QiblaDirectionManager : SensorEventListener {
         accel = sensorManager?.getDefaultSensor(Sensor.TYPE_ACCELEROMETER)
         magnet = sensorManager?.getDefaultSensor(Sensor.TYPE_MAGNETIC_FIELD)
 
-        // Register sensors
+        haveAccel = false
+        haveMagnet = false
+        currentHeadingDeg = 0f
+        lastEmitAt = 0L
+        lastEmittedHeading = Float.NaN
+        lastEmittedRotation = Float.NaN
+
+        val thread = HandlerThread("QiblaSensors", Process.THREAD_PRIORITY_DISPLAY).also { it.start() }
+        val handler = Handler(thread.looper)
+        sensorThread = thread
+        sensorHandler = handler
+
+        // Register sensors, delivered on the sensor thread
         val rate = SensorManager.SENSOR_DELAY_GAME
-        accel?.let { sensorManager?.registerListener(this, it, rate) }
-        magnet?.let { sensorManager?.registerListener(this, it, rate) }
+        accel?.let { sensorManager?.registerListener(this, it, rate, handler) }
+        magnet?.let { sensorManager?.registerListener(this, it, rate, handler) }
 
         // Prime location + Qibla bearing
         fetchLocationAndQibla(context)
@@ -92,6 +138,20 @@ class QiblaDirectionManager : SensorEventListener {
         sensorManager?.unregisterListener(this)
         locationCallback?.let { fusedClient?.removeLocationUpdates(it) }
         locationCallback = null
+
+        // No new events after unregistering; let queued ones drain (they see
+        // running == false) and wait briefly so a restart starts clean
+        sensorHandler?.removeCallbacksAndMessages(null)
+        sensorHandler = null
+        sensorThread?.let {
+            it.quitSafely()
+            try {
+                it.join(THREAD_JOIN_TIMEOUT_MS)
+            } catch (_: InterruptedException) {
+                Thread.currentThread().interrupt()
+            }
+        }
+        sensorThread = null
     }
 
     @SuppressLint("MissingPermission")
@@ -125,6 +185,17 @@ class QiblaDirectionManager : SensorEventListener {
 
     private fun onNewLocation(context: Context, location: Location) {
         lastLocation = location
+        // Magnetic to true north; computed once per fix rather than per sensor event
+        declinationDeg = try {
+            GeomagneticField(
+                location.latitude.toFloat(),
+                location.longitude.toFloat(),
+                location.altitude.toFloat(),
+                System.currentTimeMillis()
+            ).declination
+        } catch (_: Exception) {
+            0f
+        }
         maybeFetchQiblaFromApi(location)
     }
 
@@ -144,7 +215,7 @@ class QiblaDirectionManager : SensorEventListener {
         if (!hasSignificantLocationChange(lat, lng) && lastQiblaBearing != null) {
             // Already have bearing for near-same location
             // Emit with current heading
-            emitRotation()
+            postEmit()
             return
         }
         fetchQiblaBearing(lat, lng)
@@ -172,7 +243,7 @@ class QiblaDirectionManager : SensorEventListener {
                             lastQiblaBearing = ((bearing % 360f) + 360f) % 360f
                             lastApiLat = lat
                             lastApiLng = lng
-                            emitRotation()
+                            postEmit()
                         } else {
                             Log.w(TAG, "Qibla API missing qibla_direction")
                         }
@@ -184,14 +255,47 @@ class QiblaDirectionManager : SensorEventListener {
         })
     }
 
-    private fun emitRotation() {
-        val qibla = lastQiblaBearing ?: return
-        val device = currentHeadingDeg
-        val rotation = ((qibla - device + 360f) % 360f)
-        onUpdate?.invoke(rotation)
+    /**
+     * Emit the current rotation from the sensor thread, bypassing the throttle
+     * (a new Qibla bearing should show without waiting for the next reading).
+     */
+    private fun postEmit() {
+        sensorHandler?.post { emit(SystemClock.elapsedRealtime(), force = true) }
     }
 
+    // Sensor thread only
+    private fun emit(now: Long, force: Boolean) {
+        if (!running) return
+        if (!force && now - lastEmitAt < EMIT_INTERVAL_MS) return
+
+        val heading = currentHeadingDeg
+        val qibla = lastQiblaBearing
+        val rotation = if (qibla != null) ((qibla - heading + 360f) % 360f) else Float.NaN
+        val headingMoved = lastEmittedHeading.isNaN() || angleDelta(heading, lastEmittedHeading) >= MIN_CHANGE_DEG
+        val rotationMoved = !rotation.isNaN() &&
+            (lastEmittedRotation.isNaN() || angleDelta(rotation, lastEmittedRotation) >= MIN_CHANGE_DEG)
+        if (!force && !headingMoved && !rotationMoved) return
+
+        lastEmitAt = now
+        // Raw heading goes first so the UI can rotate the dial before the Qibla bearing is ready
+        if (force || headingMoved) {
+            lastEmittedHeading = heading
+            onHeadingUpdate?.invoke(heading)
+        }
+        if (!rotation.isNaN() && (force || rotationMoved)) {
+            lastEmittedRotation = rotation
+            onUpdate?.invoke(rotation)
+        }
+    }
+
+    private fun angleDelta(a: Float, b: Float): Float {
+        val d = abs(a - b) % 360f
+        return if (d > 180f) 360f - d else d
+    }
+
+    // Delivered on the sensor thread (see start)
     override fun onSensorChanged(event: SensorEvent) {
+        if (!running) return
         when (event.sensor.type) {
             Sensor.TYPE_ACCELEROMETER -> {
                 System.arraycopy(event.values, 0, accelValues, 0, 3)
@@ -204,28 +308,17 @@ class QiblaDirectionManager : SensorEventListener {
         }
         if (!haveAccel || !haveMagnet) return
 
-        val R = FloatArray(9)
-        val I = FloatArray(9)
-        val success = SensorManager.getRotationMatrix(R, I, accelValues, magnetValues)
+        val success = SensorManager.getRotationMatrix(rotationMatrix, inclinationMatrix, accelValues, magnetValues)
         if (success) {
-            val orientation = FloatArray(3)
-            SensorManager.getOrientation(R, orientation)
-            var azimuthRad = orientation[0]
+            SensorManager.getOrientation(rotationMatrix, orientation)
+            val azimuthRad = orientation[0]
             var heading = Math.toDegrees(azimuthRad.toDouble()).toFloat()
             heading = ((heading + 360f) % 360f)
 
-            // Optional: apply geomagnetic declination to convert magnetic north to true north
-            lastLocation?.let { loc ->
-                try {
-                    val field = GeomagneticField(
-                        loc.latitude.toFloat(),
-                        loc.longitude.toFloat(),
-                        loc.altitude.toFloat(),
-                        System.currentTimeMillis()
-                    )
-                    heading = (heading + field.declination) % 360f
-                    if (heading < 0) heading += 360f
-                } catch (_: Exception) { }
+            // Apply geomagnetic declination to convert magnetic north to true north
+            if (lastLocation != null) {
+                heading = (heading + declinationDeg) % 360f
+                if (heading < 0) heading += 360f
             }
 
             // Simple smoothing (EMA)
@@ -234,10 +327,7 @@ class QiblaDirectionManager : SensorEventListener {
                 (alpha * heading + (1 - alpha) * currentHeadingDeg)
             }
 
-            // Emit raw heading immediately so UI can rotate dial even before Qibla bearing is ready
-            onHeadingUpdate?.invoke(currentHeadingDeg)
-
-            emitRotation()
+            emit(SystemClock.elapsedRealtime(), force = false)
         }
     }
 
@@ -257,5 +347,9 @@ class QiblaDirectionManager : SensorEventListener {
 
     companion object {
         private const val TAG = "QiblaDirectionMgr"
+        // ~15 updates a second is smooth for a needle and keeps the bridge quiet
+        private const val EMIT_INTERVAL_MS = 66L
+        private const val MIN_CHANGE_DEG = 0.5f
+        private const val THREAD_JOIN_TIMEOUT_MS = 200L
     }
 }
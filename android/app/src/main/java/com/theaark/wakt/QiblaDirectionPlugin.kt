@@ -11,14 +11,29 @@ class QiblaDirectionPlugin : Plugin() {
     private var manager: QiblaDirectionManager? = null
     private var wasRunning: Boolean = false
 
+    // While open, heading and direction go through the stream as
+    // [heading, angle] (angle NaN until the Qibla bearing is known)
+    // instead of notifyListeners; accuracy changes stay events
+    @Volatile
+    private var stream: NativeStream? = null
+    @Volatile
+    private var lastHeading = Float.NaN
+    @Volatile
+    private var lastAngle = Float.NaN
+
     private fun startNative() {
         val mgr = manager ?: QiblaDirectionManager().also { manager = it }
+        // Callbacks arrive throttled on the manager's sensor thread;
+        // notifyListeners hands them to the WebView thread itself
         mgr.start(
             context,
             { angle ->
-                val data = JSObject()
-                data.put("angle", angle)
-                notifyListeners("direction", data)
+                lastAngle = angle
+                if (stream?.offer(lastHeading, angle) != true) {
+                    val data = JSObject()
+                    data.put("angle", angle)
+                    notifyListeners("direction", data)
+                }
             },
             { level, raw ->
                 val acc = JSObject()
@@ -27,31 +42,50 @@ class QiblaDirectionPlugin : Plugin() {
                 notifyListeners("accuracy", acc)
             },
             { heading ->
-                val h = JSObject()
-                h.put("heading", heading)
-                notifyListeners("heading", h)
+                lastHeading = heading
+                if (stream?.offer(heading, lastAngle) != true) {
+                    val h = JSObject()
+                    h.put("heading", heading)
+                    notifyListeners("heading", h)
+                }
             }
         )
     }
 
     override fun load() {
         super.load()
-        manager = QiblaDirectionManager()
+        // The manager (and its OkHttp client) is created on the first start()
+        // so users who never open the Qibla page don't pay for it at launch.
     }
 
+    /**
+     * Start the compass. With `stream: true`, readings are sent over a
+     * NativeStream named "qibla" when the WebView supports it; the result's
+     * `stream` says whether it was opened.
+     */
     @PluginMethod
     fun start(call: PluginCall) {
-        startNative()
-        wasRunning = true
-        val ret = JSObject()
-        ret.put("started", true)
-        call.resolve(ret)
+        val wantStream = call.getBoolean("stream", false) == true
+        // Message channels are created on the WebView's thread. A fresh one
+        // each time: the page may have reloaded and dropped the old port.
+        bridge.executeOnMainThread {
+            stream?.close()
+            stream = if (wantStream) NativeStream.open(bridge, STREAM_NAME, STREAM_FIELDS) else null
+            startNative()
+            wasRunning = true
+            val ret = JSObject()
+            ret.put("started", true)
+            ret.put("stream", stream != null)
+            call.resolve(ret)
+        }
     }
 
     @PluginMethod
     fun stop(call: PluginCall) {
         manager?.stop()
         wasRunning = false
+        stream?.close()
+        stream = null
         call.resolve()
     }
 
@@ -74,5 +108,12 @@ class QiblaDirectionPlugin : Plugin() {
         super.handleOnDestroy()
         wasRunning = false
         manager?.stop()
+        stream?.close()
+        stream = null
+    }
+
+    companion object {
+        private const val STREAM_NAME = "qibla"
+        private const val STREAM_FIELDS = 2
     }
 }
@@ -0,0 +1,197 @@
+package com.theaark.wakt;
+
+import android.app.AlarmManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Everything on the device that decides whether prayer alarms arrive on
+ * time, read in one pass: exact-alarm permission, battery optimization,
+ * app standby bucket, the Adhan channel's importance and the full-screen
+ * intent permission.
+ *
+ * The last snapshot is cached in memory and refreshed when it is older than
+ * MAX_AGE_MS, when the app resumes, and on
+ * ACTION_SCHEDULE_EXACT_ALARM_PERMISSION_STATE_CHANGED. A refresh that
+ * differs from the previous snapshot is reported to the Listener
+ * (AdhanNotificationPlugin) once. Whenever exact alarms went from denied to
+ * allowed, or back, the timeline is re-armed, since the mechanism changes
+ * (see AlarmPolicy).
+ *
+ * Revoking the permission kills the app and cancels its exact alarms, so
+ * the first refresh in a new process re-arms too. Nothing is persisted: the
+ * main and alarm processes (AlarmProcess) would each see their own cached
+ * copy. The armed wakeup's key includes its mechanism, so a re-arm that
+ * finds exact access unchanged leaves AlarmManager alone.
+ */
+public final class SchedulingHealth {
+
+    private static final String TAG = "SchedulingHealth";
+    private static final long MAX_AGE_MS = 5_000;
+
+    static final class Snapshot {
+        final boolean exactAlarms;
+        final boolean batteryOptimizationDisabled;
+        // UsageStatsManager.STANDBY_BUCKET_*, or -1 before Android 9
+        final int standbyBucket;
+        final boolean notificationsEnabled;
+        // NotificationManager.IMPORTANCE_*, or -1 if the channel does not exist yet
+        final int channelImportance;
+        final boolean fullScreenIntent;
+
+        Snapshot(boolean exactAlarms, boolean batteryOptimizationDisabled, int standbyBucket,
+                 boolean notificationsEnabled, int channelImportance, boolean fullScreenIntent) {
+            this.exactAlarms = exactAlarms;
+            this.batteryOptimizationDisabled = batteryOptimizationDisabled;
+            this.standbyBucket = standbyBucket;
+            this.notificationsEnabled = notificationsEnabled;
+            this.channelImportance = channelImportance;
+            this.fullScreenIntent = fullScreenIntent;
+        }
+
+        boolean sameAs(Snapshot o) {
+            return o != null && exactAlarms == o.exactAlarms
+                    && batteryOptimizationDisabled == o.batteryOptimizationDisabled
+                    && standbyBucket == o.standbyBucket
+                    && notificationsEnabled == o.notificationsEnabled
+                    && channelImportance == o.channelImportance
+                    && fullScreenIntent == o.fullScreenIntent;
+        }
+
+        String standbyBucketName() {
+            switch (standbyBucket) {
+                case -1:
+                    return "unsupported";
+                case UsageStatsManager.STANDBY_BUCKET_ACTIVE:
+                    return "active";
+                case UsageStatsManager.STANDBY_BUCKET_WORKING_SET:
+                    return "working_set";
+                case UsageStatsManager.STANDBY_BUCKET_FREQUENT:
+                    return "frequent";
+                case UsageStatsManager.STANDBY_BUCKET_RARE:
+                    return "rare";
+                case UsageStatsManager.STANDBY_BUCKET_RESTRICTED:
+                    return "restricted";
+                default:
+                    // Exempt and OEM buckets are below ACTIVE
+                    return standbyBucket < UsageStatsManager.STANDBY_BUCKET_ACTIVE ? "exempted" : "unknown";
+            }
+        }
+
+        String channelImportanceName() {
+            switch (channelImportance) {
+                case -1:
+                    return "missing";
+                case NotificationManager.IMPORTANCE_NONE:
+                    return "blocked";
+                case NotificationManager.IMPORTANCE_MIN:
+                    return "min";
+                case NotificationManager.IMPORTANCE_LOW:
+                    return "low";
+                case NotificationManager.IMPORTANCE_DEFAULT:
+                    return "default";
+                default:
+                    return "high";
+            }
+        }
+    }
+
+    interface Listener {
+        void onChanged(Snapshot snapshot);
+    }
+
+    private static Snapshot cached;
+    private static long cachedAt;
+    private static Listener listener;
+
+    private SchedulingHealth() {}
+
+    static synchronized void setListener(Listener l) {
+        listener = l;
+    }
+
+    /**
+     * The cached snapshot, refreshed first if it is stale or {@code refresh} is set
+     */
+    static Snapshot get(Context context, boolean refresh) {
+        synchronized (SchedulingHealth.class) {
+            if (!refresh && cached != null && SystemClock.elapsedRealtime() - cachedAt < MAX_AGE_MS) {
+                return cached;
+            }
+        }
+        return refresh(context, "query");
+    }
+
+    /**
+     * Re-read everything; notify the listener and re-arm if something changed.
+     *
+     * @param reason for AlarmTelemetry when exact-alarm access changed
+     */
+    static Snapshot refresh(Context context, String reason) {
+        Snapshot now = read(context);
+        Snapshot previous;
+        Listener l;
+        synchronized (SchedulingHealth.class) {
+            previous = cached;
+            cached = now;
+            cachedAt = SystemClock.elapsedRealtime();
+            l = listener;
+        }
+
+        if (previous == null) {
+            // New process: the alarm may have been cancelled with the old one
+            AlarmScheduler.rearmTimeline(context, "health");
+        } else if (previous.exactAlarms != now.exactAlarms) {
+            Log.d(TAG, "Exact alarms " + (now.exactAlarms ? "granted" : "revoked") + " (" + reason + ")");
+            AlarmTelemetry.get(context).event(now.exactAlarms ? "exact.granted" : "exact.revoked", reason);
+            AlarmScheduler.rearmTimeline(context, now.exactAlarms ? "exactGranted" : "exactRevoked");
+        }
+
+        if (l != null && previous != null && !now.sameAs(previous)) l.onChanged(now);
+        return now;
+    }
+
+    static boolean canScheduleExactAlarms(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) return true;
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        return am != null && am.canScheduleExactAlarms();
+    }
+
+    static boolean isBatteryOptimizationDisabled(Context context) {
+        PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return pm == null || pm.isIgnoringBatteryOptimizations(context.getPackageName());
+    }
+
+    private static Snapshot read(Context context) {
+        int bucket = -1;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            UsageStatsManager usm = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+            if (usm != null) bucket = usm.getAppStandbyBucket();
+        }
+
+        NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        boolean enabled = nm != null && nm.areNotificationsEnabled();
+        int importance = -1;
+        boolean fullScreen = true;
+        if (nm != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                NotificationChannel channel = nm.getNotificationChannel(AdhanNotificationFactory.CHANNEL_ID);
+                if (channel != null) importance = channel.getImportance();
+            } else {
+                importance = enabled ? NotificationManager.IMPORTANCE_HIGH : NotificationManager.IMPORTANCE_NONE;
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+                fullScreen = nm.canUseFullScreenIntent();
+            }
+        }
+
+        return new Snapshot(canScheduleExactAlarms(context), isBatteryOptimizationDisabled(context),
+                bucket, enabled, importance, fullScreen);
+    }
+}
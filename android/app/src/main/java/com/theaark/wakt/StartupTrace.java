@@ -0,0 +1,131 @@
+package com.theaark.wakt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Lightweight cold-start trace.
+ * MainActivity drops begin/end markers here around plugin registration and
+ * bridge creation (which runs every plugin's load()) so we can see where time
+ * goes before the WebView draws its first frame.
+ * Pure Java (no android.* imports) so it can be exercised from JVM tests.
+ */
+public final class StartupTrace {
+
+    /**
+     * A closed begin/end pair. Times are in nanoseconds relative to trace start.
+     */
+    public static final class Span {
+        public final String name;
+        public final long startNanos;
+        public final long endNanos;
+
+        Span(String name, long startNanos, long endNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.endNanos = endNanos;
+        }
+
+        public long durationMillis() {
+            return (endNanos - startNanos) / 1_000_000L;
+        }
+    }
+
+    private static final StartupTrace INSTANCE = new StartupTrace(System::nanoTime);
+
+    private final LongSupplier clock;
+    private final long originNanos;
+    private final Map<String, Long> open = new LinkedHashMap<>();
+    private final List<Span> spans = new ArrayList<>();
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    public StartupTrace(LongSupplier nanoClock) {
+        this.clock = nanoClock;
+        this.originNanos = nanoClock.getAsLong();
+    }
+
+    /**
+     * Process-wide trace used by WaktApplication and MainActivity.
+     */
+    public static StartupTrace get() {
+        return INSTANCE;
+    }
+
+    public synchronized void begin(String name) {
+        open.put(name, clock.getAsLong() - originNanos);
+    }
+
+    public synchronized void end(String name) {
+        Long start = open.remove(name);
+        if (start == null) return;
+        spans.add(new Span(name, start, clock.getAsLong() - originNanos));
+    }
+
+    /**
+     * Record a single point in time (e.g. "webview:firstFrame").
+     * Only the first occurrence of a mark is kept.
+     */
+    public synchronized void mark(String name) {
+        if (!marks.containsKey(name)) {
+            marks.put(name, clock.getAsLong() - originNanos);
+        }
+    }
+
+    public synchronized List<Span> spans() {
+        return new ArrayList<>(spans);
+    }
+
+    /**
+     * Duration of a closed span in ms, or -1 if it was never recorded.
+     */
+    public synchronized long durationMillis(String name) {
+        for (Span s : spans) {
+            if (s.name.equals(name)) return s.durationMillis();
+        }
+        return -1;
+    }
+
+    /**
+     * Milliseconds from trace origin to a mark, or -1 if not reached yet.
+     */
+    public synchronized long markMillis(String name) {
+        Long at = marks.get(name);
+        return at == null ? -1 : at / 1_000_000L;
+    }
+
+    /**
+     * Sum of all spans whose name starts with the given prefix, e.g. "bridge:".
+     */
+    public synchronized long totalMillis(String prefix) {
+        long total = 0;
+        for (Span s : spans) {
+            if (s.name.startsWith(prefix)) total += s.endNanos - s.startNanos;
+        }
+        return total / 1_000_000L;
+    }
+
+    /**
+     * Names of spans longer than the given budget.
+     */
+    public synchronized List<String> overBudget(String prefix, long budgetMillis) {
+        List<String> slow = new ArrayList<>();
+        for (Span s : spans) {
+            if (s.name.startsWith(prefix) && s.durationMillis() > budgetMillis) slow.add(s.name);
+        }
+        return slow;
+    }
+
+    public synchronized String dump() {
+        StringBuilder sb = new StringBuilder("StartupTrace");
+        for (Span s : spans) {
+            sb.append("\n  ").append(s.name).append(": ").append(s.durationMillis()).append("ms");
+        }
+        for (Map.Entry<String, Long> m : marks.entrySet()) {
+            sb.append("\n  @").append(m.getKey()).append(": ").append(m.getValue() / 1_000_000L).append("ms");
+        }
+        return sb.toString();
+    }
+}
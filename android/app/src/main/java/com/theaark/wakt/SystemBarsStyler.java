@@ -0,0 +1,119 @@
+package com.theaark.wakt;
+
+import android.view.Window;
+import android.view.WindowManager;
+import androidx.core.view.WindowCompat;
+import androidx.core.view.WindowInsetsCompat;
+import androidx.core.view.WindowInsetsControllerCompat;
+
+/**
+ * Owns the system bar styling for MainActivity's window.
+ *
+ * Window flags, edge-to-edge and the insets controller are set up once; page
+ * themes are pre-resolved color ints, and applying the theme that is already
+ * showing is a no-op. Shared by MainActivity (focus/resume) and
+ * StatusBarThemePlugin (page navigation). Main thread only, except
+ * isApplied() which is safe to call from the plugin thread.
+ */
+public class SystemBarsStyler {
+
+    public enum Theme {
+        // Home dark header
+        HOME_DARK("homeDark", 0xFF0A1612),
+        // Shared primary gradient headers (via #0A6B5D midpoint)
+        PRIMARY("primary", 0xFF0D7C66),
+        // Slightly softer primary for /80 and /90 variants
+        PRIMARY_SOFT("primarySoft", 0xFF0A6B5D),
+        PRIMARY_STRONG("primaryStrong", 0xFF0D7C66);
+
+        public final String key;
+        public final int color;
+
+        Theme(String key, int color) {
+            this.key = key;
+            this.color = color;
+        }
+
+        public static Theme fromKey(String key) {
+            if (key != null) {
+                for (Theme t : values()) {
+                    if (t.key.equals(key)) return t;
+                }
+            }
+            return PRIMARY;
+        }
+    }
+
+    private static final int NAVIGATION_BAR_COLOR = 0xFF000000;
+
+    private final Window window;
+    private WindowInsetsControllerCompat controller;
+    private volatile boolean baseApplied = false;
+
+    // Launch default until React picks a page theme.
+    private volatile Theme current = Theme.PRIMARY_SOFT;
+
+    public SystemBarsStyler(Window window) {
+        this.window = window;
+    }
+
+    /**
+     * Edge-to-edge, bar background flags, nav bar color and icon appearance.
+     * These survive focus changes, so they are only applied once.
+     */
+    private void applyBase() {
+        if (baseApplied) return;
+
+        // Edge-to-edge content: draw under system bars, but leave them visible.
+        WindowCompat.setDecorFitsSystemWindows(window, false);
+
+        // Clear translucent flags and enable drawing bar backgrounds.
+        window.clearFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS);
+        window.clearFlags(WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION);
+        window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
+
+        // Keep navigation bar solid black at the bottom.
+        window.setNavigationBarColor(NAVIGATION_BAR_COLOR);
+
+        controller = new WindowInsetsControllerCompat(window, window.getDecorView());
+        controller.show(WindowInsetsCompat.Type.statusBars());
+        controller.setAppearanceLightStatusBars(false);
+        controller.setAppearanceLightNavigationBars(false);
+        baseApplied = true;
+    }
+
+    /**
+     * Re-assert the current theme, e.g. after a focus change.
+     * Only touches the window if something else changed the bar color.
+     */
+    public void reapply() {
+        apply(current);
+    }
+
+    /**
+     * Apply a page theme.
+     *
+     * @return true if the window was changed, false if it was already in this state
+     */
+    public boolean apply(Theme theme) {
+        boolean firstApply = !baseApplied;
+        applyBase();
+        if (!firstApply && theme == current && window.getStatusBarColor() == theme.color) {
+            return false;
+        }
+        window.setStatusBarColor(theme.color);
+        current = theme;
+        return true;
+    }
+
+    /**
+     * Cheap check usable off the main thread to skip a UI-thread hop.
+     */
+    public boolean isApplied(Theme theme) {
+        return baseApplied && current == theme;
+    }
+
+    public Theme getCurrent() {
+        return current;
+    }
+}
@@ -0,0 +1,64 @@
+package com.theaark.wakt;
+
+import java.util.TimeZone;
+
+/**
+ * The bookkeeping behind AlarmScheduler's single alarm: what was delivered,
+ * what is armed, and whether a re-arm has to touch AlarmManager at all.
+ * AlarmScheduler loads it from and saves it to its state prefs around every
+ * call; AlarmSimulator keeps one in memory and drives it the same way.
+ */
+final class TimelineArming {
+
+    enum Action {
+        // Nothing is enabled: cancel the armed alarm
+        CANCEL,
+        // The armed alarm already delivers {@link #wakeup}
+        KEEP,
+        // Arm {@link #wakeup}, replacing the armed alarm
+        ARM
+    }
+
+    // End of the last delivered wakeup's events
+    long deliveredUntil;
+    // Key of the armed wakeup, null if none
+    String armedKey;
+    // When the armed wakeup fires, -1 once delivered
+    long armedAt = -1;
+    // The search start it was found from, -1 once delivered
+    long armedAfter = -1;
+
+    // Set by rearm(): the wakeup to arm or keep, null for CANCEL
+    AlarmTimeline.Wakeup wakeup;
+
+    /**
+     * Find the next wakeup and decide what to do with the armed alarm.
+     *
+     * @param live whether the armed alarm still exists; it does not survive a
+     *             reboot, and its stored state is ignored once it is gone
+     */
+    Action rearm(AlarmSettings settings, TimeZone zone, long now, boolean live, boolean exactAllowed) {
+        long after = AlarmTimeline.deliverAfter(now, deliveredUntil, live ? armedAt : -1, armedAfter);
+        wakeup = AlarmTimeline.next(settings, AlarmTimeline.times(settings, zone, now), after, exactAllowed);
+        if (wakeup == null) {
+            armedKey = null;
+            armedAt = -1;
+            armedAfter = -1;
+            return Action.CANCEL;
+        }
+        if (live && wakeup.key().equals(armedKey)) return Action.KEEP;
+        armedKey = wakeup.key();
+        armedAt = wakeup.atMillis;
+        armedAfter = after;
+        return Action.ARM;
+    }
+
+    /**
+     * The armed wakeup fired and its events were handed out
+     */
+    void delivered(long coversUntilMillis) {
+        deliveredUntil = coversUntilMillis;
+        armedAt = -1;
+        armedAfter = -1;
+    }
+}
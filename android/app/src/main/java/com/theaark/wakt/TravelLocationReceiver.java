@@ -0,0 +1,22 @@
+package com.theaark.wakt;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.google.android.gms.location.LocationResult;
+
+/**
+ * Receives the batched low-power fixes requested by TravelMode
+ */
+public class TravelLocationReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!LocationResult.hasResult(intent)) return;
+        LocationResult result = LocationResult.extractResult(intent);
+        if (result != null) {
+            TravelMode.onLocation(context, result.getLastLocation());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.theaark.wakt;
+
+import android.Manifest;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.os.Build;
+import android.util.Log;
+
+import androidx.core.content.ContextCompat;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+/**
+ * Travel mode: follow the device across cities without GPS.
+ *
+ * Registers a low-power fused location request (cell/Wi-Fi, batched, with a
+ * 20 km minimum displacement) delivered to TravelLocationReceiver through a
+ * PendingIntent, so it keeps working while the app is closed. When a fix is
+ * far enough from the location in AlarmStore, the store is updated and the
+ * move recorded. Prayer times only come from JS: if the app is open,
+ * TravelModePlugin gets one callback and JS pushes the new windows at once.
+ * Otherwise the armed alarms keep the old location's windows, so a notice
+ * asks the user to open the app, which adopts the stored location on launch
+ * (getStatus).
+ */
+public final class TravelMode {
+
+    private static final String TAG = "TravelMode";
+    static final double THRESHOLD_KM = 20;
+    private static final long INTERVAL_MS = 60 * 60_000L;
+    private static final long FASTEST_INTERVAL_MS = 15 * 60_000L;
+    // Let the provider batch fixes; a few hours late is fine for prayer times
+    private static final long MAX_DELAY_MS = 3 * INTERVAL_MS;
+    // Coarser fixes than this cannot tell a 20 km move from noise
+    private static final float MAX_ACCURACY_M = 10_000f;
+    private static final int REQUEST_CODE = 300;
+
+    private static final String PREFS = "travel_mode";
+    private static final String KEY_ENABLED = "enabled";
+    private static final String KEY_LAST_MOVE_AT = "lastMoveAt";
+    private static final String KEY_LAST_DISTANCE_KM = "lastDistanceKm";
+
+    interface Listener {
+        void onMoved(Location location, double distanceKm);
+    }
+
+    private static Listener listener;
+
+    private TravelMode() {}
+
+    static synchronized void setListener(Listener l) {
+        listener = l;
+    }
+
+    static boolean isEnabled(Context context) {
+        return prefs(context).getBoolean(KEY_ENABLED, false);
+    }
+
+    static long lastMoveAt(Context context) {
+        return prefs(context).getLong(KEY_LAST_MOVE_AT, 0);
+    }
+
+    static double lastDistanceKm(Context context) {
+        return prefs(context).getFloat(KEY_LAST_DISTANCE_KM, 0f);
+    }
+
+    static boolean hasForegroundPermission(Context context) {
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_COARSE_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Fixes are only delivered while the app is closed with background access (Android 10+)
+     */
+    static boolean hasBackgroundPermission(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) return hasForegroundPermission(context);
+        return ContextCompat.checkSelfPermission(context, Manifest.permission.ACCESS_BACKGROUND_LOCATION)
+                == PackageManager.PERMISSION_GRANTED;
+    }
+
+    /**
+     * Turn travel mode on or off and (un)register the location request.
+     *
+     * @return false if it could not be registered (e.g. no location permission)
+     */
+    static boolean setEnabled(Context context, boolean enabled) {
+        prefs(context).edit().putBoolean(KEY_ENABLED, enabled).apply();
+        if (!enabled) {
+            try {
+                LocationServices.getFusedLocationProviderClient(context).removeLocationUpdates(updatesIntent(context));
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Failed to remove location updates", e);
+            }
+            return true;
+        }
+        return register(context);
+    }
+
+    /**
+     * Re-register after boot or an app update, which drop the request
+     */
+    static void restore(Context context) {
+        if (isEnabled(context)) register(context);
+    }
+
+    private static boolean register(Context context) {
+        if (!hasForegroundPermission(context)) {
+            Log.w(TAG, "No location permission; travel mode inactive");
+            return false;
+        }
+        LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_LOW_POWER, INTERVAL_MS)
+                .setMinUpdateIntervalMillis(FASTEST_INTERVAL_MS)
+                .setMaxUpdateDelayMillis(MAX_DELAY_MS)
+                .setMinUpdateDistanceMeters((float) (THRESHOLD_KM * 1000))
+                .build();
+        try {
+            LocationServices.getFusedLocationProviderClient(context)
+                    .requestLocationUpdates(request, updatesIntent(context));
+            return true;
+        } catch (SecurityException e) {
+            Log.w(TAG, "Location updates refused", e);
+            return false;
+        }
+    }
+
+    /**
+     * Handle a fix from the location request. Stores it only when the device
+     * moved at least THRESHOLD_KM from the stored location.
+     */
+    static void onLocation(Context context, Location location) {
+        if (!isEnabled(context) || location == null) return;
+        if (location.hasAccuracy() && location.getAccuracy() > MAX_ACCURACY_M) return;
+
+        AlarmSettings settings = AlarmStore.read(context);
+        // Without a stored location any fix is an improvement; report it as 0 km
+        double moved = 0;
+        if (settings.hasLocation) {
+            moved = Gazetteer.distanceKm(settings.latitude, settings.longitude,
+                    location.getLatitude(), location.getLongitude());
+            if (moved < THRESHOLD_KM) return;
+        }
+
+        settings.hasLocation = true;
+        settings.latitude = location.getLatitude();
+        settings.longitude = location.getLongitude();
+        if (!AlarmStore.write(context, settings)) {
+            Log.w(TAG, "Failed to store travel location");
+            return;
+        }
+        prefs(context).edit()
+                .putLong(KEY_LAST_MOVE_AT, System.currentTimeMillis())
+                .putFloat(KEY_LAST_DISTANCE_KM, (float) moved)
+                .apply();
+        Log.d(TAG, "Moved " + Math.round(moved) + " km");
+        AlarmTelemetry.get(context).event("travel.moved", Math.round(moved) + " km");
+
+        Listener l;
+        synchronized (TravelMode.class) {
+            l = listener;
+        }
+        if (l != null) {
+            l.onMoved(location, moved);
+        } else {
+            postMovedNotice(context, moved);
+        }
+    }
+
+    private static void postMovedNotice(Context context, double distanceKm) {
+        NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (nm == null) return;
+        nm.notify(AdhanNotificationFactory.TRAVEL_NOTICE_ID,
+                AdhanNotificationFactory.get(context).buildTravelNotice(distanceKm));
+    }
+
+    private static PendingIntent updatesIntent(Context context) {
+        Intent intent = new Intent(context, TravelLocationReceiver.class);
+        // Mutable: the location provider adds the LocationResult extras
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT
+                | (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S ? PendingIntent.FLAG_MUTABLE : 0);
+        return PendingIntent.getBroadcast(context, REQUEST_CODE, intent, flags);
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.createDeviceProtectedStorageContext()
+                .getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
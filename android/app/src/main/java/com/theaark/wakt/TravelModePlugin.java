@@ -0,0 +1,123 @@
+package com.theaark.wakt;
+
+import android.Manifest;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.Build;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import com.getcapacitor.annotation.Permission;
+import com.getcapacitor.annotation.PermissionCallback;
+
+/**
+ * Turns TravelMode on and off and forwards its moves to JS as a single
+ * "locationChanged" event while the app is running, so the prayer windows
+ * for the new location are pushed right away.
+ *
+ * Background location is only requested here, once travel mode is on; it is
+ * what lets TravelMode notice a move while the app is closed.
+ */
+@CapacitorPlugin(
+    name = "TravelMode",
+    permissions = {
+        @Permission(strings = { Manifest.permission.ACCESS_BACKGROUND_LOCATION }, alias = "background")
+    }
+)
+public class TravelModePlugin extends Plugin {
+
+    @Override
+    public void load() {
+        super.load();
+        TravelMode.setListener((location, distanceKm) -> {
+            JSObject data = new JSObject();
+            data.put("latitude", location.getLatitude());
+            data.put("longitude", location.getLongitude());
+            data.put("accuracy", location.getAccuracy());
+            data.put("distanceKm", distanceKm);
+            data.put("at", location.getTime());
+            notifyListeners("locationChanged", data);
+        });
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        TravelMode.setListener(null);
+        super.handleOnDestroy();
+    }
+
+    @PluginMethod
+    public void getStatus(PluginCall call) {
+        // JS adopts the stored location from this, so a pending notice about a move is done
+        NotificationManager nm = (NotificationManager) getContext().getSystemService(Context.NOTIFICATION_SERVICE);
+        if (nm != null) nm.cancel(AdhanNotificationFactory.TRAVEL_NOTICE_ID);
+        call.resolve(status());
+    }
+
+    /**
+     * {enabled: boolean}. Resolves with the status; "active" is false when the
+     * request could not be registered (no location permission).
+     */
+    @PluginMethod
+    public void setEnabled(PluginCall call) {
+        Boolean enabled = call.getBoolean("enabled");
+        if (enabled == null) {
+            call.reject("Missing enabled");
+            return;
+        }
+        boolean active = TravelMode.setEnabled(getContext(), enabled);
+        JSObject ret = status();
+        ret.put("active", enabled && active);
+        call.resolve(ret);
+    }
+
+    /**
+     * Ask for location "all the time". Only while travel mode is on, and only
+     * after the foreground location permission (Android requires that order).
+     * Resolves with the status.
+     */
+    @PluginMethod
+    public void requestBackgroundPermission(PluginCall call) {
+        if (!TravelMode.isEnabled(getContext())) {
+            call.reject("Travel mode is off");
+            return;
+        }
+        if (!TravelMode.hasForegroundPermission(getContext())) {
+            call.reject("Location permission is required");
+            return;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || TravelMode.hasBackgroundPermission(getContext())) {
+            call.resolve(status());
+            return;
+        }
+        requestPermissionForAlias("background", call, "backgroundPermissionCallback");
+    }
+
+    @PermissionCallback
+    private void backgroundPermissionCallback(PluginCall call) {
+        call.resolve(status());
+    }
+
+    private JSObject status() {
+        JSObject ret = new JSObject();
+        ret.put("enabled", TravelMode.isEnabled(getContext()));
+        ret.put("locationPermission", TravelMode.hasForegroundPermission(getContext()));
+        ret.put("backgroundPermission", TravelMode.hasBackgroundPermission(getContext()));
+        ret.put("thresholdKm", TravelMode.THRESHOLD_KM);
+        long lastMoveAt = TravelMode.lastMoveAt(getContext());
+        if (lastMoveAt > 0) {
+            ret.put("lastMoveAt", lastMoveAt);
+            ret.put("lastDistanceKm", TravelMode.lastDistanceKm(getContext()));
+        }
+        // After a move while the app was closed this is where JS should be
+        AlarmSettings settings = AlarmStore.read(getContext());
+        if (settings.hasLocation) {
+            ret.put("latitude", settings.latitude);
+            ret.put("longitude", settings.longitude);
+        }
+        return ret;
+    }
+}
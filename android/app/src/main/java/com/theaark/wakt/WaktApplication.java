@@ -0,0 +1,22 @@
+package com.theaark.wakt;
+
+import android.app.Application;
+
+/**
+ * Process entry point. Nothing heavyweight belongs here: Capacitor, the
+ * WebView, OkHttp and location services all start from MainActivity or the
+ * plugins that need them.
+ *
+ * In the optional ":alarm" process (see AlarmProcess) only scheduling
+ * (AlarmScheduler, AlarmTimeline), settings (AlarmStore) and audio
+ * (AdhanService) are ever loaded, so it returns before anything else.
+ */
+public class WaktApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        if (AlarmProcess.isCurrent(this)) return;
+        StartupTrace.get().mark("application:onCreate");
+    }
+}
@@ -0,0 +1,73 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * JVM tests for what a restarted AdhanService does with a saved firing.
+ */
+public class AdhanPlaybackTest {
+
+    private static final long BOOT = 1_000_000L;
+    private static final long WALL = 1_760_000_000_000L;
+    private static final long DURATION = 180_000L;
+
+    private static AdhanPlayback playingFor(long positionMs, long duration) {
+        return AdhanPlayback.preparing("Fajr@20000", "Fajr", "05:30 - 06:45", "athan_makkah", BOOT, WALL)
+                .playing(positionMs, duration, BOOT, WALL);
+    }
+
+    @Test
+    public void resumesWhereTheAdhanWouldBeNow() {
+        AdhanPlayback state = playingFor(0, DURATION);
+        assertEquals(40_000L, state.resumePosition(BOOT + 40_000, WALL + 40_000));
+
+        // Started mid-way already (a previous resume)
+        state = playingFor(20_000, DURATION);
+        assertEquals(60_000L, state.resumePosition(BOOT + 40_000, WALL + 40_000));
+    }
+
+    @Test
+    public void finishesOnceTheAdhanWouldHaveEnded() {
+        AdhanPlayback state = playingFor(0, DURATION);
+        assertEquals(-1L, state.resumePosition(BOOT + DURATION, WALL + DURATION));
+        // Not worth resuming for the last seconds
+        assertEquals(-1L, state.resumePosition(BOOT + DURATION - 2_000, WALL + DURATION - 2_000));
+        // Unknown length is capped
+        state = playingFor(0, 0);
+        long cap = AdhanPlayback.UNKNOWN_DURATION_MS;
+        assertEquals(-1L, state.resumePosition(BOOT + cap, WALL + cap));
+    }
+
+    @Test
+    public void finishesAfterRebootOrClockChange() {
+        AdhanPlayback state = playingFor(0, DURATION);
+        // Rebooted: elapsedRealtime went back
+        assertEquals(-1L, state.resumePosition(5_000, WALL + 60_000));
+        // Rebooted long enough ago that elapsedRealtime caught up
+        assertEquals(-1L, state.resumePosition(BOOT + 30_000, WALL + 3_600_000));
+        // Wall clock a few seconds off is fine
+        assertEquals(30_000L, state.resumePosition(BOOT + 30_000, WALL + 33_000));
+    }
+
+    @Test
+    public void preparingRetriesFromTheTopOnlyBriefly() {
+        AdhanPlayback state = AdhanPlayback.preparing("Fajr@20000", "Fajr", null, null, BOOT, WALL);
+        assertEquals(0L, state.resumePosition(BOOT + 5_000, WALL + 5_000));
+        long late = AdhanPlayback.PREPARE_TIMEOUT_MS;
+        assertEquals(-1L, state.resumePosition(BOOT + late, WALL + late));
+    }
+
+    @Test
+    public void doneAndIdleNeverPlayAgain() {
+        AdhanPlayback done = playingFor(0, DURATION).done();
+        assertEquals(AdhanPlayback.Phase.DONE, done.phase);
+        assertFalse(done.isActive());
+        assertEquals(-1L, done.resumePosition(BOOT + 1_000, WALL + 1_000));
+        assertEquals(-1L, AdhanPlayback.IDLE.resumePosition(BOOT, WALL));
+        assertFalse(AdhanPlayback.IDLE.isFor(null));
+        assertTrue(done.isFor("Fajr@20000"));
+        assertFalse(done.isFor("Fajr@20001"));
+    }
+}
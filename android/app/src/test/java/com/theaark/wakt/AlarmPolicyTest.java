@@ -0,0 +1,62 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * JVM tests for how each kind of alarm event is armed.
+ */
+public class AlarmPolicyTest {
+
+    private static final long AT = 1_760_000_000_000L;
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    public void adhanUsesTheAlarmClock() {
+        AlarmPolicy.Decision d = AlarmPolicy.decide(AlarmPolicy.Kind.ADHAN, AT, true, null);
+        assertEquals(AlarmPolicy.Mechanism.ALARM_CLOCK, d.mechanism);
+        assertEquals(AT, d.triggerAtMillis);
+        assertEquals(-1, d.hostAtMillis);
+    }
+
+    @Test
+    public void notificationsAreExactWhileIdle() {
+        AlarmPolicy.Decision d = AlarmPolicy.decide(AlarmPolicy.Kind.NOTIFICATION, AT, true, null);
+        assertEquals(AlarmPolicy.Mechanism.EXACT, d.mechanism);
+        assertEquals(AT, d.triggerAtMillis);
+    }
+
+    @Test
+    public void everythingDegradesToInexactWithoutExactAlarms() {
+        for (AlarmPolicy.Kind kind : AlarmPolicy.Kind.values()) {
+            AlarmPolicy.Decision d = AlarmPolicy.decide(kind, AT, false, null);
+            assertEquals(kind.toString(), AlarmPolicy.Mechanism.INEXACT, d.mechanism);
+            assertEquals(AT, d.triggerAtMillis);
+        }
+    }
+
+    @Test
+    public void remindersShareANearbyWakeup() {
+        long[] wakeups = {AT - 30 * MINUTE, AT + 2 * MINUTE, AT + 60 * MINUTE};
+        AlarmPolicy.Decision d = AlarmPolicy.decide(AlarmPolicy.Kind.REMINDER, AT, true, wakeups);
+        assertEquals(AlarmPolicy.Mechanism.PIGGYBACK, d.mechanism);
+        assertEquals(AT + 2 * MINUTE, d.hostAtMillis);
+
+        // Sharing needs no exact alarm of its own
+        d = AlarmPolicy.decide(AlarmPolicy.Kind.REMINDER, AT, false, wakeups);
+        assertEquals(AlarmPolicy.Mechanism.PIGGYBACK, d.mechanism);
+    }
+
+    @Test
+    public void remindersBeyondTheToleranceGetTheirOwnWakeup() {
+        long tolerance = AlarmPolicy.PIGGYBACK_TOLERANCE_MS;
+        long[] wakeups = {-1, AT + tolerance + 1};
+        AlarmPolicy.Decision d = AlarmPolicy.decide(AlarmPolicy.Kind.REMINDER, AT, true, wakeups);
+        assertEquals(AlarmPolicy.Mechanism.EXACT, d.mechanism);
+        assertEquals(-1, d.hostAtMillis);
+
+        d = AlarmPolicy.decide(AlarmPolicy.Kind.REMINDER, AT, true, new long[] {AT - tolerance});
+        assertEquals(AlarmPolicy.Mechanism.PIGGYBACK, d.mechanism);
+    }
+}
@@ -0,0 +1,172 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+/**
+ * JVM tests for the AlarmSettings binary layout.
+ */
+public class AlarmSettingsTest {
+
+    // Body sizes of the older layouts, from the table in AlarmSettings
+    private static final int BODY_SIZE_V1 = 234;
+    private static final int BODY_SIZE_V2 = 795;
+
+    private static AlarmSettings sample() {
+        AlarmSettings s = new AlarmSettings();
+        s.notificationMask = 0b10111;
+        s.adhanMask = 0b00101;
+        s.soundName = "athan_madinah";
+        s.hasLocation = true;
+        s.latitude = 21.42664;
+        s.longitude = -39.82563;
+        s.method = 3;
+        s.madhab = AlarmSettings.MADHAB_HANAFI;
+        for (int i = 0; i < AlarmSettings.PRAYER_COUNT; i++) {
+            s.slotMinute[i] = 300 + 200 * i;
+            s.slotWindow[i] = "05:0" + i + " - 06:1" + i;
+            s.leadMinutes[i] = i * 10;
+            s.trailMinutes[i] = AlarmSettings.MAX_REMINDER_MINUTES - i;
+        }
+        int[] windows = new int[3 * AlarmSettings.DAY_FIELDS];
+        for (int i = 0; i < windows.length; i++) windows[i] = 29_000_000 + 37 * i;
+        s.setSchedule(windows);
+        return s;
+    }
+
+    /**
+     * {@code encoded} cut down to an older version's body, with its CRC
+     */
+    private static byte[] legacy(byte[] encoded, int version, int bodySize) {
+        ByteBuffer buf = ByteBuffer.allocate(bodySize + 4);
+        buf.put(encoded, 0, bodySize);
+        buf.put(4, (byte) version);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), 0, bodySize);
+        buf.putInt((int) crc.getValue());
+        return buf.array();
+    }
+
+    private static void assertBaseFields(AlarmSettings expected, AlarmSettings actual) {
+        assertEquals(expected.notificationMask, actual.notificationMask);
+        assertEquals(expected.adhanMask, actual.adhanMask);
+        assertEquals(expected.soundName, actual.soundName);
+        assertEquals(expected.hasLocation, actual.hasLocation);
+        assertEquals(expected.latitude, actual.latitude, 0);
+        assertEquals(expected.longitude, actual.longitude, 0);
+        assertEquals(expected.method, actual.method);
+        assertEquals(expected.madhab, actual.madhab);
+        assertArrayEquals(expected.slotMinute, actual.slotMinute);
+        assertArrayEquals(expected.slotWindow, actual.slotWindow);
+    }
+
+    @Test
+    public void roundTrips() {
+        AlarmSettings s = sample();
+        byte[] data = s.encode();
+        assertEquals(AlarmSettings.ENCODED_SIZE, data.length);
+
+        AlarmSettings d = AlarmSettings.decode(data);
+        assertNotNull(d);
+        assertBaseFields(s, d);
+        assertArrayEquals(s.leadMinutes, d.leadMinutes);
+        assertArrayEquals(s.trailMinutes, d.trailMinutes);
+        assertEquals(3, d.scheduleDays);
+        assertArrayEquals(s.schedule, d.schedule);
+        assertArrayEquals(data, d.encode());
+    }
+
+    @Test
+    public void defaultsRoundTrip() {
+        AlarmSettings d = AlarmSettings.decode(new AlarmSettings().encode());
+        assertNotNull(d);
+        assertEquals(AlarmSettings.DEFAULT_SOUND, d.soundName);
+        assertEquals(0b11111, d.notificationMask);
+        assertEquals(0, d.scheduleDays);
+        assertArrayEquals(new int[] {-1, -1, -1, -1, -1}, d.slotMinute);
+        for (int minute : d.schedule) assertEquals(-1, minute);
+    }
+
+    @Test
+    public void truncatesLongStrings() {
+        AlarmSettings s = new AlarmSettings();
+        char[] longName = new char[40];
+        Arrays.fill(longName, 'a');
+        s.soundName = new String(longName);
+        AlarmSettings d = AlarmSettings.decode(s.encode());
+        assertEquals(32, d.soundName.length());
+    }
+
+    @Test
+    public void scheduleKeepsAtMostScheduleDays() {
+        AlarmSettings s = new AlarmSettings();
+        int[] windows = new int[(AlarmSettings.SCHEDULE_DAYS + 2) * AlarmSettings.DAY_FIELDS];
+        for (int i = 0; i < windows.length; i++) windows[i] = i;
+        s.setSchedule(windows);
+        assertEquals(AlarmSettings.SCHEDULE_DAYS, s.scheduleDays);
+
+        AlarmSettings d = AlarmSettings.decode(s.encode());
+        assertEquals(AlarmSettings.SCHEDULE_DAYS, d.scheduleDays);
+        assertArrayEquals(Arrays.copyOf(windows, d.schedule.length), d.schedule);
+
+        // A shorter push clears the days it no longer covers
+        s.setSchedule(new int[AlarmSettings.DAY_FIELDS]);
+        assertEquals(1, s.scheduleDays);
+        assertEquals(-1, s.schedule[AlarmSettings.DAY_FIELDS]);
+    }
+
+    @Test
+    public void decodesVersion2WithoutReminders() {
+        AlarmSettings s = sample();
+        AlarmSettings d = AlarmSettings.decode(legacy(s.encode(), 2, BODY_SIZE_V2));
+        assertNotNull(d);
+        assertBaseFields(s, d);
+        assertEquals(3, d.scheduleDays);
+        assertArrayEquals(s.schedule, d.schedule);
+        assertArrayEquals(new int[AlarmSettings.PRAYER_COUNT], d.leadMinutes);
+        assertArrayEquals(new int[AlarmSettings.PRAYER_COUNT], d.trailMinutes);
+    }
+
+    @Test
+    public void decodesVersion1WithoutScheduleOrReminders() {
+        AlarmSettings s = sample();
+        AlarmSettings d = AlarmSettings.decode(legacy(s.encode(), 1, BODY_SIZE_V1));
+        assertNotNull(d);
+        assertBaseFields(s, d);
+        assertArrayEquals(new int[AlarmSettings.PRAYER_COUNT], d.leadMinutes);
+        assertArrayEquals(new int[AlarmSettings.PRAYER_COUNT], d.trailMinutes);
+        assertEquals(0, d.scheduleDays);
+        for (int minute : d.schedule) assertEquals(-1, minute);
+    }
+
+    @Test
+    public void rejectsDamagedData() {
+        byte[] data = sample().encode();
+        assertNull(AlarmSettings.decode(null));
+        assertNull(AlarmSettings.decode(new byte[0]));
+        assertNull(AlarmSettings.decode(Arrays.copyOf(data, data.length - 1)));
+
+        byte[] magic = data.clone();
+        magic[0] = 'X';
+        assertNull(AlarmSettings.decode(magic));
+
+        byte[] version = data.clone();
+        version[4] = AlarmSettings.VERSION + 1;
+        assertNull(AlarmSettings.decode(version));
+
+        // One flipped bit anywhere in the body fails the CRC
+        for (int i = 5; i < data.length - 4; i += 97) {
+            byte[] flipped = data.clone();
+            flipped[i] ^= 1;
+            assertNull("byte " + i, AlarmSettings.decode(flipped));
+        }
+        byte[] crc = data.clone();
+        crc[crc.length - 1] ^= 1;
+        assertNull(AlarmSettings.decode(crc));
+    }
+}
@@ -0,0 +1,509 @@
+package com.theaark.wakt;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Runs an alarm scheduling strategy against a virtual clock and
+ * FakeAlarmManager for a simulated period, with reboots, timezone changes
+ * and DST, and reports how well the prayers and reminders were delivered.
+ *
+ * The Android entry points are played by the simulator: settings and the
+ * coming days' prayer windows saved from JS (AdhanNotificationPlugin) when
+ * the app is opened, boot, clock changes and alarms
+ * (AdhanBroadcastReceiver) and the hand-off to AdhanAlarmService/AdhanService.
+ * Wake-lock time is not measured: each wakeup and hand-off adds a fixed,
+ * assumed cost, so it only compares strategies by how often they wake the
+ * device and start a service. Strategies implement
+ * what those components do with AlarmManager, so alternatives can be
+ * compared on the same scenario.
+ */
+final class AlarmSimulator {
+
+    static final long MINUTE = 60_000L;
+    static final long HOUR = 60 * MINUTE;
+    static final long DAY = 24 * HOUR;
+
+    // Assumed wake-lock costs, not measurements: onReceive, then the
+    // start-service hand-off per prayer
+    static final long RECEIVE_MS = 30;
+    static final long ADHAN_HANDOFF_MS = 600;
+    static final long NOTIFICATION_HANDOFF_MS = 150;
+
+    // Stand-in for the JS calculator: a location on New York standard time
+    // whose day length swings between about 9 and 15 hours over the year
+    static final int HOME_OFFSET_MINUTES = -5 * 60;
+    private static final int SOLAR_NOON = 11 * 60 + 55;
+    private static final long JUNE_SOLSTICE_EPOCH_DAY = CivilDate.epochDayOf(2026, 6, 21);
+
+    /**
+     * What the app does with AlarmManager in response to each entry point
+     */
+    interface Strategy {
+        String name();
+
+        void onSettingsSaved(AlarmSimulator sim);
+
+        void onAppOpened(AlarmSimulator sim);
+
+        void onBoot(AlarmSimulator sim);
+
+        void onClockChanged(AlarmSimulator sim);
+
+        void onAlarm(AlarmSimulator sim, FakeAlarmManager.Alarm alarm);
+    }
+
+    /**
+     * AlarmScheduler: one alarm for the next AlarmTimeline wakeup, re-armed
+     * on every entry point through the same TimelineArming, with
+     * FakeAlarmManager standing in for AlarmManager.
+     */
+    static final class TimelineStrategy implements Strategy {
+        private final TimelineArming arming = new TimelineArming();
+
+        @Override
+        public String name() {
+            return "timeline";
+        }
+
+        private void rearm(AlarmSimulator sim) {
+            boolean live = sim.alarmManager.has(AlarmScheduler.TIMELINE_REQUEST_CODE);
+            switch (arming.rearm(sim.settings, sim.zone, sim.now, live, sim.exactAllowed)) {
+                case CANCEL:
+                    sim.alarmManager.cancel(AlarmScheduler.TIMELINE_REQUEST_CODE);
+                    break;
+                case ARM:
+                    AlarmTimeline.Wakeup w = arming.wakeup;
+                    sim.alarmManager.set(AlarmScheduler.TIMELINE_REQUEST_CODE, type(w.decision.mechanism),
+                            sim.now, w.atMillis, w);
+                    break;
+                case KEEP:
+                default:
+                    break;
+            }
+        }
+
+        private static FakeAlarmManager.Type type(AlarmPolicy.Mechanism mechanism) {
+            switch (mechanism) {
+                case ALARM_CLOCK:
+                    return FakeAlarmManager.Type.ALARM_CLOCK;
+                case EXACT:
+                    return FakeAlarmManager.Type.EXACT;
+                default:
+                    return FakeAlarmManager.Type.INEXACT;
+            }
+        }
+
+        @Override
+        public void onSettingsSaved(AlarmSimulator sim) {
+            rearm(sim);
+        }
+
+        @Override
+        public void onAppOpened(AlarmSimulator sim) {
+            rearm(sim);
+        }
+
+        @Override
+        public void onBoot(AlarmSimulator sim) {
+            rearm(sim);
+        }
+
+        @Override
+        public void onClockChanged(AlarmSimulator sim) {
+            rearm(sim);
+        }
+
+        @Override
+        public void onAlarm(AlarmSimulator sim, FakeAlarmManager.Alarm alarm) {
+            AlarmTimeline.Wakeup w = (AlarmTimeline.Wakeup) alarm.payload;
+            arming.delivered(w.coversUntilMillis());
+            for (AlarmTimeline.Event e : w.events) {
+                sim.deliver(e.prayer, e.type, e.atMillis, e.kind == AlarmPolicy.Kind.ADHAN);
+            }
+            rearm(sim);
+        }
+    }
+
+    /**
+     * The scheduling before the timeline: JS arms one exact alarm per prayer
+     * at the next occurrence of today's local "HH:mm" whenever the app is
+     * opened, boot restores the stored slots, and nothing re-arms after an
+     * alarm fires or the clock changes. No reminders.
+     */
+    static final class PerPrayerStrategy implements Strategy {
+        private final int[] slotMinute = {-1, -1, -1, -1, -1};
+
+        @Override
+        public String name() {
+            return "per-prayer";
+        }
+
+        private void arm(AlarmSimulator sim, int prayer) {
+            long at = sim.nextOccurrence(slotMinute[prayer]);
+            FakeAlarmManager.Type type = sim.exactAllowed ? FakeAlarmManager.Type.EXACT : FakeAlarmManager.Type.INEXACT;
+            sim.alarmManager.set(AlarmScheduler.BASE_REQUEST_CODE + prayer, type, sim.now, at, prayer);
+        }
+
+        @Override
+        public void onSettingsSaved(AlarmSimulator sim) {
+            onAppOpened(sim);
+        }
+
+        @Override
+        public void onAppOpened(AlarmSimulator sim) {
+            for (int p = 0; p < AlarmSettings.PRAYER_COUNT; p++) {
+                if ((sim.settings.notificationMask & (1 << p)) == 0) {
+                    sim.alarmManager.cancel(AlarmScheduler.BASE_REQUEST_CODE + p);
+                    slotMinute[p] = -1;
+                    continue;
+                }
+                slotMinute[p] = sim.settings.slotMinute[p];
+                arm(sim, p);
+            }
+        }
+
+        @Override
+        public void onBoot(AlarmSimulator sim) {
+            for (int p = 0; p < AlarmSettings.PRAYER_COUNT; p++) {
+                if (slotMinute[p] >= 0) arm(sim, p);
+            }
+        }
+
+        @Override
+        public void onClockChanged(AlarmSimulator sim) {
+        }
+
+        @Override
+        public void onAlarm(AlarmSimulator sim, FakeAlarmManager.Alarm alarm) {
+            int prayer = (Integer) alarm.payload;
+            sim.deliver(prayer, AlarmTimeline.TYPE_PRAYER, alarm.triggerAtMillis,
+                    (sim.settings.adhanMask & (1 << prayer)) != 0);
+        }
+    }
+
+    static final class Report {
+        final String strategy;
+        int expected;
+        int delivered;
+        int missed;
+        int missedByReboot;
+        int early;
+        int duplicates;
+        int wakeups;
+        int armCalls;
+        long modelledWakeLockMs;
+        final List<Long> prayerLateness = new ArrayList<>();
+        final List<Long> reminderLateness = new ArrayList<>();
+
+        Report(String strategy) {
+            this.strategy = strategy;
+        }
+
+        static long percentile(List<Long> values, double p) {
+            if (values.isEmpty()) return 0;
+            List<Long> sorted = new ArrayList<>(values);
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(p * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+        }
+
+        long maxPrayerLatenessMs() {
+            return percentile(prayerLateness, 1.0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%-10s expected %5d delivered %5d missed %4d (reboots %d) early %d duplicates %d%n"
+                            + "           prayer lateness p50 %5.1fm p95 %5.1fm max %6.1fm; reminders p95 %5.1fm%n"
+                            + "           wakeups %5d, AlarmManager calls %5d, modelled wake lock %.1fs",
+                    strategy, expected, delivered, missed, missedByReboot, early, duplicates,
+                    percentile(prayerLateness, 0.5) / (double) MINUTE,
+                    percentile(prayerLateness, 0.95) / (double) MINUTE,
+                    percentile(prayerLateness, 1.0) / (double) MINUTE,
+                    percentile(reminderLateness, 0.95) / (double) MINUTE,
+                    wakeups, armCalls, modelledWakeLockMs / 1000.0);
+        }
+    }
+
+    private static final class Scheduled {
+        final long atMillis;
+        final Runnable action;
+
+        Scheduled(long atMillis, Runnable action) {
+            this.atMillis = atMillis;
+            this.action = action;
+        }
+    }
+
+    // A late prayer delivery is attributed to the nearest expected one within this
+    private static final long MATCH_WINDOW_MS = 3 * HOUR;
+    // Inexact alarms still waiting for their window die with a reboot
+    private static final long MAX_PENDING_MS = FakeAlarmManager.MAX_INEXACT_WINDOW_MS;
+
+    final AlarmSettings settings;
+    final boolean exactAllowed;
+    final FakeAlarmManager alarmManager;
+    TimeZone zone;
+    long now;
+
+    private final Strategy strategy;
+    private final Report report;
+    private final Random random;
+    private final List<Scheduled> external = new ArrayList<>();
+    private final List<AlarmTimeline.Event> expected = new ArrayList<>();
+    private final Map<String, Integer> deliveries = new HashMap<>();
+    private final List<long[]> offPeriods = new ArrayList<>();
+    private boolean off;
+
+    AlarmSimulator(Strategy strategy, AlarmSettings settings, TimeZone zone, boolean exactAllowed, long seed) {
+        this.strategy = strategy;
+        this.settings = settings;
+        this.zone = zone;
+        this.exactAllowed = exactAllowed;
+        this.alarmManager = new FakeAlarmManager(seed);
+        this.random = new Random(seed + 1);
+        this.report = new Report(strategy.name());
+    }
+
+    // --- Scenario -------------------------------------------------------------
+
+    AlarmSimulator reboot(long atMillis, long downMillis) {
+        external.add(new Scheduled(atMillis, () -> {
+            off = true;
+            alarmManager.clear();
+            offPeriods.add(new long[]{atMillis, atMillis + downMillis});
+        }));
+        alarmManager.interaction(atMillis + downMillis);
+        external.add(new Scheduled(atMillis + downMillis, () -> {
+            off = false;
+            strategy.onBoot(this);
+        }));
+        return this;
+    }
+
+    AlarmSimulator changeTimeZone(long atMillis, TimeZone newZone) {
+        external.add(new Scheduled(atMillis, () -> {
+            zone = newZone;
+            strategy.onClockChanged(this);
+        }));
+        return this;
+    }
+
+    /**
+     * The user opens the app on a random share of days, at a random time between 08:00 and 22:00
+     */
+    AlarmSimulator openAppDaily(long startMillis, int days, double probability) {
+        for (int d = 0; d < days; d++) {
+            if (random.nextDouble() >= probability) continue;
+            long at = startMillis + d * DAY + 8 * HOUR + (long) (random.nextDouble() * 14 * HOUR);
+            alarmManager.interaction(at);
+            external.add(new Scheduled(at, () -> {
+                if (off) return;
+                pushFromJs();
+                strategy.onAppOpened(this);
+            }));
+        }
+        return this;
+    }
+
+    /**
+     * The user picks the phone up {@code pickups} times a day, at random
+     * times between 07:00 and 23:00; the device dozes in between and overnight
+     */
+    AlarmSimulator useDeviceDaily(long startMillis, int days, int pickups) {
+        for (int d = 0; d < days; d++) {
+            for (int i = 0; i < pickups; i++) {
+                alarmManager.interaction(startMillis + d * DAY + 7 * HOUR + (long) (random.nextDouble() * 16 * HOUR));
+            }
+        }
+        return this;
+    }
+
+    // --- Run ------------------------------------------------------------------
+
+    Report run(long startMillis, int days) {
+        long end = startMillis + days * DAY;
+        now = startMillis;
+        alarmManager.interaction(startMillis);
+        expected.addAll(expectedEvents(startMillis, end));
+        report.expected = expected.size();
+
+        pushFromJs();
+        strategy.onSettingsSaved(this);
+        Collections.sort(external, (a, b) -> Long.compare(a.atMillis, b.atMillis));
+
+        int nextExternal = 0;
+        while (true) {
+            FakeAlarmManager.Alarm alarm = off ? null : alarmManager.peek();
+            long alarmAt = alarm != null ? alarm.deliverAtMillis : Long.MAX_VALUE;
+            long externalAt = nextExternal < external.size() ? external.get(nextExternal).atMillis : Long.MAX_VALUE;
+            long t = Math.min(alarmAt, externalAt);
+            if (t > end) break;
+            now = Math.max(now, t);
+            if (externalAt <= alarmAt) {
+                external.get(nextExternal++).action.run();
+            } else {
+                alarmManager.take(alarm.requestCode);
+                report.wakeups++;
+                report.modelledWakeLockMs += RECEIVE_MS;
+                strategy.onAlarm(this, alarm);
+            }
+        }
+        finish();
+        return report;
+    }
+
+    /**
+     * Everything the settings ask for in [start, end), with absolute times
+     */
+    private List<AlarmTimeline.Event> expectedEvents(long start, long end) {
+        int[] times = windows(localEpochDay(start) - 1, (int) ((end - start) / DAY) + 3);
+        List<AlarmTimeline.Event> out = new ArrayList<>();
+        for (AlarmTimeline.Event e : AlarmTimeline.events(settings, times, start - 1)) {
+            if (e.atMillis < end) out.add(e);
+        }
+        return out;
+    }
+
+    /**
+     * Record a delivery of (prayer, type) meant for {@code scheduledAtMillis}
+     */
+    void deliver(int prayer, int type, long scheduledAtMillis, boolean adhan) {
+        if (type == AlarmTimeline.TYPE_PRAYER) {
+            report.modelledWakeLockMs += adhan ? ADHAN_HANDOFF_MS : NOTIFICATION_HANDOFF_MS;
+        }
+        AlarmTimeline.Event match = null;
+        long best = Long.MAX_VALUE;
+        for (AlarmTimeline.Event e : expected) {
+            if (e.prayer != prayer || e.type != type) continue;
+            long distance = Math.abs(e.atMillis - scheduledAtMillis);
+            if (distance < best && distance <= MATCH_WINDOW_MS) {
+                best = distance;
+                match = e;
+            }
+        }
+        if (match == null) {
+            report.duplicates++;
+            return;
+        }
+        String key = match.toString();
+        int count = deliveries.containsKey(key) ? deliveries.get(key) : 0;
+        deliveries.put(key, count + 1);
+        if (count > 0) {
+            report.duplicates++;
+            return;
+        }
+        report.delivered++;
+        long lateness = now - match.atMillis;
+        if (type == AlarmTimeline.TYPE_PRAYER) {
+            if (lateness < 0) report.early++;
+            report.prayerLateness.add(lateness);
+        } else {
+            report.reminderLateness.add(lateness);
+        }
+    }
+
+    private void finish() {
+        report.armCalls = alarmManager.armCalls();
+        for (AlarmTimeline.Event e : expected) {
+            if (deliveries.containsKey(e.toString())) continue;
+            report.missed++;
+            for (long[] period : offPeriods) {
+                if (e.atMillis >= period[0] - MAX_PENDING_MS && e.atMillis < period[1]) {
+                    report.missedByReboot++;
+                    break;
+                }
+            }
+        }
+    }
+
+    // --- Helpers for strategies -------------------------------------------------
+
+    /**
+     * Packed windows (AlarmSettings.DAY_FIELDS per day) the JS calculator
+     * would give for {@code days} dates from {@code firstEpochDay}
+     */
+    static int[] windows(long firstEpochDay, int days) {
+        int[] out = new int[days * AlarmSettings.DAY_FIELDS];
+        for (int d = 0; d < days; d++) {
+            int[] today = solarDay(firstEpochDay + d);
+            int[] tomorrow = solarDay(firstEpochDay + d + 1);
+            // fajr, sunrise, dhuhr, asr, sunset, isha
+            int[] bounds = {
+                    today[0], today[1],
+                    today[2], today[3],
+                    today[3], today[4] - 5,
+                    today[4], today[5],
+                    today[5], tomorrow[0]
+            };
+            System.arraycopy(bounds, 0, out, d * AlarmSettings.DAY_FIELDS, bounds.length);
+        }
+        return out;
+    }
+
+    /**
+     * Epoch minutes of fajr, sunrise, dhuhr, asr, sunset and isha on a date
+     */
+    private static int[] solarDay(long epochDay) {
+        double season = Math.cos(2 * Math.PI * (epochDay - JUNE_SOLSTICE_EPOCH_DAY) / 365.25);
+        int halfDay = (int) Math.round(6 * 60 + 3 * 60 * season);
+        int base = (int) (epochDay * 24 * 60) - HOME_OFFSET_MINUTES;
+        return new int[]{
+                base + SOLAR_NOON - halfDay - 80,
+                base + SOLAR_NOON - halfDay,
+                base + SOLAR_NOON,
+                base + SOLAR_NOON + halfDay * 55 / 100,
+                base + SOLAR_NOON + halfDay,
+                base + SOLAR_NOON + halfDay + 80
+        };
+    }
+
+    /**
+     * What the app does when opened: arm today's slots and save the windows
+     * from yesterday on (AppContext and NotificationsPage)
+     */
+    private void pushFromJs() {
+        long today = localEpochDay(now);
+        int[] pushed = windows(today - 1, AlarmSettings.SCHEDULE_DAYS);
+        settings.setSchedule(pushed);
+        for (int p = 0; p < AlarmSettings.PRAYER_COUNT; p++) {
+            settings.slotMinute[p] = (settings.notificationMask & (1 << p)) != 0
+                    ? localMinuteOfDay(pushed[AlarmSettings.DAY_FIELDS + p * 2] * MINUTE) : -1;
+        }
+    }
+
+    long localEpochDay(long millis) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(millis);
+        return CivilDate.epochDayOf(cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+    }
+
+    int localMinuteOfDay(long millis) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(millis);
+        return cal.get(Calendar.HOUR_OF_DAY) * 60 + cal.get(Calendar.MINUTE);
+    }
+
+    /**
+     * Next occurrence of a local minute-of-day, today or tomorrow (as the old AlarmScheduler did)
+     */
+    long nextOccurrence(int minuteOfDay) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(now);
+        cal.set(Calendar.HOUR_OF_DAY, minuteOfDay / 60);
+        cal.set(Calendar.MINUTE, minuteOfDay % 60);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        if (cal.getTimeInMillis() < now) cal.add(Calendar.DAY_OF_MONTH, 1);
+        return cal.getTimeInMillis();
+    }
+}
@@ -0,0 +1,143 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+import org.junit.Test;
+
+/**
+ * A simulated year of scheduling in New York: both DST switches, a monthly
+ * reboot, two weeks in London, the phone dozing between a few pickups a day
+ * and all night, and the app opened on most days.
+ */
+public class AlarmSimulatorTest {
+
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final TimeZone LONDON = TimeZone.getTimeZone("Europe/London");
+    private static final int DAYS = 365;
+    private static final long SEED = 2026;
+
+    private static long start() {
+        Calendar cal = Calendar.getInstance(NEW_YORK);
+        cal.clear();
+        cal.set(2026, Calendar.JANUARY, 1, 0, 0);
+        return cal.getTimeInMillis();
+    }
+
+    private static AlarmSettings newYork(int adhanMask) {
+        AlarmSettings s = new AlarmSettings();
+        s.hasLocation = true;
+        s.latitude = 40.71;
+        s.longitude = -74.01;
+        s.adhanMask = adhanMask;
+        return s;
+    }
+
+    private static AlarmSimulator.Report simulate(AlarmSimulator.Strategy strategy, AlarmSettings settings,
+            boolean exactAllowed) {
+        long start = start();
+        AlarmSimulator sim = new AlarmSimulator(strategy, settings, NEW_YORK, exactAllowed, SEED);
+        for (int month = 0; month < 12; month++) {
+            // Early morning on the 15th, down for ten minutes
+            sim.reboot(start + (month * 30L + 14) * AlarmSimulator.DAY + 4 * AlarmSimulator.HOUR + 50 * AlarmSimulator.MINUTE,
+                    10 * AlarmSimulator.MINUTE);
+        }
+        sim.changeTimeZone(start + 160 * AlarmSimulator.DAY + 9 * AlarmSimulator.HOUR, LONDON);
+        sim.changeTimeZone(start + 174 * AlarmSimulator.DAY + 19 * AlarmSimulator.HOUR, NEW_YORK);
+        sim.openAppDaily(start, DAYS, 0.7);
+        sim.useDeviceDaily(start, DAYS, 6);
+        return sim.run(start, DAYS);
+    }
+
+    @Test
+    public void timelineDeliversEveryAdhanOnTimeForAYear() {
+        AlarmSimulator.Report r = simulate(new AlarmSimulator.TimelineStrategy(), newYork(0b11111), true);
+
+        assertTrue(r.expected > 5 * 360);
+        assertEquals("only events cut off by a reboot are lost", r.missedByReboot, r.missed);
+        assertEquals(0, r.early);
+        assertEquals(0, r.duplicates);
+        assertEquals(0, r.maxPrayerLatenessMs());
+        // One wakeup per prayer, none for bookkeeping, and AlarmManager is
+        // only called again when the wakeup changes
+        assertEquals(r.delivered, r.wakeups);
+        assertTrue(r.armCalls <= r.wakeups + 12 + 2 + 1);
+        assertEquals(r.wakeups * (AlarmSimulator.RECEIVE_MS + AlarmSimulator.ADHAN_HANDOFF_MS), r.modelledWakeLockMs);
+    }
+
+    @Test
+    public void notificationsAreOnTimeThroughDoze() {
+        AlarmSimulator.Report r = simulate(new AlarmSimulator.TimelineStrategy(), newYork(0), true);
+
+        assertEquals(r.missedByReboot, r.missed);
+        assertEquals(0, r.early);
+        assertEquals(0, r.duplicates);
+        assertEquals(0, r.maxPrayerLatenessMs());
+    }
+
+    @Test
+    public void withoutExactAlarmsEventsAreLateByAtMostTheInexactWindow() {
+        AlarmSimulator.Report r = simulate(new AlarmSimulator.TimelineStrategy(), newYork(0b11111), false);
+
+        assertEquals(r.missedByReboot, r.missed);
+        assertEquals(0, r.early);
+        assertEquals(0, r.duplicates);
+        assertTrue(r.maxPrayerLatenessMs() <= FakeAlarmManager.MAX_INEXACT_WINDOW_MS);
+    }
+
+    @Test
+    public void setWindowWouldHoldOvernightPrayersForHours() {
+        FakeAlarmManager am = new FakeAlarmManager(SEED);
+        long evening = start() + 22 * AlarmSimulator.HOUR;
+        long fajr = start() + AlarmSimulator.DAY + 5 * AlarmSimulator.HOUR;
+        am.interaction(evening);
+
+        assertTrue(am.isDozing(fajr));
+        am.set(1, FakeAlarmManager.Type.WINDOW, evening, fajr, null);
+        am.set(2, FakeAlarmManager.Type.EXACT, evening, fajr, null);
+        am.set(3, FakeAlarmManager.Type.ALARM_CLOCK, evening, fajr, null);
+        // Maintenance windows 1, 3 and 7 hours into Doze, which starts at 22:35
+        assertEquals(evening + 35 * AlarmSimulator.MINUTE + 7 * AlarmSimulator.HOUR, am.take(1).deliverAtMillis);
+        assertEquals(fajr, am.take(2).deliverAtMillis);
+        assertEquals(fajr, am.take(3).deliverAtMillis);
+    }
+
+    @Test
+    public void exactWhileIdleAlarmsAreSpacedWhileDozing() {
+        FakeAlarmManager am = new FakeAlarmManager(SEED);
+        long evening = start() + 22 * AlarmSimulator.HOUR;
+        long fajr = start() + AlarmSimulator.DAY + 5 * AlarmSimulator.HOUR;
+        am.interaction(evening);
+
+        am.set(1, FakeAlarmManager.Type.EXACT, evening, fajr, null);
+        am.take(1);
+        am.set(1, FakeAlarmManager.Type.EXACT, fajr, fajr + 4 * AlarmSimulator.MINUTE, null);
+        assertEquals(fajr + FakeAlarmManager.WHILE_IDLE_INTERVAL_MS, am.peek().deliverAtMillis);
+    }
+
+    @Test
+    public void shortRemindersShareThePrayerWakeup() {
+        AlarmSettings plain = newYork(0b11111);
+        AlarmSettings reminded = newYork(0b11111);
+        for (int p = 0; p < AlarmSettings.PRAYER_COUNT; p++) {
+            reminded.leadMinutes[p] = 2;
+        }
+        AlarmSimulator.Report without = simulate(new AlarmSimulator.TimelineStrategy(), plain, true);
+        AlarmSimulator.Report with = simulate(new AlarmSimulator.TimelineStrategy(), reminded, true);
+
+        assertEquals(2 * without.expected, with.expected);
+        assertEquals(with.missedByReboot, with.missed);
+        assertEquals(without.wakeups, with.wakeups);
+    }
+
+    @Test
+    public void timelineMissesFewerAlarmsThanPerPrayerScheduling() {
+        AlarmSimulator.Report timeline = simulate(new AlarmSimulator.TimelineStrategy(), newYork(0b11111), true);
+        AlarmSimulator.Report perPrayer = simulate(new AlarmSimulator.PerPrayerStrategy(), newYork(0b11111), true);
+
+        assertEquals(timeline.expected, perPrayer.expected);
+        assertTrue(timeline.missed < perPrayer.missed);
+        assertTrue(timeline.maxPrayerLatenessMs() <= perPrayer.maxPrayerLatenessMs());
+    }
+}
@@ -0,0 +1,193 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import org.junit.Test;
+
+/**
+ * JVM tests for AlarmTimeline around DST boundaries and timezone changes,
+ * and for how pushed windows and slot times are combined.
+ * New York switches on 2026-03-08 (02:00 -> 03:00) and 2026-11-01 (02:00 -> 01:00).
+ */
+public class AlarmTimelineTest {
+
+    private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+    private static final long HOUR = 3_600_000L;
+    private static final int FIELDS = AlarmSettings.DAY_FIELDS;
+
+    private static AlarmSettings slots(int... minutes) {
+        AlarmSettings s = new AlarmSettings();
+        System.arraycopy(minutes, 0, s.slotMinute, 0, minutes.length);
+        return s;
+    }
+
+    private static long fajr(int[] times, int day) {
+        return times[day * FIELDS] * 60_000L;
+    }
+
+    private static int localHour(long millis, TimeZone zone) {
+        Calendar cal = Calendar.getInstance(zone);
+        cal.setTimeInMillis(millis);
+        return cal.get(Calendar.HOUR_OF_DAY);
+    }
+
+    @Test
+    public void slotsKeepLocalTimeAcrossSpringForward() {
+        int[] times = AlarmTimeline.fromSlots(slots(5 * 60 + 30), NEW_YORK, 2026, 3, 7, 3);
+
+        assertEquals(23 * HOUR, fajr(times, 1) - fajr(times, 0));
+        assertEquals(24 * HOUR, fajr(times, 2) - fajr(times, 1));
+        for (int d = 0; d < 3; d++) {
+            assertEquals(5, localHour(fajr(times, d), NEW_YORK));
+        }
+    }
+
+    @Test
+    public void slotsKeepLocalTimeAcrossFallBack() {
+        int[] times = AlarmTimeline.fromSlots(slots(5 * 60 + 30), NEW_YORK, 2026, 10, 31, 3);
+
+        assertEquals(25 * HOUR, fajr(times, 1) - fajr(times, 0));
+        assertEquals(24 * HOUR, fajr(times, 2) - fajr(times, 1));
+        for (int d = 0; d < 3; d++) {
+            assertEquals(5, localHour(fajr(times, d), NEW_YORK));
+        }
+    }
+
+    @Test
+    public void slotInSkippedHourFiresOnceThatDay() {
+        // 02:30 does not exist on 2026-03-08; it lands at 03:30 EDT
+        int[] times = AlarmTimeline.fromSlots(slots(2 * 60 + 30), NEW_YORK, 2026, 3, 7, 3);
+
+        assertEquals(3, localHour(fajr(times, 1), NEW_YORK));
+        assertTrue(fajr(times, 1) > fajr(times, 0));
+        assertTrue(fajr(times, 2) > fajr(times, 1));
+    }
+
+    @Test
+    public void pushedWindowsAreUsedWhileTheyReachAhead() {
+        AlarmSettings s = slots(5 * 60);
+        long now = 1_780_000_000_000L;
+        s.setSchedule(AlarmSimulator.windows(now / AlarmSimulator.DAY, 5));
+
+        int[] times = AlarmTimeline.times(s, NEW_YORK, now);
+        assertEquals(5 * FIELDS, times.length);
+        assertEquals(s.schedule[0], times[0]);
+        assertEquals(s.schedule[4 * FIELDS + 9], times[4 * FIELDS + 9]);
+    }
+
+    @Test
+    public void slotsTakeOverOnTheDayAfterThePushedWindows() {
+        AlarmSettings s = slots(5 * 60);
+        // Pushed for 2026-03-06 and 03-07 only
+        s.setSchedule(AlarmSimulator.windows(CivilDate.epochDayOf(2026, 3, 6), 2));
+        long now = s.schedule[FIELDS] * 60_000L;
+
+        int[] times = AlarmTimeline.times(s, NEW_YORK, now);
+        assertEquals((2 + AlarmTimeline.HORIZON_DAYS) * FIELDS, times.length);
+        // Slot Fajr from 2026-03-08 on, without window ends
+        assertEquals(AlarmTimeline.fromSlots(s, NEW_YORK, 2026, 3, 8, 1)[0], times[2 * FIELDS]);
+        assertEquals(-1, times[2 * FIELDS + 1]);
+        for (int d = 1; d < 2 + AlarmTimeline.HORIZON_DAYS; d++) {
+            assertTrue(fajr(times, d) > fajr(times, d - 1));
+        }
+    }
+
+    @Test
+    public void walkingTheTimelineAcrossDstDeliversEachEventOnce() {
+        AlarmSettings s = slots(5 * 60, 13 * 60, 16 * 60, 18 * 60 + 30, 20 * 60);
+        s.leadMinutes[0] = 15;
+        int[] times = AlarmTimeline.fromSlots(s, NEW_YORK, 2026, 3, 6, 5);
+        int expected = AlarmTimeline.events(s, times, Long.MIN_VALUE).size();
+
+        Set<String> delivered = new HashSet<>();
+        long after = Long.MIN_VALUE;
+        long lastAt = Long.MIN_VALUE;
+        AlarmTimeline.Wakeup w;
+        while ((w = AlarmTimeline.next(s, times, after, true)) != null) {
+            assertTrue(w.atMillis > lastAt);
+            for (AlarmTimeline.Event e : w.events) {
+                assertTrue("delivered twice: " + e, delivered.add(e.toString()));
+            }
+            lastAt = w.atMillis;
+            after = w.coversUntilMillis();
+        }
+        assertEquals(expected, delivered.size());
+    }
+
+    @Test
+    public void prayerIsNeverDeliveredEarly() {
+        AlarmSettings s = slots(5 * 60);
+        s.leadMinutes[0] = 2;
+        int[] times = AlarmTimeline.fromSlots(s, NEW_YORK, 2026, 3, 8, 1);
+
+        AlarmTimeline.Wakeup w = AlarmTimeline.next(s, times, Long.MIN_VALUE, true);
+        // The reminder rides on the prayer's wakeup rather than the prayer moving up
+        assertEquals(fajr(times, 0), w.atMillis);
+        List<AlarmTimeline.Event> events = w.events;
+        assertEquals(2, events.size());
+        assertEquals(AlarmTimeline.TYPE_LEAD, events.get(0).type);
+        assertEquals(AlarmTimeline.TYPE_PRAYER, events.get(1).type);
+    }
+
+    @Test
+    public void rearmingKeepsAReminderHeldForItsPrayer() {
+        AlarmSettings s = slots(5 * 60);
+        s.leadMinutes[0] = 2;
+        int[] times = AlarmTimeline.fromSlots(s, NEW_YORK, 2026, 3, 8, 1);
+        long armedAfter = fajr(times, 0) - HOUR;
+        AlarmTimeline.Wakeup armed = AlarmTimeline.next(s, times, armedAfter, true);
+
+        // The app is opened between the reminder and the prayer it rides on
+        long now = fajr(times, 0) - 60_000L;
+        long after = AlarmTimeline.deliverAfter(now, 0, armed.atMillis, armedAfter);
+        assertEquals(armed.key(), AlarmTimeline.next(s, times, after, true).key());
+        // Without a live alarm nothing before now is searched
+        assertEquals(now, AlarmTimeline.deliverAfter(now, 0, -1, armedAfter));
+    }
+
+    @Test
+    public void timezoneChangeMovesSlotWakeupAndItsKey() {
+        AlarmSettings s = slots(5 * 60);
+        int[] london = AlarmTimeline.fromSlots(s, TimeZone.getTimeZone("Europe/London"), 2026, 6, 1, 2);
+        int[] dubai = AlarmTimeline.fromSlots(s, TimeZone.getTimeZone("Asia/Dubai"), 2026, 6, 1, 2);
+
+        AlarmTimeline.Wakeup inLondon = AlarmTimeline.next(s, london, Long.MIN_VALUE, true);
+        AlarmTimeline.Wakeup inDubai = AlarmTimeline.next(s, dubai, Long.MIN_VALUE, true);
+        assertEquals(3 * HOUR, inLondon.atMillis - inDubai.atMillis);
+        assertNotEquals(inLondon.key(), inDubai.key());
+
+        AlarmTimeline.Wakeup again = AlarmTimeline.next(s, london, Long.MIN_VALUE, true);
+        assertEquals(inLondon.key(), again.key());
+    }
+
+    @Test
+    public void trailRemindersUsePushedWindowEnds() {
+        AlarmSettings s = new AlarmSettings();
+        s.notificationMask = 0;
+        s.trailMinutes[2] = 10;
+        s.trailMinutes[4] = 30;
+        int[] windows = AlarmSimulator.windows(CivilDate.epochDayOf(2026, 10, 31), 2);
+        s.setSchedule(windows);
+
+        List<AlarmTimeline.Event> events = AlarmTimeline.events(s, windows, Long.MIN_VALUE);
+        assertEquals(4, events.size());
+        // Asr's end as pushed (before sunset), Isha's at the next Fajr
+        assertEquals((windows[5] - 10) * 60_000L, events.get(0).atMillis);
+        assertEquals((windows[9] - 30) * 60_000L, events.get(1).atMillis);
+        assertEquals(fajr(windows, 1) - 30 * 60_000L, events.get(1).atMillis);
+    }
+
+    @Test
+    public void slotDaysHaveNoTrailReminders() {
+        AlarmSettings s = slots(5 * 60, 13 * 60, 16 * 60, 18 * 60 + 30, 20 * 60);
+        s.notificationMask = 0;
+        s.trailMinutes[2] = 10;
+
+        assertTrue(AlarmTimeline.events(s, AlarmTimeline.fromSlots(s, NEW_YORK, 2026, 6, 1, 3), Long.MIN_VALUE).isEmpty());
+    }
+}
@@ -0,0 +1,173 @@
+package com.theaark.wakt;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * AlarmManager stand-in for AlarmSimulator. Alarms are keyed by request code
+ * (one PendingIntent each, re-setting replaces) and get a delivery time when
+ * armed, from a device model close to deep Doze:
+ *
+ * - the screen stays on for a few minutes after every interaction (pickups,
+ *   app opens, boot); half an hour after it goes off the device dozes until
+ *   the next interaction;
+ * - while dozing, maintenance windows open 1, 3, 7, 13, 19... hours in,
+ *   the gap doubling up to six hours;
+ * - setAlarmClock fires on time;
+ * - setExactAndAllowWhileIdle fires on time, but at most once per nine
+ *   minutes while dozing;
+ * - inexact setAndAllowWhileIdle gets the platform's heuristic window (75%
+ *   of the time until the trigger, 10 minutes to an hour), then the same
+ *   while-idle limit;
+ * - setWindow is held until a maintenance window or the next interaction
+ *   while dozing.
+ *
+ * Interactions are registered up front, so the delivery time is final when
+ * the alarm is armed.
+ */
+final class FakeAlarmManager {
+
+    enum Type { ALARM_CLOCK, EXACT, WINDOW, INEXACT }
+
+    static final long MINUTE = 60_000L;
+    static final long HOUR = 60 * MINUTE;
+    static final long SCREEN_ON_MS = 5 * MINUTE;
+    static final long IDLE_AFTER_MS = 30 * MINUTE;
+    static final long FIRST_MAINTENANCE_MS = HOUR;
+    static final long MAX_MAINTENANCE_INTERVAL_MS = 6 * HOUR;
+    static final long WHILE_IDLE_INTERVAL_MS = 9 * MINUTE;
+    static final long WINDOW_MS = 10 * MINUTE;
+    static final long MIN_INEXACT_WINDOW_MS = 10 * MINUTE;
+    static final long MAX_INEXACT_WINDOW_MS = HOUR;
+
+    static final class Alarm {
+        final int requestCode;
+        final Type type;
+        final long triggerAtMillis;
+        final long deliverAtMillis;
+        final Object payload;
+
+        Alarm(int requestCode, Type type, long triggerAtMillis, long deliverAtMillis, Object payload) {
+            this.requestCode = requestCode;
+            this.type = type;
+            this.triggerAtMillis = triggerAtMillis;
+            this.deliverAtMillis = deliverAtMillis;
+            this.payload = payload;
+        }
+    }
+
+    private final Map<Integer, Alarm> alarms = new HashMap<>();
+    private final TreeSet<Long> interactions = new TreeSet<>();
+    private final Random random;
+    private long lastWhileIdle = -1;
+    private int armCalls;
+
+    FakeAlarmManager(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * The user turns the screen on at {@code atMillis}
+     */
+    void interaction(long atMillis) {
+        interactions.add(atMillis);
+    }
+
+    void set(int requestCode, Type type, long nowMillis, long triggerAtMillis, Object payload) {
+        armCalls++;
+        alarms.put(requestCode, new Alarm(requestCode, type, triggerAtMillis,
+                deliveryTime(type, nowMillis, Math.max(triggerAtMillis, nowMillis)), payload));
+    }
+
+    void cancel(int requestCode) {
+        alarms.remove(requestCode);
+    }
+
+    boolean has(int requestCode) {
+        return alarms.containsKey(requestCode);
+    }
+
+    /**
+     * Reboot: nothing survives
+     */
+    void clear() {
+        alarms.clear();
+    }
+
+    int armCalls() {
+        return armCalls;
+    }
+
+    /**
+     * The alarm delivered next, or null if none is armed
+     */
+    Alarm peek() {
+        Alarm next = null;
+        for (Alarm a : alarms.values()) {
+            if (next == null || a.deliverAtMillis < next.deliverAtMillis) next = a;
+        }
+        return next;
+    }
+
+    Alarm take(int requestCode) {
+        Alarm alarm = alarms.remove(requestCode);
+        if (alarm != null && (alarm.type == Type.EXACT || alarm.type == Type.INEXACT)
+                && isDozing(alarm.deliverAtMillis)) {
+            lastWhileIdle = alarm.deliverAtMillis;
+        }
+        return alarm;
+    }
+
+    boolean isDozing(long millis) {
+        return idleSince(millis) != Long.MIN_VALUE;
+    }
+
+    /**
+     * When a setWindow alarm due at {@code millis} is let through
+     */
+    long wakesAt(long millis) {
+        long idle = idleSince(millis);
+        if (idle == Long.MIN_VALUE) return millis;
+        long interval = FIRST_MAINTENANCE_MS;
+        long maintenance = idle + interval;
+        while (maintenance < millis) {
+            interval = Math.min(2 * interval, MAX_MAINTENANCE_INTERVAL_MS);
+            maintenance += interval;
+        }
+        Long next = interactions.ceiling(millis);
+        return next != null ? Math.min(maintenance, next) : maintenance;
+    }
+
+    /**
+     * Start of the Doze period {@code millis} falls in, Long.MIN_VALUE if awake
+     */
+    private long idleSince(long millis) {
+        Long last = interactions.floor(millis);
+        if (last == null) return Long.MIN_VALUE;
+        long idle = last + SCREEN_ON_MS + IDLE_AFTER_MS;
+        return millis >= idle ? idle : Long.MIN_VALUE;
+    }
+
+    private long deliveryTime(Type type, long nowMillis, long triggerAtMillis) {
+        switch (type) {
+            case ALARM_CLOCK:
+                return triggerAtMillis;
+            case EXACT:
+                return whileIdle(triggerAtMillis);
+            case WINDOW:
+                return wakesAt(triggerAtMillis + (long) (random.nextDouble() * WINDOW_MS));
+            case INEXACT:
+            default:
+                long window = (long) (0.75 * (triggerAtMillis - nowMillis));
+                window = Math.max(MIN_INEXACT_WINDOW_MS, Math.min(MAX_INEXACT_WINDOW_MS, window));
+                return whileIdle(triggerAtMillis + (long) (random.nextDouble() * window));
+        }
+    }
+
+    private long whileIdle(long millis) {
+        if (lastWhileIdle < 0 || !isDozing(millis)) return millis;
+        return Math.max(millis, lastWhileIdle + WHILE_IDLE_INTERVAL_MS);
+    }
+}
@@ -0,0 +1,249 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * JVM tests for reading the gazetteer format, over small files written the
+ * way scripts/build_gazetteer.py writes them.
+ */
+public class GazetteerTest {
+
+    private static final int CELL_DEGREES = 2;
+
+    private static final class City {
+        final String name;
+        final double lat;
+        final double lng;
+        final String cc;
+        final long pop;
+        final String tz;
+        final String[] alternates;
+
+        City(String name, double lat, double lng, String cc, long pop, String tz, String... alternates) {
+            this.name = name;
+            this.lat = lat;
+            this.lng = lng;
+            this.cc = cc;
+            this.pop = pop;
+            this.tz = tz;
+            this.alternates = alternates;
+        }
+    }
+
+    private static final City[] CITIES = {
+            new City("London", 51.50853, -0.12574, "GB", 8_961_989, "Europe/London"),
+            new City("Londonderry", 54.9981, -7.30934, "GB", 83_652, "Europe/London", "Derry"),
+            new City("London", 42.98339, -81.23304, "CA", 346_765, "America/Toronto"),
+            new City("Mecca", 21.42664, 39.82563, "SA", 1_323_624, "Asia/Riyadh", "Makkah"),
+            new City("Medina", 24.46861, 39.61417, "SA", 1_300_000, "Asia/Riyadh", "Al-Madinah al-Munawwarah"),
+            new City("Zürich", 47.36667, 8.55, "CH", 341_730, "Europe/Zurich", "Zurich"),
+            new City("São Paulo", -23.5475, -46.63611, "BR", 10_021_295, "America/Sao_Paulo"),
+            new City("Suva", -18.14161, 178.44149, "FJ", 77_366, "Pacific/Fiji"),
+            new City("Taveuni", -16.85, -179.95, "FJ", 9_000, "Pacific/Fiji"),
+    };
+
+    private static final Map<String, String> COUNTRIES = new LinkedHashMap<>();
+
+    static {
+        COUNTRIES.put("BR", "Brazil");
+        COUNTRIES.put("CA", "Canada");
+        COUNTRIES.put("CH", "Switzerland");
+        COUNTRIES.put("FJ", "Fiji");
+        COUNTRIES.put("GB", "United Kingdom");
+        COUNTRIES.put("SA", "Saudi Arabia");
+    }
+
+    private static int cellOf(double lat, double lng) {
+        int rows = 180 / CELL_DEGREES;
+        int cols = 360 / CELL_DEGREES;
+        int row = Math.min(rows - 1, Math.max(0, (int) Math.floor((lat + 90) / CELL_DEGREES)));
+        int col = Math.floorMod((int) Math.floor((lng + 180) / CELL_DEGREES), cols);
+        return row * cols + col;
+    }
+
+    private static final class Strings {
+        final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        final Map<String, Integer> offsets = new LinkedHashMap<>();
+
+        int add(String s) {
+            Integer offset = offsets.get(s);
+            if (offset != null) return offset;
+            byte[] data = s.getBytes(StandardCharsets.UTF_8);
+            offset = pool.size();
+            pool.write(data.length);
+            pool.write(data, 0, data.length);
+            offsets.put(s, offset);
+            return offset;
+        }
+    }
+
+    /**
+     * Version 1 file for {@code cities}, as build_gazetteer.py lays it out
+     */
+    private static byte[] build(City[] input) {
+        List<City> cities = new ArrayList<>(Arrays.asList(input));
+        cities.sort(Comparator.<City>comparingInt(c -> cellOf(c.lat, c.lng)).thenComparingLong(c -> -c.pop));
+        List<String> tzs = new ArrayList<>(new TreeSet<String>() {{
+            for (City c : cities) add(c.tz);
+        }});
+        List<String> ccs = new ArrayList<>(COUNTRIES.keySet());
+        Strings strings = new Strings();
+
+        ByteBuffer body = ByteBuffer.allocate(1 << 20);
+        for (String tz : tzs) body.putInt(strings.add(tz));
+        for (String cc : ccs) {
+            body.put(cc.getBytes(StandardCharsets.US_ASCII));
+            body.putInt(strings.add(COUNTRIES.get(cc)));
+        }
+        int cellCount = (180 / CELL_DEGREES) * (360 / CELL_DEGREES);
+        int[] grid = new int[cellCount + 1];
+        for (City c : cities) grid[cellOf(c.lat, c.lng) + 1]++;
+        for (int i = 1; i < grid.length; i++) grid[i] += grid[i - 1];
+        for (int g : grid) body.putInt(g);
+
+        List<Object[]> names = new ArrayList<>();
+        for (int i = 0; i < cities.size(); i++) {
+            City c = cities.get(i);
+            body.putInt((int) Math.round(c.lat * 1e5));
+            body.putInt((int) Math.round(c.lng * 1e5));
+            body.putInt(strings.add(c.name));
+            body.putInt((int) c.pop);
+            body.putShort((short) tzs.indexOf(c.tz));
+            body.putShort((short) ccs.indexOf(c.cc));
+            TreeSet<String> keys = new TreeSet<>();
+            keys.add(Gazetteer.normalize(c.name));
+            for (String a : c.alternates) keys.add(Gazetteer.normalize(a));
+            for (String k : keys) names.add(new Object[]{k.getBytes(StandardCharsets.UTF_8), i});
+        }
+        names.sort((a, b) -> {
+            int cmp = Arrays.compareUnsigned((byte[]) a[0], (byte[]) b[0]);
+            return cmp != 0 ? cmp : Integer.compare((Integer) a[1], (Integer) b[1]);
+        });
+        for (Object[] n : names) {
+            body.putInt(strings.add(new String((byte[]) n[0], StandardCharsets.UTF_8)));
+            body.putInt((Integer) n[1]);
+        }
+
+        byte[] pool = strings.pool.toByteArray();
+        ByteBuffer out = ByteBuffer.allocate(24 + body.position() + pool.length);
+        out.put(new byte[]{'W', 'G', 'A', 'Z', 1, CELL_DEGREES, 0, 0});
+        out.putInt(cities.size());
+        out.putInt(names.size());
+        out.putShort((short) tzs.size());
+        out.putShort((short) ccs.size());
+        out.putInt(pool.length);
+        out.put(body.array(), 0, body.position());
+        out.put(pool);
+        return out.array();
+    }
+
+    private static Gazetteer gazetteer() {
+        Gazetteer g = Gazetteer.open(ByteBuffer.wrap(build(CITIES)));
+        assertNotNull(g);
+        return g;
+    }
+
+    private static List<String> names(List<Gazetteer.Place> places) {
+        List<String> out = new ArrayList<>();
+        for (Gazetteer.Place p : places) out.add(p.name + "/" + p.countryCode);
+        return out;
+    }
+
+    @Test
+    public void readsRecords() {
+        Gazetteer g = gazetteer();
+        assertEquals(CITIES.length, g.size());
+
+        Gazetteer.Place mecca = g.search("Mecca", 1).get(0);
+        assertEquals("Mecca", mecca.name);
+        assertEquals("Saudi Arabia", mecca.country);
+        assertEquals("SA", mecca.countryCode);
+        assertEquals("Asia/Riyadh", mecca.timezone);
+        assertEquals(21.42664, mecca.latitude, 1e-9);
+        assertEquals(39.82563, mecca.longitude, 1e-9);
+        assertEquals(1_323_624, mecca.population);
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        byte[] file = build(CITIES);
+        assertNull(Gazetteer.open(null));
+        assertNull(Gazetteer.open(ByteBuffer.wrap(new byte[8])));
+
+        byte[] magic = file.clone();
+        magic[0] = 'X';
+        assertNull(Gazetteer.open(ByteBuffer.wrap(magic)));
+
+        byte[] version = file.clone();
+        version[4] = 2;
+        assertNull(Gazetteer.open(ByteBuffer.wrap(version)));
+
+        byte[] cell = file.clone();
+        cell[5] = 7;
+        assertNull(Gazetteer.open(ByteBuffer.wrap(cell)));
+
+        assertNull(Gazetteer.open(ByteBuffer.wrap(Arrays.copyOf(file, file.length - 1))));
+    }
+
+    @Test
+    public void searchMatchesPrefixesMostPopulousFirst() {
+        Gazetteer g = gazetteer();
+        assertEquals(Arrays.asList("London/GB", "London/CA", "Londonderry/GB"), names(g.search("lond", 10)));
+        assertEquals(Arrays.asList("London/GB", "London/CA"), names(g.search("Lond", 2)));
+        assertEquals(Arrays.asList("Londonderry/GB"), names(g.search("londonde", 10)));
+        // Past the last key and before the first
+        assertTrue(g.search("zz", 10).isEmpty());
+        assertTrue(g.search("0", 10).isEmpty());
+        assertTrue(g.search("  ", 10).isEmpty());
+        assertTrue(g.search("London", 0).isEmpty());
+    }
+
+    @Test
+    public void searchFoldsCaseAccentsAndAlternateNames() {
+        Gazetteer g = gazetteer();
+        assertEquals(Arrays.asList("São Paulo/BR"), names(g.search("SAO PAULO", 10)));
+        assertEquals(Arrays.asList("São Paulo/BR"), names(g.search("sao-pau", 10)));
+        assertEquals(Arrays.asList("Zürich/CH"), names(g.search("zurich", 10)));
+        assertEquals(Arrays.asList("Mecca/SA"), names(g.search("Makkah", 10)));
+        assertEquals(Arrays.asList("Medina/SA"), names(g.search("al madinah", 10)));
+        // A city matched by two keys is listed once
+        assertEquals(Arrays.asList("Mecca/SA", "Medina/SA"), names(g.search("m", 10)));
+    }
+
+    @Test
+    public void normalizeMatchesTheBuildScript() {
+        assertEquals("sao paulo", Gazetteer.normalize("  São-Paulo! "));
+        assertEquals("al madinah al munawwarah", Gazetteer.normalize("Al-Madinah al-Munawwarah"));
+        assertEquals("zurich", Gazetteer.normalize("ZÜRICH"));
+        assertEquals("", Gazetteer.normalize("--"));
+    }
+
+    @Test
+    public void nearestWalksOutwardFromTheQueryCell() {
+        Gazetteer g = gazetteer();
+        Gazetteer.Place p = g.nearest(51.5, -0.1);
+        assertEquals("London", p.name);
+        assertEquals("GB", p.countryCode);
+        assertTrue(p.distanceKm < 3);
+
+        // Nothing in the query cell; Medina is in the next ring, Mecca three rings out
+        assertEquals("Medina", g.nearest(27.5, 39.6).name);
+        // Across the antimeridian
+        assertEquals("Taveuni", g.nearest(-16.9, 179.9).name);
+        // Nothing within the searched rings
+        assertNull(g.nearest(-80, 0));
+    }
+}
@@ -0,0 +1,77 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * JVM tests for merging bridge measurements, driven by a fake clock.
+ */
+public class PluginProfilerTest {
+
+    private long now = 0;
+
+    private static long[] histogram(int... counts) {
+        long[] h = new long[PluginProfiler.BUCKETS_MS.length + 1];
+        for (int i = 0; i < counts.length; i++) h[i] = counts[i];
+        return h;
+    }
+
+    @Test
+    public void mergesBatchesPerMethod() {
+        PluginProfiler profiler = new PluginProfiler(() -> now);
+        profiler.addCalls("PrayerTimes.getTimes", 3, 0, 12, 6, 90, 600, histogram(0, 0, 2, 1));
+        profiler.addCalls("PrayerTimes.getTimes", 1, 1, 30, 30, 30, 0, histogram(0, 0, 0, 0, 0, 1));
+
+        PluginProfiler.MethodStats s = profiler.methods().get("PrayerTimes.getTimes");
+        assertEquals(4, s.calls);
+        assertEquals(1, s.errors);
+        assertEquals(10, s.meanMs());
+        assertEquals(30, s.maxMs);
+        assertEquals(120, s.requestBytes);
+        assertEquals(600, s.responseBytes);
+        assertEquals(2, s.histogram[2]);
+        assertEquals(1, s.histogram[5]);
+    }
+
+    @Test
+    public void percentilesUseBucketBounds() {
+        PluginProfiler profiler = new PluginProfiler(() -> now);
+        // 19 calls under 5 ms, one slow one past the last bound
+        long[] h = histogram(0, 0, 19);
+        h[PluginProfiler.BUCKETS_MS.length] = 1;
+        profiler.addCalls("Gazetteer.search", 20, 0, 1_300, 1_200, 0, 0, h);
+
+        PluginProfiler.MethodStats s = profiler.methods().get("Gazetteer.search");
+        assertEquals(5, s.percentileMs(0.5));
+        assertEquals(5, s.percentileMs(0.95));
+        assertEquals(1_200, s.percentileMs(1.0));
+    }
+
+    @Test
+    public void ignoresMismatchedHistograms() {
+        PluginProfiler profiler = new PluginProfiler(() -> now);
+        profiler.addCalls("FontCache.get", 1, 0, 2, 2, 0, 0, new long[] {1, 2, 3});
+        PluginProfiler.MethodStats s = profiler.methods().get("FontCache.get");
+        assertEquals(1, s.calls);
+        for (long count : s.histogram) assertEquals(0, count);
+    }
+
+    @Test
+    public void tracksEventRatesOverTheWindow() {
+        PluginProfiler profiler = new PluginProfiler(() -> now);
+        profiler.addEvents("QiblaDirection.qiblaUpdate", 600, 48_000, 15);
+        profiler.addEvents("QiblaDirection.qiblaUpdate", 300, 24_000, 12);
+        now = 60_000;
+
+        PluginProfiler.EventStats s = profiler.events().get("QiblaDirection.qiblaUpdate");
+        assertEquals(900, s.count);
+        assertEquals(15, s.maxPerSecond);
+        assertEquals(60_000, profiler.windowMillis());
+        assertTrue(profiler.dump().contains("QiblaDirection.qiblaUpdate: 900 (900.0/min, peak 15/s)"));
+
+        profiler.clear();
+        assertTrue(profiler.events().isEmpty());
+        assertEquals(1, profiler.windowMillis());
+    }
+}
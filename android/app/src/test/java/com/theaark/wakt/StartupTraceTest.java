@@ -0,0 +1,72 @@
+package com.theaark.wakt;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * JVM tests for the StartupTrace bookkeeping, driven by a fake nano clock.
+ */
+public class StartupTraceTest {
+
+    private long now = 0;
+
+    private StartupTrace newTrace() {
+        now = 0;
+        return new StartupTrace(() -> now);
+    }
+
+    private void advanceMillis(long ms) {
+        now += ms * 1_000_000L;
+    }
+
+    @Test
+    public void recordsPluginSpans() throws Exception {
+        StartupTrace trace = newTrace();
+        trace.begin("plugin:AdhanNotificationPlugin");
+        advanceMillis(3);
+        trace.end("plugin:AdhanNotificationPlugin");
+        trace.begin("plugin:QiblaDirection");
+        advanceMillis(2);
+        trace.end("plugin:QiblaDirection");
+
+        assertEquals(3, trace.durationMillis("plugin:AdhanNotificationPlugin"));
+        assertEquals(2, trace.durationMillis("plugin:QiblaDirection"));
+        assertEquals(5, trace.totalMillis("plugin:"));
+        assertEquals(-1, trace.durationMillis("plugin:Missing"));
+    }
+
+    @Test
+    public void reportsSpansOverBudget() throws Exception {
+        StartupTrace trace = newTrace();
+        trace.begin("plugin:Fast");
+        advanceMillis(1);
+        trace.end("plugin:Fast");
+        trace.begin("plugin:Slow");
+        advanceMillis(40);
+        trace.end("plugin:Slow");
+
+        assertEquals(Arrays.asList("plugin:Slow"), trace.overBudget("plugin:", 10));
+        assertTrue(trace.overBudget("plugin:", 50).isEmpty());
+    }
+
+    @Test
+    public void keepsFirstMarkOnly() throws Exception {
+        StartupTrace trace = newTrace();
+        advanceMillis(120);
+        trace.mark("webview:firstFrame");
+        advanceMillis(30);
+        trace.mark("webview:firstFrame");
+
+        assertEquals(120, trace.markMillis("webview:firstFrame"));
+        assertEquals(-1, trace.markMillis("never"));
+    }
+
+    @Test
+    public void ignoresUnmatchedEnd() throws Exception {
+        StartupTrace trace = newTrace();
+        trace.end("plugin:NeverStarted");
+        assertTrue(trace.spans().isEmpty());
+    }
+}
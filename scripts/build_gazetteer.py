@@ -0,0 +1,172 @@
+"""Build the gazetteer.bin asset from GeoNames dumps.
+
+Usage:
+    python scripts/build_gazetteer.py cities15000.zip countryInfo.txt [--alternates] [--output FILE]
+
+Inputs are the tab-separated GeoNames exports (https://download.geonames.org/export/dump/,
+CC BY 4.0); the cities file may be the .txt or the .zip it is published as.
+--alternates also indexes alternate names (local scripts, exonyms), which
+roughly triples the name table.
+
+The buildGazetteer task in android/app/build.gradle runs this (before every build
+with -PwaktGazetteer=true), downloading the dumps and writing to the default
+output, a generated assets directory; the file is not checked in.
+
+The layout is documented in android/.../Gazetteer.java; normalize() below must
+stay in sync with Gazetteer.normalize().
+"""
+import io
+import struct
+import sys
+import unicodedata
+import zipfile
+from pathlib import Path
+
+VERSION = 1
+CELL_DEGREES = 2
+OUTPUT = Path(__file__).resolve().parent.parent / "android/app/build/generated/gazetteer/gazetteer.bin"
+
+
+def normalize(s):
+    folded = "".join(c for c in unicodedata.normalize("NFD", s) if not unicodedata.combining(c)).lower()
+    out = []
+    space = False
+    for c in folded:
+        if c.isalnum():
+            if space and out:
+                out.append(" ")
+            out.append(c)
+            space = False
+        else:
+            space = True
+    return "".join(out)
+
+
+class Strings:
+    def __init__(self):
+        self.pool = bytearray()
+        self.offsets = {}
+
+    def add(self, s):
+        data = s.encode("utf-8")[:255]
+        # Don't split a multi-byte character when truncating
+        data = data.decode("utf-8", "ignore").encode("utf-8")
+        if data not in self.offsets:
+            self.offsets[data] = len(self.pool)
+            self.pool.append(len(data))
+            self.pool.extend(data)
+        return self.offsets[data]
+
+
+def read_countries(path):
+    countries = {}
+    with open(path, encoding="utf-8") as f:
+        for line in f:
+            if line.startswith("#") or not line.strip():
+                continue
+            cols = line.rstrip("\n").split("\t")
+            countries[cols[0]] = cols[4]
+    return countries
+
+
+def open_text(path):
+    path = Path(path)
+    if path.suffix != ".zip":
+        return open(path, encoding="utf-8")
+    archive = zipfile.ZipFile(path)
+    return io.TextIOWrapper(archive.open(path.stem + ".txt"), encoding="utf-8")
+
+
+def cell_of(lat, lng):
+    rows, cols = 180 // CELL_DEGREES, 360 // CELL_DEGREES
+    row = min(rows - 1, max(0, int((lat + 90) // CELL_DEGREES)))
+    col = int((lng + 180) // CELL_DEGREES) % cols
+    return row * cols + col
+
+
+def main(argv):
+    output = OUTPUT
+    if "--output" in argv:
+        i = argv.index("--output")
+        if i + 1 >= len(argv):
+            print(__doc__)
+            return 1
+        output = Path(argv[i + 1])
+        argv = argv[:i] + argv[i + 2:]
+    if len(argv) < 3:
+        print(__doc__)
+        return 1
+    alternates = "--alternates" in argv
+    country_names = read_countries(argv[2])
+
+    cities = []
+    with open_text(argv[1]) as f:
+        for line in f:
+            c = line.rstrip("\n").split("\t")
+            if len(c) < 18 or not c[17]:
+                continue
+            names = {c[1], c[2]}
+            if alternates:
+                names.update(n for n in c[3].split(",") if 0 < len(n) <= 40)
+            cities.append({
+                "name": c[1],
+                "lat": float(c[4]),
+                "lng": float(c[5]),
+                "cc": c[8] or "XX",
+                "pop": int(c[14] or 0),
+                "tz": c[17],
+                "keys": {normalize(n) for n in names} - {""},
+            })
+
+    cities.sort(key=lambda x: (cell_of(x["lat"], x["lng"]), -x["pop"]))
+
+    strings = Strings()
+    tzs = sorted({x["tz"] for x in cities})
+    tz_index = {tz: i for i, tz in enumerate(tzs)}
+    ccs = sorted({x["cc"] for x in cities})
+    cc_index = {cc: i for i, cc in enumerate(ccs)}
+
+    body = bytearray()
+    for tz in tzs:
+        body += struct.pack(">I", strings.add(tz))
+    for cc in ccs:
+        body += cc.encode("ascii")[:2].ljust(2, b"X")
+        body += struct.pack(">I", strings.add(country_names.get(cc, cc)))
+
+    cell_count = (180 // CELL_DEGREES) * (360 // CELL_DEGREES)
+    grid = [0] * (cell_count + 1)
+    for x in cities:
+        grid[cell_of(x["lat"], x["lng"]) + 1] += 1
+    for i in range(1, len(grid)):
+        grid[i] += grid[i - 1]
+    for g in grid:
+        body += struct.pack(">I", g)
+
+    names = []
+    for i, x in enumerate(cities):
+        body += struct.pack(
+            ">iiIIHH",
+            round(x["lat"] * 1e5),
+            round(x["lng"] * 1e5),
+            strings.add(x["name"]),
+            min(x["pop"], 0xFFFFFFFF),
+            tz_index[x["tz"]],
+            cc_index[x["cc"]],
+        )
+        names.extend((k[:80].encode("utf-8"), i) for k in x["keys"])
+
+    names.sort()
+    for key, city in names:
+        body += struct.pack(">II", strings.add(key.decode("utf-8")), city)
+
+    header = b"WGAZ" + struct.pack(
+        ">BBHIIHHI", VERSION, CELL_DEGREES, 0, len(cities), len(names), len(tzs), len(ccs), len(strings.pool)
+    )
+    output.parent.mkdir(parents=True, exist_ok=True)
+    output.write_bytes(header + body + strings.pool)
+    print(f"{output}: {len(cities)} cities, {len(names)} names, {output.stat().st_size} bytes")
+    return 0
+
+
+if __name__ == "__main__":
+    sys.exit(main(sys.argv))
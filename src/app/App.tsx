@@ -1,9 +1,12 @@
 import React, { useMemo, useState } from 'react';
 import { motion, AnimatePresence } from 'motion/react';
+import { Capacitor } from '@capacitor/core';
 import { Network } from '@capacitor/network';
 import { StatusBar } from '@capacitor/status-bar';
 import { FourSquare } from 'react-loading-indicators';
 import { applyFontCache } from '../services/fontCacheService';
+import { subscribeSystemInsets } from './services/statusBarTheme';
+import type { NavMode } from './services/statusBarTheme';
 import { HomePage } from './components/HomePage';
 import { PrayerSchedulePage } from './components/PrayerSchedulePage';
 import { IslamicCalendarPage } from './components/IslamicCalendarPage';
@@ -26,37 +29,21 @@ import { GdprSetupPageSimple } from './components/GdprSetupPageSimple';
 import { InternetSetupPageSimple } from './components/InternetSetupPageSimple';
 export default function App() {
   const [currentPage, setCurrentPage] = useState('home');
-  const [navMode, setNavMode] = React.useState<'full-screen' | 'gesture' | '3-button' | 'unknown'>('unknown');
+  const [navMode, setNavMode] = React.useState<NavMode | 'unknown'>('unknown');
   const [hasScrolled, setHasScrolled] = React.useState(false);
   const [showSplash, setShowSplash] = React.useState(true);
 
-  // Detect navigation mode based on system inset value
+  // Navigation mode is classified natively (InsetBridge) and pushed only when
+  // it or the insets change
   React.useEffect(() => {
-    const detectNavMode = () => {
-      const insetValue = getComputedStyle(document.documentElement).getPropertyValue('--android-system-bottom');
-      const insetPx = parseInt(insetValue) || 0;
-      
-      let mode: 'full-screen' | 'gesture' | '3-button' | 'unknown' = 'unknown';
-      
-      if (insetPx === 0) {
-        mode = 'full-screen';
-      } else if (insetPx > 0 && insetPx <= 30) {
-        mode = 'gesture';
-      } else if (insetPx > 30) {
-        mode = '3-button';
-      }
-      
-      setNavMode(mode);
-      console.log(`🔍 Navigation Mode Detected: ${mode} (${insetPx}px)`);
-      
-      // Store in DOM for CSS access
-      document.documentElement.setAttribute('data-nav-mode', mode);
-    };
-    
-    // Detect immediately and on interval
-    detectNavMode();
-    const interval = setInterval(detectNavMode, 1000);
-    return () => clearInterval(interval);
+    if (!Capacitor.isNativePlatform()) {
+      document.documentElement.setAttribute('data-nav-mode', 'full-screen');
+      setNavMode('full-screen');
+      return;
+    }
+    return subscribeSystemInsets((insets) => {
+      setNavMode(insets.navMode || 'unknown');
+    });
   }, []);
 
   // Show the status bar overlay only after the user starts scrolling
@@ -7,6 +7,7 @@ import { useApp } from '../context/AppContext';
 import { formatPrayerTime, getCurrentPrayerWindowInfo, getPrayerWindows, getPrayerStatus, getAdjustedCurrentPrayerCountdown, getPrayerTimes, calculateTahajjud } from '../../services/prayerService';
 import { getHijriCalendarService } from '../../services/hijriCalendarService';
 import { setStatusBarTheme } from '../services/statusBarTheme';
+import { usePrayerClock } from '../hooks/usePrayerClock';
 
 // Convert a two-letter country code (or common country name) to its emoji flag; returns empty string if invalid
 const countryCodeToFlag = (input?: string) => {
@@ -64,7 +65,8 @@ interface HomePageProps {
 
 export function HomePage({ onNavigate }: HomePageProps) {
   const { prayerTimes, location, cityName, countryName, countryCode, calculationMethod, madhab, scheduleData } = useApp();
-  const [currentTime, setCurrentTime] = useState(new Date());
+  // Minute-aligned; the native PrayerClock pushes ticks instead of a 1 Hz timer
+  const currentTime = usePrayerClock();
   const [hijriDate, setHijriDate] = useState<string>('');
   const [selectedDate, setSelectedDate] = useState(new Date());
   const { formatTime, is24Hour } = useTimeFormat();
@@ -103,13 +105,11 @@ export function HomePage({ onNavigate }: HomePageProps) {
     };
   }, [hijriService, loadHijriDate]);
 
+  // Refresh the Hijri date when the clock rolls over to a new day
+  const today = currentTime.toDateString();
   useEffect(() => {
-    const timer = setInterval(() => {
-      setCurrentTime(new Date());
-    }, 1000);
-
-    return () => clearInterval(timer);
-  }, []);
+    loadHijriDate();
+  }, [today, loadHijriDate]);
 
   const [isReady, setIsReady] = useState(false);
 
@@ -656,7 +656,6 @@ export function HomePage({ onNavigate }: HomePageProps) {
                     {currentTime.toLocaleTimeString('en-US', {
                       hour: '2-digit',
                       minute: '2-digit',
-                      second: '2-digit',
                       hour12: !is24Hour,
                       timeZone: location?.timezone || undefined,
                     })}
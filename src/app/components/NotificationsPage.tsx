@@ -1,7 +1,6 @@
 import React, { useEffect, useMemo, useState } from 'react';
 import { Bell, Volume2 } from 'lucide-react';
 import { Capacitor } from '@capacitor/core';
-import { Preferences } from '@capacitor/preferences';
 import { adhanNotificationService } from '../../services/adhanNotificationService';
 import { useApp } from '../context/AppContext';
 import { useTheme } from '../context/ThemeContext';
@@ -20,6 +19,8 @@ export function NotificationsPage() {
 
   const STORAGE_KEY = 'wakt_notification_toggles';
   const ADHAN_STORAGE_KEY = 'wakt_adhan_toggles';
+  const REMINDER_STORAGE_KEY = 'wakt_reminder_offsets';
+  const REMINDER_CHOICES = [0, 5, 10, 15, 30];
 
   const loadSavedToggles = () => {
     try {
@@ -71,8 +72,34 @@ export function NotificationsPage() {
     } as const;
   };
 
+  const loadSavedReminders = () => {
+    const reminders = {
+      fajr: { before: 0, beforeEnd: 0 },
+      dhuhr: { before: 0, beforeEnd: 0 },
+      asr: { before: 0, beforeEnd: 0 },
+      maghrib: { before: 0, beforeEnd: 0 },
+      isha: { before: 0, beforeEnd: 0 },
+    };
+    try {
+      const raw = localStorage.getItem(REMINDER_STORAGE_KEY);
+      if (raw) {
+        const parsed = JSON.parse(raw);
+        for (const key of Object.keys(reminders) as (keyof typeof reminders)[]) {
+          reminders[key] = {
+            before: parsed[key]?.before ?? 0,
+            beforeEnd: parsed[key]?.beforeEnd ?? 0,
+          };
+        }
+      }
+    } catch (err) {
+      console.error('Failed to load reminder offsets', err);
+    }
+    return reminders;
+  };
+
   const [notifications, setNotifications] = useState(loadSavedToggles);
   const [adhanEnabled, setAdhanEnabled] = useState(loadSavedAdhanToggles);
+  const [reminders, setReminders] = useState(loadSavedReminders);
 
   const [adhanSound, setAdhanSound] = useState(() => {
     try {
@@ -96,51 +123,31 @@ export function NotificationsPage() {
   const [isPlayingPreview, setIsPlayingPreview] = useState(false);
   const [batteryOptDisabled, setBatteryOptDisabled] = useState<boolean | null>(null);
 
-  // Keep native (Android) CapacitorStorage in sync with in-app toggles so
+  // Keep the native alarm store in sync with in-app toggles so
   // AdhanAlarmService/AdhanService can read the latest values.
   useEffect(() => {
     if (!Capacitor.isNativePlatform()) return;
 
-    const sync = async () => {
-      try {
-        await Preferences.set({ key: STORAGE_KEY, value: JSON.stringify(notifications) });
-      } catch (err) {
-        console.error('Failed to sync notification toggles to native storage', err);
-      }
-    };
-
-    sync();
-  }, [notifications]);
-
-  useEffect(() => {
-    if (!Capacitor.isNativePlatform()) return;
-
-    const sync = async () => {
+    adhanNotificationService
+      .saveAlarmSettings({ notifications, adhan: adhanEnabled, adhanSound, reminders })
+      .catch(err => console.error('Failed to sync alarm settings to native storage', err));
+  }, [notifications, adhanEnabled, adhanSound, reminders]);
+
+  const setReminder = (
+    prayer: keyof typeof reminders,
+    field: 'before' | 'beforeEnd',
+    minutes: number
+  ) => {
+    setReminders(prev => {
+      const updated = { ...prev, [prayer]: { ...prev[prayer], [field]: minutes } };
       try {
-        await Preferences.set({ key: ADHAN_STORAGE_KEY, value: JSON.stringify(adhanEnabled) });
+        localStorage.setItem(REMINDER_STORAGE_KEY, JSON.stringify(updated));
       } catch (err) {
-        console.error('Failed to sync adhan toggles to native storage', err);
+        console.error('Failed to save reminder offsets', err);
       }
-    };
-
-    sync();
-  }, [adhanEnabled]);
-
-  // Persist selected Adhan sound into CapacitorStorage so the
-  // native notification channel and services can read it.
-  useEffect(() => {
-    if (!Capacitor.isNativePlatform()) return;
-
-    const syncSound = async () => {
-      try {
-        await Preferences.set({ key: 'adhanSound', value: adhanSound });
-      } catch (err) {
-        console.error('Failed to sync adhan sound to native storage', err);
-      }
-    };
-
-    syncSound();
-  }, [adhanSound]);
+      return updated;
+    });
+  };
 
   const mainPrayers = useMemo(() => {
     // Build from real prayer times when available; fallback to mock data
@@ -280,25 +287,15 @@ export function NotificationsPage() {
     });
   }, [mainPrayers, notifications]);
   
-  // Check battery optimization status on mount
+  // Battery optimization status; native re-reads it on resume (e.g. back from
+  // Settings) and emits a change event, so there is nothing to poll
   useEffect(() => {
-    if (Capacitor.isNativePlatform()) {
-      adhanNotificationService.isBatteryOptimizationDisabled()
-        .then(isDisabled => setBatteryOptDisabled(isDisabled))
-        .catch(err => console.error('Failed to check battery optimization', err));
-    }
-
-    // Recheck battery status when page becomes visible (user might have changed permission)
-    const handleVisibility = () => {
-      if (document.visibilityState === 'visible' && Capacitor.isNativePlatform()) {
-        adhanNotificationService.isBatteryOptimizationDisabled()
-          .then(isDisabled => setBatteryOptDisabled(isDisabled))
-          .catch(err => console.error('Failed to recheck battery optimization', err));
-      }
-    };
-
-    document.addEventListener('visibilitychange', handleVisibility);
-    return () => document.removeEventListener('visibilitychange', handleVisibility);
+    if (!Capacitor.isNativePlatform()) return;
+    adhanNotificationService.getSchedulingHealth()
+      .then(health => { if (health) setBatteryOptDisabled(health.batteryOptimizationDisabled); });
+    return adhanNotificationService.onSchedulingHealthChange(health =>
+      setBatteryOptDisabled(health.batteryOptimizationDisabled)
+    );
   }, []);
 
   // Auto-refresh prayer times at midnight to show next day
@@ -330,11 +327,6 @@ export function NotificationsPage() {
       alert(
         'Battery optimization settings screen opened. Please set Wakt to "Don\'t optimize" or "Unrestricted" and then return to the app.'
       );
-      // Recheck after a longer delay to allow system to register the change
-      setTimeout(async () => {
-        const isDisabled = await adhanNotificationService.isBatteryOptimizationDisabled();
-        setBatteryOptDisabled(isDisabled);
-      }, 2000);
     } catch (err) {
       console.error('Failed to request battery optimization', err);
       alert(
@@ -367,6 +359,7 @@ export function NotificationsPage() {
       localStorage.setItem('adhanSound', value);
       // Update notification channel with new sound
       if (Capacitor.isNativePlatform()) {
+        await adhanNotificationService.saveAlarmSettings({ adhanSound: value });
         await adhanNotificationService.updateNotificationSound();
       }
     } catch (err) {
@@ -490,6 +483,41 @@ export function NotificationsPage() {
           </div>
         </div>
 
+        {Capacitor.isNativePlatform() && (
+          <div className="bg-card rounded-xl shadow-sm p-6">
+            <div className="flex items-center gap-3 mb-4">
+              <Bell className="w-6 h-6 text-primary" />
+              <h3 className="text-card-foreground font-semibold">Reminders</h3>
+            </div>
+
+            <div className="space-y-4">
+              {mainPrayers.map((prayer) => (
+                <div key={prayer.key} className="p-3 rounded-lg bg-muted/50">
+                  <p className="text-foreground font-medium mb-2">{prayer.name}</p>
+                  <div className="grid grid-cols-2 gap-2">
+                    {(['before', 'beforeEnd'] as const).map((field) => (
+                      <label key={field} className="text-xs text-muted-foreground">
+                        {field === 'before' ? 'Before start' : 'Before end'}
+                        <select
+                          value={reminders[prayer.key][field]}
+                          onChange={(e) => setReminder(prayer.key, field, Number(e.target.value))}
+                          className="w-full mt-1 p-2 bg-input-background rounded-lg border border-border text-foreground text-sm"
+                        >
+                          {REMINDER_CHOICES.map((minutes) => (
+                            <option key={minutes} value={minutes}>
+                              {minutes === 0 ? 'Off' : `${minutes} min`}
+                            </option>
+                          ))}
+                        </select>
+                      </label>
+                    ))}
+                  </div>
+                </div>
+              ))}
+            </div>
+          </div>
+        )}
+
         <div className="bg-card rounded-xl shadow-sm p-6">
           <div className="flex items-center gap-3 mb-4">
             <Volume2 className="w-6 h-6 text-primary" />
@@ -4,7 +4,8 @@ import { motion, AnimatePresence } from 'motion/react';
 import { useTimeFormat } from '../context/TimeFormatContext';
 import { useTheme } from '../context/ThemeContext';
 import { useApp } from '../context/AppContext';
-import { getPrayerTimes, formatPrayerTime } from '../../services/prayerService';
+import { formatPrayerTime } from '../../services/prayerService';
+import { getTimetable, getMonthTimetable } from '../../services/prayerTimetableService';
 import { setStatusBarTheme } from '../services/statusBarTheme';
 
 export function PrayerSchedulePage() {
@@ -32,76 +33,71 @@ export function PrayerSchedulePage() {
   useEffect(() => {
     if (!location) return;
 
-    const schedule = [];
+    let cancelled = false;
     const today = new Date();
+    const request = {
+      latitude: location.latitude,
+      longitude: location.longitude,
+      method: calculationMethod,
+      madhab,
+    };
 
-    for (let i = 0; i < 7; i++) {
-      const date = new Date(today);
-      date.setDate(today.getDate() + i);
-
-      const dayPrayers = getPrayerTimes(
-        location.latitude,
-        location.longitude,
-        date,
-        calculationMethod,
-        madhab
-      );
-
-      schedule.push({
-        date: date.toLocaleDateString('en-US', { weekday: 'short', month: 'short', day: 'numeric' }),
-        fullDate: date,
-        isToday: date.toDateString() === today.toDateString(),
-        sunrise: formatPrayerTime(dayPrayers.sunrise, false),
-        sunset: formatPrayerTime(dayPrayers.maghrib, false),
+    getTimetable(request, today, 7).then((days) => {
+      if (cancelled) return;
+      setWeeklySchedule(days.map((day) => ({
+        date: day.date.toLocaleDateString('en-US', { weekday: 'short', month: 'short', day: 'numeric' }),
+        fullDate: day.date,
+        isToday: day.date.toDateString() === today.toDateString(),
+        sunrise: formatPrayerTime(day.sunrise, false),
+        sunset: formatPrayerTime(day.maghrib, false),
         prayers: [
-          { name: 'Fajr', time: formatPrayerTime(dayPrayers.fajr, false) },
-          { name: 'Dhuhr', time: formatPrayerTime(dayPrayers.dhuhr, false) },
-          { name: 'Asr', time: formatPrayerTime(dayPrayers.asr, false) },
-          { name: 'Maghrib', time: formatPrayerTime(dayPrayers.maghrib, false) },
-          { name: 'Isha', time: formatPrayerTime(dayPrayers.isha, false) },
+          { name: 'Fajr', time: formatPrayerTime(day.fajr, false) },
+          { name: 'Dhuhr', time: formatPrayerTime(day.dhuhr, false) },
+          { name: 'Asr', time: formatPrayerTime(day.asr, false) },
+          { name: 'Maghrib', time: formatPrayerTime(day.maghrib, false) },
+          { name: 'Isha', time: formatPrayerTime(day.isha, false) },
         ]
-      });
-    }
+      })));
+      // Default daily view to today (index 0 after shift)
+      setDailyDayIndex(0);
+    });
 
-    setWeeklySchedule(schedule);
-    // Default daily view to today (index 0 after shift)
-    setDailyDayIndex(0);
-  }, [location, calculationMethod, madhab, is24Hour]);
+    return () => {
+      cancelled = true;
+    };
+  }, [location, calculationMethod, madhab]);
 
   // Generate monthly schedule
   useEffect(() => {
     if (!location) return;
 
-    const schedule = [];
+    let cancelled = false;
     const today = new Date();
-    const currentMonth = new Date(today.getFullYear(), today.getMonth() + monthOffset, 1);
-    const daysInMonth = new Date(currentMonth.getFullYear(), currentMonth.getMonth() + 1, 0).getDate();
-
-    for (let i = 1; i <= daysInMonth; i++) {
-      const date = new Date(currentMonth.getFullYear(), currentMonth.getMonth(), i);
-      
-      const dayPrayers = getPrayerTimes(
-        location.latitude,
-        location.longitude,
-        date,
-        calculationMethod,
-        madhab
-      );
+    const request = {
+      latitude: location.latitude,
+      longitude: location.longitude,
+      method: calculationMethod,
+      madhab,
+    };
 
-      schedule.push({
-        day: i,
-        date: date,
-        isToday: date.toDateString() === today.toDateString(),
-        fajr: formatPrayerTime(dayPrayers.fajr, false),
-        dhuhr: formatPrayerTime(dayPrayers.dhuhr, false),
-        asr: formatPrayerTime(dayPrayers.asr, false),
-        maghrib: formatPrayerTime(dayPrayers.maghrib, false),
-        isha: formatPrayerTime(dayPrayers.isha, false),
-      });
-    }
+    getMonthTimetable(request, today.getFullYear(), today.getMonth() + monthOffset).then((days) => {
+      if (cancelled) return;
+      setMonthlySchedule(days.map((day) => ({
+        day: day.date.getDate(),
+        date: day.date,
+        isToday: day.date.toDateString() === today.toDateString(),
+        fajr: formatPrayerTime(day.fajr, false),
+        dhuhr: formatPrayerTime(day.dhuhr, false),
+        asr: formatPrayerTime(day.asr, false),
+        maghrib: formatPrayerTime(day.maghrib, false),
+        isha: formatPrayerTime(day.isha, false),
+      })));
+    });
 
-    setMonthlySchedule(schedule);
-  }, [location, calculationMethod, madhab, is24Hour, monthOffset]);
+    return () => {
+      cancelled = true;
+    };
+  }, [location, calculationMethod, madhab, monthOffset]);
 
   return (
     <div className="min-h-screen bg-background pb-20 overflow-y-auto">
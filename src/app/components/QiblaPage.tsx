@@ -5,6 +5,7 @@ import { useTheme } from '../context/ThemeContext';
 import { getQiblaInfo } from '../../services/qiblaService';
 import { Capacitor } from '@capacitor/core';
 import { QiblaDirection } from '../services/qiblaNative';
+import { subscribeNativeStream } from '../services/nativeStream';
 import { setStatusBarTheme } from '../services/statusBarTheme';
 
 export function QiblaPage() {
@@ -19,6 +20,8 @@ export function QiblaPage() {
   const [displayHeading, setDisplayHeading] = useState<number>(0);
   const targetHeadingRef = useRef<number>(0);
   const displayHeadingRef = useRef<number>(0);
+  // Whether the native side could open the MessagePort stream
+  const streamingRef = useRef<boolean>(false);
   const [showCalibration, setShowCalibration] = useState<boolean>(false);
 
   // Qibla uses the standard teal primary status bar like other pages
@@ -61,25 +64,35 @@ export function QiblaPage() {
         });
         let lastHeadTime = 0;
         let lastHeadVal: number | null = null;
-        const headingHandle = await QiblaDirection.addListener('heading', (e: any) => {
-          if (typeof e?.heading === 'number') {
-            const now = Date.now();
-            const h = ((e.heading % 360) + 360) % 360;
-            // Throttle to ~15-20 Hz and ignore tiny jitters
-            if (lastHeadVal === null || now - lastHeadTime > 50 || Math.abs(h - lastHeadVal) > 0.8) {
-              lastHeadTime = now;
-              lastHeadVal = h;
-              setHeading(h);
-            }
+        const onHeading = (heading: number) => {
+          const now = Date.now();
+          const h = ((heading % 360) + 360) % 360;
+          // Throttle to ~15-20 Hz and ignore tiny jitters
+          if (lastHeadVal === null || now - lastHeadTime > 50 || Math.abs(h - lastHeadVal) > 0.8) {
+            lastHeadTime = now;
+            lastHeadVal = h;
+            setHeading(h);
           }
+        };
+        const headingHandle = await QiblaDirection.addListener('heading', (e: any) => {
+          if (typeof e?.heading === 'number') onHeading(e.heading);
+        });
+        // Preferred path: [heading, angle] samples over a MessagePort; the
+        // listeners above stay as the fallback when the WebView lacks it
+        const stream = subscribeNativeStream('qibla', (sample) => {
+          if (!Number.isNaN(sample[0])) onHeading(sample[0]);
+          if (!Number.isNaN(sample[1])) setNativeAngle(sample[1]);
         });
-        await QiblaDirection.start();
+        const started = await QiblaDirection.start({ stream: true });
+        streamingRef.current = !!started.stream;
+        if (!started.stream) stream.close();
         setUsingNative(true);
         // Only show calibration overlay after confirming native is available
         setShowCalibration(true);
         const calibrationTimeout = setTimeout(() => setShowCalibration(false), 6000);
         remove = async () => {
           try { await QiblaDirection.stop(); } catch {}
+          stream.close();
           try { await handle.remove(); } catch {}
           try { await accHandle.remove(); } catch {}
           try { await headingHandle.remove(); } catch {}
@@ -106,7 +119,7 @@ export function QiblaPage() {
     const onVis = async () => {
       try {
         if (document.visibilityState === 'visible') {
-          await QiblaDirection.start();
+          await QiblaDirection.start({ stream: streamingRef.current });
           setUsingNative(true);
         } else {
           await QiblaDirection.stop();
@@ -1,11 +1,16 @@
 import React, { useState, useMemo, useEffect } from 'react';
-import { Settings, MapPin, Volume2, Info, Heart, Clock, HelpCircle } from 'lucide-react';
+import { Settings, MapPin, Volume2, Info, Heart, Clock, HelpCircle, CalendarDays, Minus, Plus } from 'lucide-react';
 import { App, type AppInfo } from '@capacitor/app';
 import { useTimeFormat } from '../context/TimeFormatContext';
 import { useApp } from '../context/AppContext';
 import { useTheme } from '../context/ThemeContext';
 import { calculationMethods } from '../../services/prayerService';
 import { setStatusBarTheme } from '../services/statusBarTheme';
+import { travelModeService, type TravelModeStatus } from '../../services/travelModeService';
+import { getHijriCalendarService } from '../../services/hijriCalendarService';
+
+// Same bounds HijriCalendarPlugin clamps to
+const MAX_HIJRI_OFFSET = 3;
 
 // Fallback metadata used if native App.getInfo is unavailable
 const APP_VERSION = '1.0.7';
@@ -20,6 +25,53 @@ export function SettingsPage({ onNavigate }: { onNavigate?: (page: string) => vo
   const [isEUUser, setIsEUUser] = useState<boolean>(false);
   const [appInfo, setAppInfo] = useState<AppInfo | null>(null);
   const [appMeta, setAppMeta] = useState<{ version: string; lastUpdated: string } | null>(null);
+  const [travelMode, setTravelMode] = useState<TravelModeStatus | null>(null);
+
+  useEffect(() => {
+    travelModeService
+      .getStatus()
+      .then(setTravelMode)
+      .catch((err) => console.error('Failed to read travel mode status', err));
+  }, []);
+
+  const toggleTravelMode = async () => {
+    if (!travelMode) return;
+    try {
+      setTravelMode(await travelModeService.setEnabled(!travelMode.enabled));
+    } catch (err) {
+      console.error('Failed to toggle travel mode', err);
+    }
+  };
+
+  const allowTravelBackground = async () => {
+    try {
+      setTravelMode(await travelModeService.requestBackgroundPermission());
+    } catch (err) {
+      console.error('Failed to request background location', err);
+    }
+  };
+
+  const hijriService = getHijriCalendarService();
+  const [hijriOffset, setHijriOffset] = useState<number | null>(null);
+
+  useEffect(() => {
+    if (!hijriService.isDayOffsetSupported()) return;
+    hijriService
+      .getDayOffset()
+      .then(setHijriOffset)
+      .catch((err) => console.error('Failed to read Hijri day offset', err));
+  }, [hijriService]);
+
+  const changeHijriOffset = async (delta: number) => {
+    if (hijriOffset === null) return;
+    const next = Math.max(-MAX_HIJRI_OFFSET, Math.min(MAX_HIJRI_OFFSET, hijriOffset + delta));
+    if (next === hijriOffset) return;
+    try {
+      setHijriOffset(await hijriService.setDayOffset(next));
+    } catch (err) {
+      console.error('Failed to set Hijri day offset', err);
+    }
+  };
 
   // Settings header uses the primary gradient
   useEffect(() => {
@@ -210,6 +262,45 @@ export function SettingsPage({ onNavigate }: { onNavigate?: (page: string) => vo
           </div>
         </div>
 
+        {/* Hijri Date Adjustment */}
+        {hijriOffset !== null && (
+          <div className="bg-card rounded-2xl shadow-lg p-5">
+            <div className="flex items-center gap-3 mb-4">
+              <div className="w-10 h-10 rounded-xl bg-primary/10 flex items-center justify-center">
+                <CalendarDays className="w-5 h-5 text-primary" />
+              </div>
+              <div>
+                <h3 className="text-card-foreground font-bold tracking-tight">Hijri Date Adjustment</h3>
+                <p className="text-xs text-muted-foreground">Match the moon sighting in your area.</p>
+              </div>
+            </div>
+
+            <div className="flex items-center justify-between bg-muted/30 rounded-xl p-1.5">
+              <button
+                onClick={() => changeHijriOffset(-1)}
+                disabled={hijriOffset <= -MAX_HIJRI_OFFSET}
+                aria-label="One day earlier"
+                className="p-3 rounded-lg text-foreground hover:bg-muted/50 disabled:opacity-40 transition-colors"
+              >
+                <Minus className="w-4 h-4" />
+              </button>
+              <span className="text-foreground font-semibold">
+                {hijriOffset === 0
+                  ? 'No adjustment'
+                  : `${hijriOffset > 0 ? '+' : ''}${hijriOffset} day${Math.abs(hijriOffset) === 1 ? '' : 's'}`}
+              </span>
+              <button
+                onClick={() => changeHijriOffset(1)}
+                disabled={hijriOffset >= MAX_HIJRI_OFFSET}
+                aria-label="One day later"
+                className="p-3 rounded-lg text-foreground hover:bg-muted/50 disabled:opacity-40 transition-colors"
+              >
+                <Plus className="w-4 h-4" />
+              </button>
+            </div>
+          </div>
+        )}
+
         {/* Location Preference */}
         <div className="bg-card rounded-2xl shadow-lg p-5">
           <div className="flex items-center gap-3 mb-4">
@@ -237,6 +328,33 @@ export function SettingsPage({ onNavigate }: { onNavigate?: (page: string) => vo
           >
             Change Location
           </button>
+
+          {travelMode && (
+            <div className="mt-4 flex items-center justify-between gap-3">
+              <div>
+                <p className="text-foreground font-medium">Travel mode</p>
+                <p className="text-xs text-muted-foreground">
+                  Update prayer times after moving {travelMode.thresholdKm} km or more, using low-power location.
+                </p>
+                {travelMode.enabled && travelMode.locationPermission && !travelMode.backgroundPermission && (
+                  <button onClick={allowTravelBackground} className="text-xs text-amber-600 underline mt-1 text-left">
+                    Allow location "all the time" for updates while the app is closed.
+                  </button>
+                )}
+                {travelMode.active === false && (
+                  <p className="text-xs text-red-600 mt-1">Location permission is required.</p>
+                )}
+              </div>
+              <button
+                onClick={toggleTravelMode}
+                className={`px-4 py-2 rounded-lg text-sm font-semibold transition-colors ${
+                  travelMode.enabled ? 'bg-primary text-white' : 'bg-muted text-muted-foreground'
+                }`}
+              >
+                {travelMode.enabled ? 'On' : 'Off'}
+              </button>
+            </div>
+          )}
         </div>
 
         {/* App Info */}
@@ -15,7 +15,8 @@ import {
   PrayerTimesData,
   formatPrayerTime,
   calculationMethods,
-  setCalculationTimezone
+  setCalculationTimezone,
+  getPackedPrayerWindows
 } from '../../services/prayerService';
 import {
   schedulePrayerNotifications,
@@ -27,6 +28,14 @@ import {
   saveNotificationSettings,
   initNotifications,
 } from '../../services/notificationService';
+import { adhanNotificationService } from '../../services/adhanNotificationService';
+import { subscribePrayerClock } from '../../services/prayerClockService';
+import { travelModeService } from '../../services/travelModeService';
+
+// Days of prayer windows pushed to the alarm store (AlarmSettings.SCHEDULE_DAYS)
+const ALARM_SCHEDULE_DAYS = 14;
+// When JS last took over a travel-mode move (epoch ms)
+const TRAVEL_MOVE_ADOPTED_KEY = 'travelMoveAdoptedAt';
 
 interface AppContextType {
   // Location
@@ -90,6 +99,12 @@ export function AppProvider({ children }: { children: ReactNode }) {
   
   const [prayerTimes, setPrayerTimes] = useState<PrayerTimesData | null>(null);
   const [prayerTimesLoading, setPrayerTimesLoading] = useState(false);
+  // Local day of the last clock event; recalculates today's times after midnight
+  // or a time/timezone change
+  const [clockDay, setClockDay] = useState<number | null>(null);
+  // False until a travel-mode move made while the app was closed has been
+  // adopted, so the old location is not pushed back to the alarm store
+  const [travelMoveChecked, setTravelMoveChecked] = useState(!travelModeService.isSupported());
   
   const [locationPermissionGranted, setLocationPermissionGranted] = useState(false);
   const [notificationPermissionGranted, setNotificationPermissionGranted] = useState(false);
@@ -398,6 +413,50 @@ export function AppProvider({ children }: { children: ReactNode }) {
     localStorage.setItem('madhab', madhabValue);
   };
 
+  // Follow a travel-mode move: the location effects recalculate and push the windows
+  const adoptTravelMove = async (latitude: number, longitude: number, accuracy?: number) => {
+    let geocode: { city?: string; country?: string; countryCode?: string } = {};
+    try {
+      geocode = await reverseGeocode(latitude, longitude);
+    } catch (err) {
+      console.error('[TravelMode] Reverse geocode failed', err);
+    }
+    // No timezone: the device clock follows the traveller
+    const moved: LocationData = {
+      latitude,
+      longitude,
+      accuracy,
+      city: geocode.city,
+      country: geocode.country,
+      countryCode: geocode.countryCode,
+    };
+    saveLocation(moved);
+    localStorage.setItem(TRAVEL_MOVE_ADOPTED_KEY, String(Date.now()));
+    setLocation(moved);
+    setCityName(geocode.city || '');
+    setCountryName(geocode.country || '');
+    setCountryCode(geocode.countryCode || '');
+  };
+
+  // A move detected while the app was closed is only stored natively
+  const adoptMissedTravelMove = async () => {
+    try {
+      const status = await travelModeService.getStatus();
+      const adoptedAt = Number(localStorage.getItem(TRAVEL_MOVE_ADOPTED_KEY) || 0);
+      if (
+        status?.lastMoveAt &&
+        status.lastMoveAt > adoptedAt &&
+        status.latitude !== undefined &&
+        status.longitude !== undefined
+      ) {
+        console.log('[TravelMode] Adopting move from', new Date(status.lastMoveAt).toISOString());
+        await adoptTravelMove(status.latitude, status.longitude);
+      }
+    } catch (err) {
+      console.error('[TravelMode] Failed to read travel status', err);
+    }
+  };
+
   // Complete permissions flow - called when user clicks Continue button
   const completePermissionsFlow = () => {
     setPermissionsFlowCompleted(true);
@@ -417,6 +476,12 @@ export function AppProvider({ children }: { children: ReactNode }) {
         console.error('Failed to initialize notifications:', e);
       }
 
+      // Before the saved location is read below
+      if (travelModeService.isSupported()) {
+        await adoptMissedTravelMove();
+        setTravelMoveChecked(true);
+      }
+
       // Check existing permissions
       await checkExistingPermissions();
     };
@@ -425,6 +490,23 @@ export function AppProvider({ children }: { children: ReactNode }) {
     // eslint-disable-next-line react-hooks/exhaustive-deps
   }, []);
 
+  useEffect(() => {
+    return subscribePrayerClock((event) => {
+      if (event.reason === 'start' || event.reason === 'dayChanged' || event.reason === 'timeChanged') {
+        setClockDay(event.epochDay);
+      }
+    });
+  }, []);
+
+  // Travel mode: moves detected while the app is running
+  useEffect(() => {
+    return travelModeService.onLocationChanged((event) => {
+      console.log('[TravelMode] Moved', Math.round(event.distanceKm), 'km');
+      adoptTravelMove(event.latitude, event.longitude, event.accuracy);
+    });
+    // eslint-disable-next-line react-hooks/exhaustive-deps
+  }, []);
+
   // Sync timezone override whenever location changes
   useEffect(() => {
     console.log('[TZ_SYNC_EFFECT] Location changed:', JSON.stringify(location));
@@ -437,6 +519,33 @@ export function AppProvider({ children }: { children: ReactNode }) {
     }
   }, [location]);
 
+  // Mirror location, calculation settings and the coming days' prayer windows
+  // into the native alarm store, where native code reads them without the WebView
+  useEffect(() => {
+    if (!Capacitor.isNativePlatform() || !travelMoveChecked) return;
+    adhanNotificationService
+      .saveAlarmSettings({
+        ...(location
+          ? {
+              latitude: location.latitude,
+              longitude: location.longitude,
+              // From yesterday: its Isha window runs into today
+              windows: getPackedPrayerWindows(
+                location.latitude,
+                location.longitude,
+                new Date(Date.now() - 24 * 60 * 60 * 1000),
+                ALARM_SCHEDULE_DAYS,
+                calculationMethod,
+                madhab
+              ),
+            }
+          : {}),
+        method: calculationMethod,
+        madhab,
+      })
+      .catch(err => console.error('Failed to sync calculation settings to native storage', err));
+  }, [location, calculationMethod, madhab, clockDay, travelMoveChecked]);
+
   // When location is available, calculate prayer times
   useEffect(() => {
     if (!location) {
@@ -460,7 +569,7 @@ export function AppProvider({ children }: { children: ReactNode }) {
     if (notificationPermissionGranted && permissionsFlowCompleted) {
       schedulePrayerNotifications(times, notificationSettings);
     }
-  }, [location, calculationMethod, madhab]);
+  }, [location, calculationMethod, madhab, clockDay]);
 
   // Pre-calculate schedule data whenever prayer times change (do this once, not every render)
   useEffect(() => {
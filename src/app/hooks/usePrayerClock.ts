@@ -0,0 +1,16 @@
+import { useEffect, useState } from 'react';
+import { subscribePrayerClock } from '../../services/prayerClockService';
+
+/**
+ * Current time, updated once a minute (and on prayer transitions or
+ * time/timezone changes) instead of every second.
+ */
+export function usePrayerClock(): Date {
+  const [now, setNow] = useState(() => new Date());
+
+  useEffect(() => {
+    return subscribePrayerClock((event) => setNow(new Date(event.now)));
+  }, []);
+
+  return now;
+}
@@ -0,0 +1,76 @@
+// Receiving end of NativeStream (android/.../NativeStream.java): a
+// MessagePort the native side hands over in a window "message" event, carrying
+// fixed-layout float samples without notifyListeners' per-event JSON.
+
+const MESSAGE_PREFIX = 'wakt-stream:';
+
+export type StreamSample = ArrayLike<number>;
+
+export interface NativeStreamSubscription {
+  close(): void;
+}
+
+function decode(data: unknown): StreamSample | null {
+  if (data instanceof ArrayBuffer) return new Float32Array(data);
+  if (typeof data === 'string') return data.split(',').map(Number);
+  return null;
+}
+
+/**
+ * Listen for the stream `name`. Call this before asking the plugin to open it
+ * (e.g. `start({ stream: true })`); a re-opened stream replaces the old port.
+ *
+ * Samples are coalesced to one per animation frame, which is also when they
+ * are acked, so the native side never runs more than a couple of messages
+ * ahead of what the page actually draws.
+ */
+export function subscribeNativeStream(
+  name: string,
+  onSample: (sample: StreamSample) => void
+): NativeStreamSubscription {
+  let port: MessagePort | null = null;
+  let latest: StreamSample | null = null;
+  let unacked = 0;
+  let frame = 0;
+
+  const flush = () => {
+    frame = 0;
+    if (!port) return;
+    if (latest) {
+      const sample = latest;
+      latest = null;
+      onSample(sample);
+    }
+    if (unacked > 0) {
+      port.postMessage(String(unacked));
+      unacked = 0;
+    }
+  };
+
+  const onPortMessage = (e: MessageEvent) => {
+    const sample = decode(e.data);
+    unacked++;
+    if (sample) latest = sample;
+    if (!frame) frame = requestAnimationFrame(flush);
+  };
+
+  const onWindowMessage = (e: MessageEvent) => {
+    if (e.data !== MESSAGE_PREFIX + name || !e.ports?.[0]) return;
+    port?.close();
+    port = e.ports[0];
+    latest = null;
+    unacked = 0;
+    port.onmessage = onPortMessage;
+  };
+
+  window.addEventListener('message', onWindowMessage);
+  return {
+    close() {
+      window.removeEventListener('message', onWindowMessage);
+      if (frame) cancelAnimationFrame(frame);
+      frame = 0;
+      port?.close();
+      port = null;
+    },
+  };
+}
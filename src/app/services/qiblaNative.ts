@@ -5,7 +5,8 @@ export type AccuracyEvent = { level: 'poor' | 'low' | 'fair' | 'good' | 'unknown
 export type HeadingEvent = { heading: number };
 
 export interface QiblaDirectionPlugin {
-  start(): Promise<{ started: boolean }>;
+  // stream: send heading/direction over the "qibla" NativeStream as [heading, angle]
+  start(options?: { stream?: boolean }): Promise<{ started: boolean; stream?: boolean }>;
   stop(): Promise<void>;
   addListener(eventName: 'direction', listenerFunc: (event: DirectionEvent) => void): Promise<PluginListenerHandle>;
   addListener(eventName: 'accuracy', listenerFunc: (event: AccuracyEvent) => void): Promise<PluginListenerHandle>;
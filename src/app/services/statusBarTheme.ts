@@ -2,15 +2,41 @@ import { Capacitor, registerPlugin } from '@capacitor/core';
 
 export type StatusBarThemeKey = 'homeDark' | 'primary' | 'primarySoft' | 'primaryStrong';
 
+export type NavMode = 'full-screen' | 'gesture' | '2-button' | '3-button';
+export type StatusBarInsets = { top: number; bottom: number; navMode?: NavMode };
+
 interface StatusBarThemeNativePlugin {
-  setTheme(options: { theme: StatusBarThemeKey }): Promise<void>;
+  setTheme(options: { theme: StatusBarThemeKey }): Promise<{ changed: boolean }>;
 }
 
 const NativeStatusBarTheme = registerPlugin<StatusBarThemeNativePlugin>('StatusBarTheme');
 
-export async function setStatusBarTheme(theme: StatusBarThemeKey) {
-  // Always update the web-side overlay color so the
-  // fixed status bar backdrop matches the current page.
+declare global {
+  interface Window {
+    // Last insets pushed by the native InsetBridge
+    __androidInsets?: StatusBarInsets;
+  }
+  interface WindowEventMap {
+    androidinsetschange: CustomEvent<StatusBarInsets>;
+  }
+}
+
+/**
+ * Subscribe to native inset / navigation mode changes. The listener is called
+ * immediately with the last known value (if any), then only on changes.
+ */
+export function subscribeSystemInsets(listener: (insets: StatusBarInsets) => void): () => void {
+  const handler = (e: CustomEvent<StatusBarInsets>) => listener(e.detail);
+  window.addEventListener('androidinsetschange', handler);
+  if (window.__androidInsets) {
+    listener(window.__androidInsets);
+  }
+  return () => window.removeEventListener('androidinsetschange', handler);
+}
+
+// Always update the web-side overlay color so the
+// fixed status bar backdrop matches the current page.
+function applyOverlayColor(theme: StatusBarThemeKey) {
   try {
     let color = '#0D7C66';
     switch (theme) {
@@ -34,6 +60,10 @@ export async function setStatusBarTheme(theme: StatusBarThemeKey) {
   } catch {
     // Ignore overlay color errors
   }
+}
+
+export async function setStatusBarTheme(theme: StatusBarThemeKey) {
+  applyOverlayColor(theme);
 
   if (!Capacitor.isNativePlatform()) return;
   try {
@@ -2,6 +2,7 @@
   import { createRoot } from "react-dom/client";
   import App from "./app/App.tsx";
   import "./styles/index.css";
+  import { installBridgeProfiler } from "./services/diagnosticsService";
   // import { StatusBar } from '@capacitor/status-bar';
 
   // Draw app under the status bar and use light content for contrast
@@ -10,5 +11,9 @@
   // Make status bar transparent so headers show behind it
   // StatusBar.setBackgroundColor({ color: '#00000000' }).catch(() => {});
 
+  // Before the first render so every plugin call gets measured (dev builds,
+  // or with diagnostics enabled)
+  installBridgeProfiler();
+
   createRoot(document.getElementById("root")!).render(<App />);
   
\ No newline at end of file
@@ -1,4 +1,43 @@
 import { registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+
+type PrayerKey = 'fajr' | 'dhuhr' | 'asr' | 'maghrib' | 'isha';
+type PrayerToggles = Partial<Record<PrayerKey, boolean>>;
+
+/** Reminder offsets in minutes; 0 turns a reminder off. */
+export interface ReminderOffsets {
+  /** Before the prayer's time starts */
+  before?: number;
+  /** Before the prayer's time ends */
+  beforeEnd?: number;
+}
+
+/**
+ * Settings the native alarm path needs while the WebView is not running.
+ * Every field is optional; only the provided ones are updated.
+ */
+export interface AlarmSettingsUpdate {
+  notifications?: PrayerToggles;
+  adhan?: PrayerToggles;
+  adhanSound?: string;
+  latitude?: number;
+  longitude?: number;
+  method?: string;
+  madhab?: string;
+  reminders?: Partial<Record<PrayerKey, ReminderOffsets>>;
+  /** Prayer windows from yesterday on, see getPackedPrayerWindows */
+  windows?: number[];
+}
+
+/** Device state that decides whether alarms arrive on time (cached natively). */
+export interface SchedulingHealth {
+  exactAlarms: boolean;
+  batteryOptimizationDisabled: boolean;
+  standbyBucket: 'active' | 'working_set' | 'frequent' | 'rare' | 'restricted' | 'exempted' | 'unknown' | 'unsupported';
+  notificationsEnabled: boolean;
+  channelImportance: 'missing' | 'blocked' | 'min' | 'low' | 'default' | 'high';
+  fullScreenIntent: boolean;
+}
 
 interface AdhanNotificationPlugin {
   triggerAdhanImmediately(options: { prayerName: string }): Promise<void>;
@@ -18,6 +57,12 @@ interface AdhanNotificationPlugin {
   updateNotificationSound(): Promise<void>;
   isBatteryOptimizationDisabled(): Promise<{ isDisabled: boolean }>;
   requestDisableBatteryOptimization(): Promise<void>;
+  saveAlarmSettings(options: AlarmSettingsUpdate): Promise<void>;
+  getSchedulingHealth(options?: { refresh?: boolean }): Promise<SchedulingHealth>;
+  addListener(
+    eventName: 'schedulingHealthChanged',
+    listenerFunc: (health: SchedulingHealth) => void
+  ): Promise<PluginListenerHandle>;
 }
 
 const AdhanNotification = registerPlugin<AdhanNotificationPlugin>(
@@ -153,4 +198,40 @@ export const adhanNotificationService = {
       throw error;
     }
   },
+
+  /**
+   * Exact alarms, battery optimization, standby bucket, channel importance and
+   * full-screen intent permission in one bridge call
+   */
+  async getSchedulingHealth(refresh = false): Promise<SchedulingHealth | null> {
+    try {
+      return await AdhanNotification.getSchedulingHealth({ refresh });
+    } catch (error) {
+      console.error('Failed to read scheduling health:', error);
+      return null;
+    }
+  },
+
+  /**
+   * Called whenever any scheduling health field changes (e.g. after the user
+   * returns from system settings). Returns an unsubscribe function.
+   */
+  onSchedulingHealthChange(listener: (health: SchedulingHealth) => void): () => void {
+    const handle = AdhanNotification.addListener('schedulingHealthChanged', listener);
+    return () => {
+      handle.then((h) => h.remove()).catch(() => {});
+    };
+  },
+
+  /**
+   * Persist alarm settings into the native alarm store
+   */
+  async saveAlarmSettings(settings: AlarmSettingsUpdate): Promise<void> {
+    try {
+      await AdhanNotification.saveAlarmSettings(settings);
+    } catch (error) {
+      console.error('Failed to save alarm settings:', error);
+      throw error;
+    }
+  },
 };
@@ -0,0 +1,258 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface BridgeCallStats {
+  /** "Plugin.method" */
+  key: string;
+  calls: number;
+  /** Calls that rejected */
+  errors: number;
+  meanMs: number;
+  /** Upper bounds of the histogram buckets holding the 50th/95th percentile */
+  p50Ms: number;
+  p95Ms: number;
+  maxMs: number;
+  /** JSON length of the options / results, summed */
+  requestBytes: number;
+  responseBytes: number;
+  /** Calls per latency bucket, see BUCKETS_MS */
+  histogram: number[];
+}
+
+export interface BridgeEventStats {
+  /** "Plugin.event" */
+  key: string;
+  count: number;
+  bytes: number;
+  maxPerSecond: number;
+}
+
+export interface DiagnosticsStats {
+  /** Time covered by the profile */
+  windowMs: number;
+  calls: BridgeCallStats[];
+  events: BridgeEventStats[];
+  /** AlarmTelemetry's text dump, when asked for */
+  alarms?: string;
+}
+
+interface CallDelta {
+  key: string;
+  calls: number;
+  errors: number;
+  totalMs: number;
+  maxMs: number;
+  requestBytes: number;
+  responseBytes: number;
+  histogram: number[];
+}
+
+interface EventDelta {
+  key: string;
+  count: number;
+  bytes: number;
+  maxPerSecond: number;
+}
+
+interface DiagnosticsPlugin {
+  report(batch: { calls: CallDelta[]; events: EventDelta[] }): Promise<void>;
+  getStats(options?: { alarms?: boolean }): Promise<DiagnosticsStats>;
+  dump(options?: { alarms?: boolean }): Promise<{ path: string }>;
+  reset(): Promise<void>;
+}
+
+// The parts of the Capacitor global every registerPlugin() proxy calls into
+interface CapacitorBridge {
+  nativePromise?: (pluginName: string, methodName: string, options?: unknown) => Promise<unknown>;
+  nativeCallback?: (
+    pluginName: string,
+    methodName: string,
+    options?: unknown,
+    callback?: (...args: unknown[]) => void
+  ) => unknown;
+}
+
+const PLUGIN_NAME = 'Diagnostics';
+const Diagnostics = registerPlugin<DiagnosticsPlugin>(PLUGIN_NAME);
+
+// Upper bounds (exclusive) of the latency buckets, the last one is open-ended.
+// Must match PluginProfiler.BUCKETS_MS.
+const BUCKETS_MS = [1, 2, 5, 10, 20, 50, 100, 250, 500, 1000];
+const REPORT_INTERVAL_MS = 15_000;
+// Set to 'true' (e.g. from remote devtools, then reload) to profile a production bundle
+const ENABLED_KEY = 'diagnosticsEnabled';
+
+let installed = false;
+let calls = new Map<string, CallDelta>();
+let events = new Map<string, EventDelta>();
+// Current one-second slot per event key, for peak rates across reports
+const eventSeconds = new Map<string, { second: number; count: number }>();
+
+function sizeOf(value: unknown): number {
+  if (value === undefined || value === null) return 0;
+  try {
+    return JSON.stringify(value)?.length ?? 0;
+  } catch {
+    return 0;
+  }
+}
+
+function recordCall(key: string, ms: number, requestBytes: number, responseBytes: number, failed: boolean) {
+  let delta = calls.get(key);
+  if (!delta) {
+    delta = {
+      key,
+      calls: 0,
+      errors: 0,
+      totalMs: 0,
+      maxMs: 0,
+      requestBytes: 0,
+      responseBytes: 0,
+      histogram: new Array(BUCKETS_MS.length + 1).fill(0),
+    };
+    calls.set(key, delta);
+  }
+  const rounded = Math.round(ms);
+  delta.calls++;
+  if (failed) delta.errors++;
+  delta.totalMs += rounded;
+  delta.maxMs = Math.max(delta.maxMs, rounded);
+  delta.requestBytes += requestBytes;
+  delta.responseBytes += responseBytes;
+  let bucket = BUCKETS_MS.findIndex((bound) => ms < bound);
+  if (bucket < 0) bucket = BUCKETS_MS.length;
+  delta.histogram[bucket]++;
+}
+
+function recordEvent(key: string, data: unknown) {
+  let delta = events.get(key);
+  if (!delta) {
+    delta = { key, count: 0, bytes: 0, maxPerSecond: 0 };
+    events.set(key, delta);
+  }
+  delta.count++;
+  delta.bytes += sizeOf(data);
+
+  const second = Math.floor(Date.now() / 1000);
+  const slot = eventSeconds.get(key);
+  if (slot && slot.second === second) {
+    slot.count++;
+  } else {
+    eventSeconds.set(key, { second, count: 1 });
+  }
+  delta.maxPerSecond = Math.max(delta.maxPerSecond, eventSeconds.get(key)!.count);
+}
+
+async function flush(): Promise<void> {
+  if (calls.size === 0 && events.size === 0) return;
+  const batch = { calls: [...calls.values()], events: [...events.values()] };
+  calls = new Map();
+  events = new Map();
+  try {
+    await Diagnostics.report(batch);
+  } catch {
+    // Profiling must never break the page
+  }
+}
+
+/**
+ * Whether the bridge is profiled: always in dev builds, otherwise only when
+ * ENABLED_KEY is set, so release builds pay nothing for it.
+ */
+export function isDiagnosticsEnabled(): boolean {
+  if (import.meta.env.DEV) return true;
+  try {
+    return localStorage.getItem(ENABLED_KEY) === 'true';
+  } catch {
+    return false;
+  }
+}
+
+/**
+ * Time every plugin call and count every listener event the page receives,
+ * by wrapping the two Capacitor entry points all registerPlugin() proxies go
+ * through. Native code has no hook between the bridge receiving a call and
+ * the plugin resolving it, so latency here is the full round trip as the
+ * page sees it. Aggregates are sent to the Diagnostics plugin every
+ * REPORT_INTERVAL_MS and when the page is hidden.
+ *
+ * Call once, before the first plugin call worth measuring. Does nothing
+ * unless isDiagnosticsEnabled().
+ */
+export function installBridgeProfiler(): void {
+  if (installed || !Capacitor.isNativePlatform() || !isDiagnosticsEnabled()) return;
+  const cap = Capacitor as unknown as CapacitorBridge;
+  const nativePromise = cap.nativePromise;
+  const nativeCallback = cap.nativeCallback;
+  if (!nativePromise || !nativeCallback) return;
+  installed = true;
+  (window as unknown as { waktDiagnostics?: typeof diagnosticsService }).waktDiagnostics = diagnosticsService;
+
+  cap.nativePromise = (pluginName, methodName, options) => {
+    const pending = nativePromise.call(cap, pluginName, methodName, options);
+    if (pluginName === PLUGIN_NAME) return pending;
+    const key = `${pluginName}.${methodName}`;
+    const start = performance.now();
+    const requestBytes = sizeOf(options);
+    return pending.then(
+      (result) => {
+        recordCall(key, performance.now() - start, requestBytes, sizeOf(result), false);
+        return result;
+      },
+      (error) => {
+        recordCall(key, performance.now() - start, requestBytes, 0, true);
+        throw error;
+      }
+    );
+  };
+
+  // addListener (and watch-style methods) call back once per event
+  cap.nativeCallback = (pluginName, methodName, options, callback) => {
+    if (typeof callback !== 'function' || pluginName === PLUGIN_NAME) {
+      return nativeCallback.call(cap, pluginName, methodName, options, callback);
+    }
+    const eventName = (options as { eventName?: string } | undefined)?.eventName;
+    const key = `${pluginName}.${methodName === 'addListener' && eventName ? eventName : methodName}`;
+    return nativeCallback.call(cap, pluginName, methodName, options, (...args: unknown[]) => {
+      recordEvent(key, args[0]);
+      callback(...args);
+    });
+  };
+
+  setInterval(flush, REPORT_INTERVAL_MS);
+  document.addEventListener('visibilitychange', () => {
+    if (document.visibilityState === 'hidden') flush();
+  });
+}
+
+/**
+ * Bridge profile and alarm telemetry. Also reachable from remote devtools as
+ * `window.waktDiagnostics` once installBridgeProfiler() has run.
+ */
+export const diagnosticsService = {
+  isSupported(): boolean {
+    return Capacitor.isNativePlatform();
+  },
+
+  async getStats(includeAlarms = false): Promise<DiagnosticsStats | null> {
+    if (!this.isSupported()) return null;
+    await flush();
+    return Diagnostics.getStats({ alarms: includeAlarms });
+  },
+
+  /**
+   * Write the text summary to a file on the device; resolves its path.
+   */
+  async dump(includeAlarms = false): Promise<string | null> {
+    if (!this.isSupported()) return null;
+    await flush();
+    const { path } = await Diagnostics.dump({ alarms: includeAlarms });
+    return path;
+  },
+
+  async reset(): Promise<void> {
+    if (!this.isSupported()) return;
+    calls = new Map();
+    events = new Map();
+    await Diagnostics.reset();
+  },
+};
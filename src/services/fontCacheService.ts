@@ -2,8 +2,31 @@
  * Font caching service for offline support
  * Pre-downloads and caches Google Fonts when internet is available
  * Falls back to cached fonts if offline on subsequent runs
+ *
+ * On Android the font files are cached on disk by the native FontCache plugin
+ * and served to the WebView from a local URL, so startup only links a small
+ * stylesheet. The base64-in-localStorage path is kept for the web build.
  */
 
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+interface FontCacheStatus {
+  cached: boolean;
+  fresh: boolean;
+  stylesheet: string;
+}
+
+interface FontCachePlugin {
+  getStatus(): Promise<FontCacheStatus>;
+  cacheFonts(options?: { force?: boolean }): Promise<FontCacheStatus>;
+}
+
+const NativeFontCache = registerPlugin<FontCachePlugin>('FontCache');
+
+// Served by FontWebViewClient; a 404 before the first download is harmless
+const NATIVE_STYLESHEET = '/_wakt/fonts/fonts.css';
+const FONT_LINK_ID = 'wakt-fonts-link';
+
 const FONT_CACHE_KEY = 'wakt_fonts_cache';
 const FONT_CACHE_TIMESTAMP_KEY = 'wakt_fonts_cache_timestamp';
 const CACHE_DURATION_MS = 30 * 24 * 60 * 60 * 1000; // 30 days
@@ -19,6 +42,9 @@ interface CachedFont {
  * This should be called when internet is confirmed available
  */
 export async function preCacheFonts(): Promise<boolean> {
+  if (Capacitor.isNativePlatform()) {
+    return preCacheNativeFonts();
+  }
   try {
     // Check if cache is still valid
     const cachedTimestamp = localStorage.getItem(FONT_CACHE_TIMESTAMP_KEY);
@@ -87,6 +113,13 @@ export async function preCacheFonts(): Promise<boolean> {
  * Apply cached fonts if available
  */
 export async function applyFontCache(): Promise<void> {
+  if (Capacitor.isNativePlatform()) {
+    // Drop the base64 copy left by older versions; it is no longer read
+    localStorage.removeItem(FONT_CACHE_KEY);
+    localStorage.removeItem(FONT_CACHE_TIMESTAMP_KEY);
+    applyFontLink(NATIVE_STYLESHEET);
+    return;
+  }
   try {
     const cached = localStorage.getItem(FONT_CACHE_KEY);
     if (cached) {
@@ -98,6 +131,39 @@ export async function applyFontCache(): Promise<void> {
   }
 }
 
+/**
+ * Ask the native side to download fonts to disk, then (re)link the stylesheet
+ */
+async function preCacheNativeFonts(): Promise<boolean> {
+  try {
+    const status = await NativeFontCache.cacheFonts();
+    if (status.cached) {
+      // A cache-busting query makes the WebView pick up a freshly written stylesheet
+      applyFontLink(`${status.stylesheet}?v=${Date.now()}`);
+    }
+    return status.cached;
+  } catch (error) {
+    console.warn('Error pre-caching fonts natively:', error);
+    return false;
+  }
+}
+
+/**
+ * Link the natively served font stylesheet
+ */
+function applyFontLink(href: string): void {
+  let link = document.getElementById(FONT_LINK_ID) as HTMLLinkElement | null;
+  if (!link) {
+    link = document.createElement('link');
+    link.id = FONT_LINK_ID;
+    link.rel = 'stylesheet';
+    document.head.appendChild(link);
+  }
+  if (link.getAttribute('href') !== href) {
+    link.href = href;
+  }
+}
+
 /**
  * Extract font URLs from Google Fonts CSS
  */
@@ -177,4 +243,5 @@ export function clearFontCache(): void {
   if (style) {
     style.remove();
   }
+  document.getElementById(FONT_LINK_ID)?.remove();
 }
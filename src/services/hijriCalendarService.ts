@@ -1,3 +1,4 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
 import { Network } from '@capacitor/network';
 
 interface HijriDate {
@@ -8,6 +9,32 @@ interface HijriDate {
   daysInMonth: number;
 }
 
+type HijriMonthEntry = {
+  hijri: HijriDate;
+  gregorian: { day: number; month: number; year: number; weekday: string };
+};
+
+interface HijriCalendarNativePlugin {
+  getToday(): Promise<HijriDate>;
+  convert(options: { year: number; month: number; day: number }): Promise<HijriDate>;
+  getMonth(options: { year: number; month: number }): Promise<{
+    year: number;
+    month: number;
+    monthName: string;
+    daysInMonth: number;
+    gregorianStart: { year: number; month: number; day: number; weekday: number };
+  }>;
+  setSettings(options: {
+    dayOffset?: number;
+    method?: 'ummAlQura' | 'tabular';
+  }): Promise<{ dayOffset: number; method: string }>;
+  getSettings(): Promise<{ dayOffset: number; method: string }>;
+}
+
+const NativeHijriCalendar = registerPlugin<HijriCalendarNativePlugin>('HijriCalendar');
+
+const WEEKDAYS = ['Sunday', 'Monday', 'Tuesday', 'Wednesday', 'Thursday', 'Friday', 'Saturday'];
+
 interface CachedHijriData {
   currentDate: HijriDate;
   monthData: { [gregorianDate: string]: HijriDate };
@@ -44,8 +71,12 @@ export class HijriCalendarService {
   private midnightTimeout: any = null;
   private isOnline = true;
   private autoRefreshEnabled = true;
+  // On Android the calendar is computed natively and offline,
+  // so there is nothing to fetch, cache or refresh.
+  private readonly useNative = Capacitor.isNativePlatform();
 
   constructor() {
+    if (this.useNative) return;
     this.initNetworkListener();
     this.loadCachedData();
     this.scheduleAutoRefresh();
@@ -157,6 +188,7 @@ export class HijriCalendarService {
   }
 
   public hasDateChanged(): boolean {
+    if (this.useNative) return false;
     try {
       const cached = localStorage.getItem(STORAGE_KEY);
       if (!cached) return false;
@@ -309,6 +341,14 @@ export class HijriCalendarService {
   }
 
   public async getCurrentHijriDate(): Promise<HijriDate | null> {
+    if (this.useNative) {
+      try {
+        return await NativeHijriCalendar.getToday();
+      } catch (error) {
+        console.error('Native hijri conversion failed:', error);
+        return null;
+      }
+    }
     try {
       const cached = localStorage.getItem(STORAGE_KEY);
       if (cached) {
@@ -336,6 +376,18 @@ export class HijriCalendarService {
   public async getHijriDate(
     gregorianDate: Date
   ): Promise<HijriDate | null> {
+    if (this.useNative) {
+      try {
+        return await NativeHijriCalendar.convert({
+          year: gregorianDate.getFullYear(),
+          month: gregorianDate.getMonth() + 1,
+          day: gregorianDate.getDate(),
+        });
+      } catch (error) {
+        console.error('Native hijri conversion failed:', error);
+        return null;
+      }
+    }
     try {
       const dateStr = `${gregorianDate.getDate()}-${
         gregorianDate.getMonth() + 1
@@ -373,6 +425,7 @@ export class HijriCalendarService {
 
   // Fetch full Hijri month mapped to Gregorian dates
   public async getHijriMonth(month: number, year: number) {
+    if (this.useNative) return this.getNativeHijriMonth(month, year);
     const monthKey = `${year}-${month}`;
 
     try {
@@ -409,6 +462,37 @@ export class HijriCalendarService {
     }
   }
 
+  // One native call per month; expand the consecutive days locally
+  private async getNativeHijriMonth(month: number, year: number): Promise<HijriMonthEntry[] | null> {
+    try {
+      const m = await NativeHijriCalendar.getMonth({ year, month });
+      const start = m.gregorianStart;
+      const entries: HijriMonthEntry[] = [];
+      for (let i = 0; i < m.daysInMonth; i++) {
+        const g = new Date(start.year, start.month - 1, start.day + i);
+        entries.push({
+          hijri: {
+            day: i + 1,
+            month: m.month,
+            year: m.year,
+            monthName: m.monthName,
+            daysInMonth: m.daysInMonth,
+          },
+          gregorian: {
+            day: g.getDate(),
+            month: g.getMonth() + 1,
+            year: g.getFullYear(),
+            weekday: WEEKDAYS[(start.weekday + i) % 7],
+          },
+        });
+      }
+      return entries;
+    } catch (error) {
+      console.error('Native hijri month failed:', error);
+      return null;
+    }
+  }
+
   // Batch fetch for better performance - fetches multiple dates concurrently
   public async getHijriDatesBatch(
     dates: Date[]
@@ -440,6 +524,7 @@ export class HijriCalendarService {
   }
 
   public getLastUpdateTime(): number {
+    if (this.useNative) return Date.now();
     try {
       const cached = localStorage.getItem(STORAGE_KEY);
       if (cached) {
@@ -472,11 +557,31 @@ export class HijriCalendarService {
   }
 
   public async manualFetch(): Promise<boolean> {
+    if (this.useNative) return true;
     if (!this.isOnline) return false;
     await this.fetchHijriData();
     return true;
   }
 
+  public isDayOffsetSupported(): boolean {
+    return this.useNative;
+  }
+
+  // Day offset applied to all native conversions (-3..3), persisted natively.
+  // Pages showing Hijri dates reload through the usual update event.
+  public async setDayOffset(dayOffset: number): Promise<number> {
+    if (!this.useNative) return 0;
+    const settings = await NativeHijriCalendar.setSettings({ dayOffset });
+    window.dispatchEvent(new CustomEvent('hijriDataUpdated'));
+    return settings.dayOffset;
+  }
+
+  public async getDayOffset(): Promise<number> {
+    if (!this.useNative) return 0;
+    const settings = await NativeHijriCalendar.getSettings();
+    return settings.dayOffset;
+  }
+
   // Get all Hijri month names
   public getMonthNames(): string[] {
     return HIJRI_MONTHS;
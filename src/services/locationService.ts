@@ -8,6 +8,23 @@ interface NativePermissionPlugin {
 
 const NativePermission = registerPlugin<NativePermissionPlugin>('NativePermission');
 
+interface GazetteerPlace {
+  city: string;
+  country: string;
+  countryCode: string;
+  timezone: string;
+  latitude: number;
+  longitude: number;
+}
+
+// Offline city index bundled with the Android app
+interface GazetteerPlugin {
+  search(options: { query: string; limit?: number }): Promise<{ results: GazetteerPlace[] }>;
+  reverse(options: { latitude: number; longitude: number }): Promise<Partial<GazetteerPlace> & { distanceKm?: number }>;
+}
+
+const Gazetteer = registerPlugin<GazetteerPlugin>('Gazetteer');
+
 export interface LocationData {
   latitude: number;
   longitude: number;
@@ -126,8 +143,42 @@ export async function clearLocationWatch(id: string): Promise<void> {
   }
 }
 
-// Reverse geocoding (using browser API or external service)
+// Offline lookups; null means "not available here, use the network"
+async function offlineSearch(query: string, limit: number): Promise<LocationSuggestion[] | null> {
+  if (!isNative()) return null;
+  try {
+    const { results } = await Gazetteer.search({ query, limit });
+    if (!results.length) return null;
+    return results.map((p) => ({
+      latitude: p.latitude,
+      longitude: p.longitude,
+      city: p.city,
+      country: p.country,
+      countryCode: p.countryCode,
+      displayName: `${p.city}, ${p.country}`,
+      timezone: p.timezone,
+    }));
+  } catch {
+    return null;
+  }
+}
+
+async function offlineReverse(lat: number, lng: number): Promise<{ city?: string; country?: string; countryCode?: string } | null> {
+  if (!isNative()) return null;
+  try {
+    const place = await Gazetteer.reverse({ latitude: lat, longitude: lng });
+    if (!place.city) return null;
+    return { city: place.city, country: place.country, countryCode: place.countryCode };
+  } catch {
+    return null;
+  }
+}
+
+// Reverse geocoding (bundled gazetteer first, then external service)
 export async function reverseGeocode(lat: number, lng: number): Promise<{ city?: string; country?: string; countryCode?: string }> {
+  const offline = await offlineReverse(lat, lng);
+  if (offline) return offline;
+
   try {
     // Using OpenStreetMap Nominatim API (free, no API key required)
     const response = await fetch(
@@ -152,6 +203,12 @@ export async function reverseGeocode(lat: number, lng: number): Promise<{ city?:
 
 // Forward geocoding (search by place name)
 export async function searchLocationByName(query: string): Promise<LocationData | null> {
+  const offline = await offlineSearch(query, 1);
+  if (offline) {
+    const { displayName, ...first } = offline[0];
+    return first;
+  }
+
   try {
     const response = await fetch(
       `https://nominatim.openstreetmap.org/search?format=json&q=${encodeURIComponent(query)}&limit=1&addressdetails=1`
@@ -200,6 +257,9 @@ export interface LocationSuggestion {
 
 export async function searchLocations(query: string, limit: number = 8): Promise<LocationSuggestion[]> {
   console.log('[searchLocations] START - query:', query);
+  const offline = await offlineSearch(query, limit);
+  if (offline) return offline;
+
   try {
     const response = await fetch(
       `https://nominatim.openstreetmap.org/search?format=json&q=${encodeURIComponent(query)}&limit=${limit}&addressdetails=1`
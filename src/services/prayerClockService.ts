@@ -0,0 +1,106 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+
+export type PrayerClockReason = 'start' | 'minute' | 'transition' | 'dayChanged' | 'timeChanged';
+
+export interface PrayerClockEvent {
+  reason: PrayerClockReason;
+  now: number;
+  epochDay: number;
+  // Present while the prayer windows pushed to the native alarm store cover now
+  current?: string;
+  next?: string;
+  nextAt?: number;
+}
+
+interface PrayerClockPlugin {
+  start(): Promise<PrayerClockEvent>;
+  stop(): Promise<void>;
+  getState(): Promise<PrayerClockEvent>;
+  addListener(
+    eventName: 'tick',
+    listenerFunc: (event: PrayerClockEvent) => void
+  ): Promise<PluginListenerHandle>;
+}
+
+const NativePrayerClock = registerPlugin<PrayerClockPlugin>('PrayerClock');
+
+type Listener = (event: PrayerClockEvent) => void;
+
+const listeners = new Set<Listener>();
+let stopSource: (() => void) | null = null;
+let lastEvent: PrayerClockEvent | null = null;
+
+const localEpochDay = (d: Date) =>
+  Math.floor(Date.UTC(d.getFullYear(), d.getMonth(), d.getDate()) / 86400000);
+
+const emit = (event: PrayerClockEvent) => {
+  lastEvent = event;
+  listeners.forEach((listener) => listener(event));
+};
+
+const startNative = () => {
+  let handle: PluginListenerHandle | null = null;
+  let stopped = false;
+
+  NativePrayerClock.addListener('tick', emit).then((h) => {
+    if (stopped) {
+      h.remove();
+    } else {
+      handle = h;
+    }
+  });
+  NativePrayerClock.start()
+    .then(emit)
+    .catch((err) => console.error('[PrayerClock] Failed to start native clock', err));
+
+  return () => {
+    stopped = true;
+    handle?.remove();
+    NativePrayerClock.stop().catch(() => {});
+  };
+};
+
+// Web fallback: a timer aligned to minute boundaries
+const startWeb = () => {
+  let timer: ReturnType<typeof setTimeout> | undefined;
+  let day = localEpochDay(new Date());
+
+  const tick = (reason: PrayerClockReason) => {
+    const now = new Date();
+    const today = localEpochDay(now);
+    emit({
+      reason: reason === 'minute' && today !== day ? 'dayChanged' : reason,
+      now: now.getTime(),
+      epochDay: today,
+    });
+    day = today;
+    timer = setTimeout(() => tick('minute'), 60000 - (now.getTime() % 60000));
+  };
+
+  tick('start');
+  return () => clearTimeout(timer);
+};
+
+/**
+ * Subscribe to minute-aligned clock events. The underlying clock runs only
+ * while at least one subscriber exists.
+ */
+export function subscribePrayerClock(listener: Listener): () => void {
+  listeners.add(listener);
+  if (lastEvent) {
+    listener(lastEvent);
+  }
+  if (!stopSource) {
+    stopSource = Capacitor.isNativePlatform() ? startNative() : startWeb();
+  }
+
+  return () => {
+    listeners.delete(listener);
+    if (listeners.size === 0 && stopSource) {
+      stopSource();
+      stopSource = null;
+      lastEvent = null;
+    }
+  };
+}
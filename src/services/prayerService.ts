@@ -51,6 +51,10 @@ export function setCalculationTimezone(tz?: string) {
   overrideTimezone = tz || undefined;
 }
 
+export function getCalculationTimezone(): string | undefined {
+  return overrideTimezone;
+}
+
 export function getPrayerTimes(
   lat: number,
   lng: number,
@@ -581,6 +585,36 @@ export function getCurrentPrayerWindowInfo(
   return null;
 }
 
+// Same order as PRAYER_KEYS in AlarmSettings.java
+const WINDOW_ORDER = ['Fajr', 'Dhuhr', 'Asr', 'Maghrib', 'Isha'] as const;
+
+/**
+ * Prayer windows for `days` consecutive days from `firstDate`, packed for the
+ * native alarm store: epoch minutes, start then end for each prayer, five
+ * prayers per day. Uses getPrayerWindows' defaults, so alarms and reminders
+ * see the same windows as the app.
+ */
+export function getPackedPrayerWindows(
+  lat: number,
+  lng: number,
+  firstDate: Date,
+  days: number,
+  methodName: string = 'Muslim World League',
+  madhabName: string = 'Shafi'
+): number[] {
+  const packed: number[] = [];
+  for (let i = 0; i < days; i++) {
+    const date = new Date(firstDate.getFullYear(), firstDate.getMonth(), firstDate.getDate() + i);
+    const windows = getPrayerWindows(lat, lng, date, methodName, madhabName);
+    for (const name of WINDOW_ORDER) {
+      // Floor, like the HH:mm shown next to the prayer
+      packed.push(Math.floor(windows[name].start.getTime() / 60000));
+      packed.push(Math.floor(windows[name].end.getTime() / 60000));
+    }
+  }
+  return packed;
+}
+
 /**
  * DEPRECATED: Use getPrayerStatus() instead
  * 
@@ -0,0 +1,102 @@
+import { getPrayerTimes, getCalculationTimezone } from './prayerService';
+
+export interface TimetableDay {
+  date: Date;
+  fajr: Date;
+  sunrise: Date;
+  dhuhr: Date;
+  asr: Date;
+  sunset: Date;
+  maghrib: Date;
+  isha: Date;
+}
+
+interface TimetableRequest {
+  latitude: number;
+  longitude: number;
+  method: string;
+  madhab: string;
+}
+
+// Months kept; the schedule page pages back and forth through a few at most
+const CACHE_CAPACITY = 6;
+
+// Insertion order doubles as recency: hits are moved to the end
+const months = new Map<string, TimetableDay[]>();
+
+// Locations within ~1 km share an entry; their times differ by seconds
+const monthKey = (request: TimetableRequest, year: number, monthIndex: number) =>
+  [
+    request.latitude.toFixed(2),
+    request.longitude.toFixed(2),
+    request.method,
+    request.madhab,
+    getCalculationTimezone() ?? '',
+    year,
+    monthIndex,
+  ].join('|');
+
+const calculateMonth = (request: TimetableRequest, year: number, monthIndex: number): TimetableDay[] => {
+  const daysInMonth = new Date(year, monthIndex + 1, 0).getDate();
+  const days: TimetableDay[] = [];
+  for (let d = 1; d <= daysInMonth; d++) {
+    const date = new Date(year, monthIndex, d);
+    const t = getPrayerTimes(request.latitude, request.longitude, date, request.method, request.madhab);
+    days.push({
+      date,
+      fajr: t.fajr,
+      sunrise: t.sunrise,
+      dhuhr: t.dhuhr,
+      asr: t.asr,
+      sunset: t.sunset,
+      maghrib: t.maghrib,
+      isha: t.isha,
+    });
+  }
+  return days;
+};
+
+const month = (request: TimetableRequest, year: number, monthIndex: number): TimetableDay[] => {
+  const key = monthKey(request, year, monthIndex);
+  let days = months.get(key);
+  if (days) {
+    months.delete(key);
+  } else {
+    days = calculateMonth(request, year, monthIndex);
+    if (months.size >= CACHE_CAPACITY) {
+      months.delete(months.keys().next().value as string);
+    }
+  }
+  months.set(key, days);
+  return days;
+};
+
+/**
+ * Prayer times for `count` consecutive days from `firstDate`, stitched from
+ * the month cache.
+ */
+export async function getTimetable(
+  request: TimetableRequest,
+  firstDate: Date,
+  count: number
+): Promise<TimetableDay[]> {
+  const days: TimetableDay[] = [];
+  for (let i = 0; i < count; i++) {
+    const date = new Date(firstDate.getFullYear(), firstDate.getMonth(), firstDate.getDate() + i);
+    days.push(month(request, date.getFullYear(), date.getMonth())[date.getDate() - 1]);
+  }
+  return days;
+}
+
+/**
+ * Prayer times for every day of a month (monthIndex is 0-based, as in Date,
+ * and may run past 11 or below 0).
+ */
+export async function getMonthTimetable(
+  request: TimetableRequest,
+  year: number,
+  monthIndex: number
+): Promise<TimetableDay[]> {
+  const first = new Date(year, monthIndex, 1);
+  return month(request, first.getFullYear(), first.getMonth());
+}
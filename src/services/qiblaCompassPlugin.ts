@@ -6,7 +6,8 @@ export type QiblaChangeEvent = { qibla: number };
 export type TiltChangeEvent = { pitch: number; roll: number };
 
 export interface QiblaCompassPlugin {
-  startListening(): Promise<{ started: boolean }>;
+  // stream: send updates over the "qiblaCompass" NativeStream as [heading, qibla, isFacingQibla]
+  startListening(options?: { stream?: boolean }): Promise<{ started: boolean; stream?: boolean }>;
   stopListening(): Promise<{ stopped: boolean }>;
   addListener(
     eventName: 'headingChange',
@@ -0,0 +1,91 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { PluginListenerHandle } from '@capacitor/core';
+
+export interface TravelModeStatus {
+  enabled: boolean;
+  /** False when enabling could not register the location request */
+  active?: boolean;
+  locationPermission: boolean;
+  /** Needed for updates while the app is closed (Android 10+) */
+  backgroundPermission: boolean;
+  thresholdKm: number;
+  lastMoveAt?: number;
+  lastDistanceKm?: number;
+  /** Location in the native alarm store, moved there by travel mode or saved from JS */
+  latitude?: number;
+  longitude?: number;
+}
+
+export interface TravelLocationEvent {
+  latitude: number;
+  longitude: number;
+  accuracy: number;
+  /** Distance from the previous location; 0 if none was stored */
+  distanceKm: number;
+  at: number;
+}
+
+interface TravelModePlugin {
+  getStatus(): Promise<TravelModeStatus>;
+  setEnabled(options: { enabled: boolean }): Promise<TravelModeStatus>;
+  requestBackgroundPermission(): Promise<TravelModeStatus>;
+  addListener(
+    eventName: 'locationChanged',
+    listenerFunc: (event: TravelLocationEvent) => void
+  ): Promise<PluginListenerHandle>;
+}
+
+const TravelMode = registerPlugin<TravelModePlugin>('TravelMode');
+
+/**
+ * Travel mode follows the device with low-power location updates (no GPS).
+ * After a significant move the new location is stored natively; prayer
+ * times are recalculated here, right away while the app is running or from
+ * getStatus() on the next launch; a move while the app is closed posts a
+ * notice to open it, since the armed alarms still use the old location.
+ * Android only.
+ */
+export const travelModeService = {
+  isSupported(): boolean {
+    return Capacitor.getPlatform() === 'android';
+  },
+
+  async getStatus(): Promise<TravelModeStatus | null> {
+    if (!this.isSupported()) return null;
+    return TravelMode.getStatus();
+  },
+
+  async setEnabled(enabled: boolean): Promise<TravelModeStatus | null> {
+    if (!this.isSupported()) return null;
+    return TravelMode.setEnabled({ enabled });
+  },
+
+  /**
+   * Ask for location "all the time" so moves are noticed while the app is
+   * closed. Rejects unless travel mode is on.
+   */
+  async requestBackgroundPermission(): Promise<TravelModeStatus | null> {
+    if (!this.isSupported()) return null;
+    return TravelMode.requestBackgroundPermission();
+  },
+
+  /**
+   * Subscribe to moves detected while the app is running. Returns an unsubscribe function.
+   */
+  onLocationChanged(listener: (event: TravelLocationEvent) => void): () => void {
+    if (!this.isSupported()) return () => {};
+    let handle: PluginListenerHandle | null = null;
+    let removed = false;
+    TravelMode.addListener('locationChanged', listener).then((h) => {
+      if (removed) {
+        h.remove();
+      } else {
+        handle = h;
+      }
+    });
+    return () => {
+      removed = true;
+      handle?.remove();
+    };
+  },
+};